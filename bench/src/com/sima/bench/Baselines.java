@@ -0,0 +1,161 @@
+package com.sima.bench;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * This class represents standard alternatives to RBTreePlus for finding the k lowest elements up to each checkpoint:
+ * a java.util.PriorityQueue max-heap, a java.util.TreeMap of value counts and quickselect on a copy of the prefix.
+ * Every method returns the k lowest elements in ascending order at each checkpoint.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public final class Baselines {
+
+    private Baselines() {
+    }
+
+    /**
+     * Keeps the k lowest elements in a max-heap (the head is the max. element).
+     * Time complexity: Θ(nlogk + klogk) for each checkpoint.
+     *
+     * @param array the input array
+     * @param checkpoints the checkpoints (ascending)
+     * @param k the number of lowest elements
+     * @return the k lowest elements at each checkpoint
+     */
+    public static int[][] priorityQueue(int[] array, int[] checkpoints, int k){
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(k, 1), Collections.reverseOrder());
+        int[][] result = new int[checkpoints.length][];
+        int i = 0;
+        for (int c = 0; c < checkpoints.length; c++){
+            for (; i < checkpoints[c]; i++){
+                if (heap.size() < k){
+                    heap.add(array[i]);
+                } else if (k > 0 && array[i] < heap.peek()){
+                    heap.poll();
+                    heap.add(array[i]);
+                }
+            }
+            int[] kLowest = new int[heap.size()];
+            int j = 0;
+            for (int value : heap){
+                kLowest[j++] = value;
+            }
+            Arrays.sort(kLowest);
+            result[c] = kLowest;
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the k lowest elements in a TreeMap from value to the number of its occurrences.
+     * Time complexity: Θ(nlogk) + Θ(k) for each checkpoint.
+     *
+     * @param array the input array
+     * @param checkpoints the checkpoints (ascending)
+     * @param k the number of lowest elements
+     * @return the k lowest elements at each checkpoint
+     */
+    public static int[][] treeMap(int[] array, int[] checkpoints, int k){
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        int size = 0;
+        int[][] result = new int[checkpoints.length][];
+        int i = 0;
+        for (int c = 0; c < checkpoints.length; c++){
+            for (; i < checkpoints[c]; i++){
+                if (size < k){
+                    counts.merge(array[i], 1, Integer::sum);
+                    size++;
+                } else if (k > 0 && array[i] < counts.lastKey()){
+                    Map.Entry<Integer, Integer> max = counts.lastEntry();
+                    if (max.getValue() == 1){
+                        counts.pollLastEntry();
+                    } else {
+                        counts.put(max.getKey(), max.getValue() - 1);
+                    }
+                    counts.merge(array[i], 1, Integer::sum);
+                }
+            }
+            int[] kLowest = new int[size];
+            int j = 0;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()){
+                for (int m = 0; m < entry.getValue(); m++){
+                    kLowest[j++] = entry.getKey();
+                }
+            }
+            result[c] = kLowest;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the k lowest elements of each prefix by quickselect on a copy of the prefix.
+     * Time complexity: Θ(n) expected + Θ(klogk) for each checkpoint.
+     *
+     * @param array the input array
+     * @param checkpoints the checkpoints (ascending)
+     * @param k the number of lowest elements
+     * @return the k lowest elements at each checkpoint
+     */
+    public static int[][] quickselect(int[] array, int[] checkpoints, int k){
+        int[] copy = new int[array.length];
+        int[][] result = new int[checkpoints.length][];
+        for (int c = 0; c < checkpoints.length; c++){
+            int prefix = checkpoints[c];
+            System.arraycopy(array, 0, copy, 0, prefix);
+            int lowest = Math.min(k, prefix);
+            if (lowest > 0 && lowest < prefix){
+                select(copy, 0, prefix - 1, lowest - 1);
+            }
+            int[] kLowest = Arrays.copyOf(copy, lowest);
+            Arrays.sort(kLowest);
+            result[c] = kLowest;
+        }
+        return result;
+    }
+
+    /**
+     * Rearranges a part of an array so that the element at index target is the one that would be there if the part
+     * was sorted, smaller or equal elements are before it and greater or equal elements are after it (Hoare
+     * partition with a middle pivot).
+     *
+     * @param a the array
+     * @param from the first index of the part
+     * @param to the last index of the part (inclusive)
+     * @param target the index of the selected element
+     */
+    private static void select(int[] a, int from, int to, int target){
+        while (from < to){
+            int pivot = a[(from + to) >>> 1];
+            int i = from, j = to;
+            while (i <= j){
+                while (a[i] < pivot){
+                    i++;
+                }
+                while (a[j] > pivot){
+                    j--;
+                }
+                if (i <= j){
+                    int temp = a[i];
+                    a[i] = a[j];
+                    a[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j){
+                to = j;
+            } else if (target >= i){
+                from = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.sima.bench;
+
+import com.sima.AdaptiveKLowest;
+import com.sima.CheckpointWriter;
+import com.sima.HeapKLowest;
+import com.sima.InputData;
+import com.sima.KLowest;
+import com.sima.KLowestEngine;
+import com.sima.RBTreePlus;
+import com.sima.RBTreePlusArray;
+import com.sima.RBTreePlusNode;
+import com.sima.SortedArrayKLowest;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class represents the JMH benchmarks of RBTreePlus and KLowest, compared with standard alternatives.
+ * The benchmarks run over the grid of Main (n = 200, 400, 800 and k = 10, 50, 100). Build and run them from the bench
+ * directory, with the allocation rate and the bytes allocated per operation reported by the gc profiler:
+ *     mvn -B package
+ *     java -jar target/benchmarks.jar -prof gc
+ * The large grid (n = 10^6, 10^7, 10^8 and k = 10^3, 10^4, 10^5, where n = 10^8 needs a heap of about 2 GB) is run
+ * by overriding the parameters:
+ *     java -jar target/benchmarks.jar -prof gc -jvmArgs -Xmx3g -p n=1000000,10000000,100000000 -p k=1000,10000,100000
+ * The elements are random numbers between 0-1023, as in InputData. Each score is the time of a whole workload -
+ * min(k, n) operations for the tree operations and n elements for the others.
+ * Benchmarks:
+ * 1. RBTreePlus.insert, RBTreePlus.delete (of the max node) and RBTreePlus.predecessor on a tree with k elements.
+ * 2. RBTreePlus.offer / RBTreePlus.offerAll / RBTreePlusArray.offer over n elements (the k-bounded replacement that
+ *    was KLowest.replaceNode).
+ * 3. The k lowest elements at the 4 checkpoints by RBTreePlus, PriorityQueue, TreeMap and quickselect.
+ * 4. Whole KLowest.run and KLowest.runParallel executions (the written output is discarded).
+ * 5. The k lowest elements at the 4 checkpoints by every KLowestEngine (SortedArrayKLowest, HeapKLowest, RBTreePlus
+ *    and AdaptiveKLowest), which shows where the thresholds of AdaptiveKLowest stand for this input.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class KLowestBenchmark {
+
+    // Discards everything written by KLowest
+    private static final WritableByteChannel NULL_CHANNEL = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            source.position(source.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Param({"200", "400", "800"})
+    public int n;
+
+    @Param({"10", "50", "100"})
+    public int k;
+
+    // The input of every benchmark, the number of elements in the trees of benchmark 1 and a tree with them
+    private int[] _array;
+    private int[] _checkpoints;
+    private int _size;
+    private RBTreePlus _full;
+    private InputData _input;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        _array = randomArray(n);
+        _checkpoints = new int[] {n / 4, n / 2, (int) (3L * n / 4), n};
+        _size = Math.min(k, n);
+        _full = new RBTreePlus();
+        for (int i = 0; i < _size; i++){
+            _full.insert(_array[i]);
+        }
+        _input = new InputData(n, k);
+    }
+
+    /**
+     * A tree with the first min(k, n) elements of the input, which is filled again before every invocation of the
+     * delete benchmark (the invocation empties it).
+     */
+    @State(Scope.Thread)
+    public static class FilledTree {
+
+        private RBTreePlus _tree;
+
+        @Setup(Level.Invocation)
+        public void fill(KLowestBenchmark benchmark){
+            _tree = new RBTreePlus();
+            for (int i = 0; i < benchmark._size; i++){
+                _tree.insert(benchmark._array[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public int insert(){
+        RBTreePlus tree = new RBTreePlus();
+        for (int i = 0; i < _size; i++){
+            tree.insert(_array[i]);
+        }
+        return tree.getNumOfElements();
+    }
+
+    @Benchmark
+    public long delete(FilledTree filled){
+        RBTreePlus tree = filled._tree;
+        long sum = 0;
+        while (tree.getNumOfElements() > 0){ // delete the max node until the tree is empty
+            RBTreePlusNode maxNode = tree.getMaxNode();
+            RBTreePlusNode maxPredNode = tree.predecessor(maxNode);
+            sum += tree.delete(maxNode).getKey();
+            tree.setMaxNode(maxPredNode);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long predecessor(){
+        long sum = 0;
+        RBTreePlusNode node = _full.getMaxNode();
+        for (int i = 1; i < _size; i++){ // walk from the max node down to the min node
+            node = _full.predecessor(node);
+            sum += node.getKey();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int offer(){
+        RBTreePlus tree = new RBTreePlus(k);
+        for (int value : _array){
+            tree.offer(value);
+        }
+        return tree.getMaxNode().getKey();
+    }
+
+    @Benchmark
+    public int offerAll(){
+        RBTreePlus tree = new RBTreePlus(k);
+        tree.offerAll(_array, 0, n);
+        return tree.getMaxNode().getKey();
+    }
+
+    @Benchmark
+    public int arrayOffer(){
+        RBTreePlusArray tree = new RBTreePlusArray(k);
+        for (int value : _array){
+            tree.offer(value);
+        }
+        return tree.getKey(tree.getMaxNode());
+    }
+
+    @Benchmark
+    public int[][] checkpointsRBTreePlus(){
+        RBTreePlus tree = new RBTreePlus(k);
+        int[][] result = new int[_checkpoints.length][];
+        int i = 0;
+        for (int c = 0; c < _checkpoints.length; c++){
+            for (; i < _checkpoints[c]; i++){
+                tree.offer(_array[i]);
+            }
+            result[c] = tree.toSortedArray();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int[][] checkpointsPriorityQueue(){
+        return Baselines.priorityQueue(_array, _checkpoints, k);
+    }
+
+    @Benchmark
+    public int[][] checkpointsTreeMap(){
+        return Baselines.treeMap(_array, _checkpoints, k);
+    }
+
+    @Benchmark
+    public int[][] checkpointsQuickselect(){
+        return Baselines.quickselect(_array, _checkpoints, k);
+    }
+
+    @Benchmark
+    public void kLowestRun(){
+        new KLowest(false, new CheckpointWriter(NULL_CHANNEL, false)).run(_input);
+    }
+
+    @Benchmark
+    public void kLowestRunParallel(){
+        new KLowest(false, new CheckpointWriter(NULL_CHANNEL, false)).runParallel(_input);
+    }
+
+    @Benchmark
+    public int[][] engineSortedArrayKLowest(){
+        return engine(new SortedArrayKLowest(k));
+    }
+
+    @Benchmark
+    public int[][] engineHeapKLowest(){
+        return engine(new HeapKLowest(k));
+    }
+
+    @Benchmark
+    public int[][] engineRBTreePlus(){
+        return engine(new RBTreePlus(k, true));
+    }
+
+    @Benchmark
+    public int[][] engineAdaptiveKLowest(){
+        return engine(new AdaptiveKLowest(k));
+    }
+
+    /**
+     * Finds the k lowest elements at each checkpoint with an engine.
+     *
+     * @param engine the engine (empty)
+     * @return the k lowest elements at each checkpoint
+     */
+    private int[][] engine(KLowestEngine engine){
+        int[][] result = new int[_checkpoints.length][];
+        int i = 0;
+        for (int c = 0; c < _checkpoints.length; c++){
+            for (; i < _checkpoints[c]; i++){
+                engine.offer(_array[i]);
+            }
+            int[] kLowest = new int[engine.getNumOfElements()];
+            engine.copyKeys(kLowest);
+            result[c] = kLowest;
+        }
+        return result;
+    }
+
+    // Creates an array of random numbers between 0-1023 (with a fixed seed, so all runs use the same input)
+    private static int[] randomArray(int n){
+        Random random = new Random(16);
+        int[] array = new int[n];
+        for (int i = 0; i < n; i++){
+            array[i] = random.nextInt(1024);
+        }
+        return array;
+    }
+}
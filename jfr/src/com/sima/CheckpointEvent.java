@@ -0,0 +1,56 @@
+package com.sima;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This class represents the JFR event committed by KLowest at each checkpoint when TreeStats is enabled (see
+ * JfrCheckpointRecorder). It holds the counters of the thread that ran the algorithm since its previous checkpoint.
+ * The class is in the optional jfr module (Java 11 or later), so the algorithm doesn't depend on JFR.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+@Name("com.sima.Checkpoint")
+@Label("KLowest Checkpoint")
+@Category("KLowest")
+@Description("The work done by RBTreePlus between two checkpoints")
+class CheckpointEvent extends Event {
+
+    @Label("Checkpoint")
+    int checkpoint;
+
+    @Label("k")
+    int k;
+
+    @Label("Elements In Tree")
+    int numOfElements;
+
+    @Label("Comparisons")
+    long comparisons;
+
+    @Label("Rotations")
+    long rotations;
+
+    @Label("Insert Fixup Cases")
+    String insertFixupCases;
+
+    @Label("Delete Fixup Cases")
+    String deleteFixupCases;
+
+    @Label("Rejections")
+    long rejections;
+
+    @Label("In-Place Replacements")
+    long inPlaceReplacements;
+
+    @Label("Full Replacements")
+    long fullReplacements;
+
+    @Label("Occurrence Replacements")
+    long occurrenceReplacements;
+}
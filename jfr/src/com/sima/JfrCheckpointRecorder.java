@@ -0,0 +1,56 @@
+package com.sima;
+
+import com.sima.TreeStats.Counter;
+
+/**
+ * This class represents the recorder that commits a JFR CheckpointEvent with the counters of TreeStats at each
+ * checkpoint of KLowest. TreeStats loads it by its name when the counters are enabled, if the jfr module is on the
+ * class path.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+class JfrCheckpointRecorder implements CheckpointRecorder {
+
+    /**
+     * Commits a CheckpointEvent with the counts since the previous checkpoint (if a recording is enabled for the
+     * event).
+     *
+     * @param k the k of the algorithm
+     * @param checkpoint the number of the checkpoint
+     * @param numOfElements the number of elements in the tree
+     * @param delta the counts since the previous checkpoint, indexed by the ordinals of TreeStats.Counter
+     */
+    @Override
+    public void record(int k, int checkpoint, int numOfElements, long[] delta){
+        CheckpointEvent event = new CheckpointEvent();
+        if (!event.shouldCommit()){ // no recording is enabled for the event
+            return;
+        }
+        event.checkpoint = checkpoint;
+        event.k = k;
+        event.numOfElements = numOfElements;
+        event.comparisons = delta[Counter.COMPARISONS.ordinal()];
+        event.rotations = delta[Counter.LEFT_ROTATIONS.ordinal()] + delta[Counter.RIGHT_ROTATIONS.ordinal()];
+        event.insertFixupCases = cases(delta, Counter.INSERT_FIXUP_CASE_1, Counter.INSERT_FIXUP_CASE_3);
+        event.deleteFixupCases = cases(delta, Counter.DELETE_FIXUP_CASE_1, Counter.DELETE_FIXUP_CASE_4);
+        event.rejections = delta[Counter.REJECTIONS.ordinal()];
+        event.inPlaceReplacements = delta[Counter.IN_PLACE_REPLACEMENTS.ordinal()];
+        event.fullReplacements = delta[Counter.FULL_REPLACEMENTS.ordinal()];
+        event.occurrenceReplacements = delta[Counter.OCCURRENCE_REPLACEMENTS.ordinal()];
+        event.commit();
+    }
+
+    // Returns the counts of a range of fixup cases, separated by commas (for example "12,3,5")
+    private static String cases(long[] delta, Counter first, Counter last){
+        StringBuilder cases = new StringBuilder();
+        for (int i = first.ordinal(); i <= last.ordinal(); i++){
+            if (i > first.ordinal()){
+                cases.append(',');
+            }
+            cases.append(delta[i]);
+        }
+        return cases.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package com.sima;
+
+/**
+ * This class represents a data structure for keeping the k lowest elements that chooses its engine (a KLowestEngine)
+ * by k and by the rate of offered elements that are kept (the acceptance rate), and switches engines while the
+ * elements are offered if the rate changes.
+ * Once k elements are kept, the elements are offered in windows of max(4096, 4k) elements, and the acceptance rate
+ * of each window chooses the engine for the next one:
+ * 1. For k up to SMALL_K - SortedArrayKLowest, whose insertion copies at most SMALL_K ints and whose elements are
+ * already sorted at a checkpoint. The acceptance rate isn't used for such a k: a rejection is a single comparison in
+ * the array and in the heap, and a kept element was measured to cost no more in the array than in the heap for k of
+ * 32 to SMALL_K (at rates of 10% and 100%). The heap was faster only for k of up to 16 at a rate near 100% (by a few
+ * nanoseconds per element), which doesn't justify a switch that sorts the heap at every checkpoint.
+ * 2. For a larger k and an acceptance rate of at least LOW_ACCEPTANCE (the first window after the array is filled,
+ * or random elements while k is a large part of the elements passed) - HeapKLowest, which keeps an element with
+ * Θ(logk) moves inside an array.
+ * 3. For a larger k and a lower acceptance rate - RBTreePlus (a multiset), where the Θ(1) rejections are most of the
+ * work, a kept element that is already in the tree only increments a count, and the elements are copied in Θ(k)
+ * instead of being sorted at each checkpoint. The tree is left only when the rate is twice LOW_ACCEPTANCE, so an
+ * input near the threshold doesn't switch engines at every window.
+ * The engine is filled as SortedArrayKLowest for a small k and as HeapKLowest otherwise (every element is kept until
+ * there are k of them). Switching copies the k elements in ascending order and builds the new engine from them in
+ * Θ(k) (Θ(klogk) when leaving the heap), which is at most a constant per element of a window.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class AdaptiveKLowest implements KLowestEngine {
+
+    /**
+     * The engines that AdaptiveKLowest chooses from.
+     */
+    public enum Engine {
+        SORTED_ARRAY, HEAP, TREE
+    }
+
+    // The max. k of SortedArrayKLowest, the acceptance rate below which the tree is chosen for a larger k, and the
+    // min. number of elements in a window
+    public static final int SMALL_K = 256;
+    public static final double LOW_ACCEPTANCE = 0.01;
+    private static final int MIN_WINDOW = 4096;
+
+    // Instance variables - k, the number of elements in a window, the current engine and its kind, the number of
+    // elements offered and kept in the current window, the number of switches and the array of the elements copied by
+    // a switch (allocated on the first switch)
+    private int _k;
+    private int _window;
+    private KLowestEngine _engine;
+    private Engine _kind;
+    private int _offered, _accepted;
+    private int _switches;
+    private int[] _keys;
+
+    /**
+     * Constructor - creates the engine that is filled with the first k elements.
+     *
+     * @param k the number of lowest elements to keep
+     */
+    public AdaptiveKLowest(int k) {
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        _k = k;
+        _window = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_WINDOW, 4L * k));
+        _kind = k <= SMALL_K ? Engine.SORTED_ARRAY : Engine.HEAP;
+        _engine = create(_kind, new int[0], 0, k);
+        _offered = 0;
+        _accepted = 0;
+        _switches = 0;
+    }
+
+    // Getters for the kind of the current engine and the number of switches between engines
+    public Engine getEngine() {
+        return _kind;
+    }
+
+    public int getSwitches() {
+        return _switches;
+    }
+
+    @Override
+    public int getNumOfElements() {
+        return _engine.getNumOfElements();
+    }
+
+    @Override
+    public int getCapacity() {
+        return _k;
+    }
+
+    /**
+     * Offers an element to the current engine. Once the engine has k elements, counts the offered and kept elements
+     * of the window, and at the end of the window chooses the engine for the next one.
+     * Time complexity: the time complexity of the offer of the current engine, and Θ(1) amortized for the switches.
+     *
+     * @param key the element
+     * @return true if the element was kept
+     */
+    @Override
+    public boolean offer(int key){
+        boolean full = _engine.getNumOfElements() == _k;
+        boolean kept = _engine.offer(key);
+        if (full){
+            _offered++;
+            if (kept){
+                _accepted++;
+            }
+            if (_offered == _window){
+                Engine kind = choose(_kind, _k, (double) _accepted / _offered);
+                _offered = 0;
+                _accepted = 0;
+                if (kind != _kind){
+                    switchTo(kind);
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Copies the elements kept into an array in ascending order.
+     * Time complexity: the time complexity of the copy of the current engine (Θ(k) or Θ(klogk)).
+     *
+     * @param keys the array into which the elements are copied (must have room for all the elements)
+     * @return the number of elements copied
+     */
+    @Override
+    public int copyKeys(int[] keys){
+        return _engine.copyKeys(keys);
+    }
+
+    /**
+     * Chooses the engine for a window by k and the acceptance rate of the previous window (see the rules above). For
+     * k up to SMALL_K the rate is ignored and the sorted array is always chosen.
+     *
+     * @param current the engine of the previous window
+     * @param k the number of lowest elements
+     * @param acceptance the rate of elements kept in the previous window (0 to 1)
+     * @return the engine
+     */
+    static Engine choose(Engine current, int k, double acceptance){
+        if (k <= SMALL_K){
+            return Engine.SORTED_ARRAY;
+        }
+        if (current == Engine.TREE){ // stay in the tree unless the rate is clearly above the threshold
+            return acceptance >= 2 * LOW_ACCEPTANCE ? Engine.HEAP : Engine.TREE;
+        }
+        return acceptance >= LOW_ACCEPTANCE ? Engine.HEAP : Engine.TREE;
+    }
+
+    /**
+     * Moves the elements kept to a new engine.
+     * Time complexity: Θ(k) (Θ(klogk) when the current engine is the heap).
+     *
+     * @param kind the new engine
+     */
+    private void switchTo(Engine kind){
+        if (_keys == null){
+            _keys = new int[_k];
+        }
+        int count = _engine.copyKeys(_keys);
+        _engine = create(kind, _keys, count, _k);
+        _kind = kind;
+        _switches++;
+    }
+
+    /**
+     * Creates an engine with the given elements.
+     * Time complexity: Θ(k).
+     *
+     * @param kind the engine
+     * @param keys the elements, in ascending order
+     * @param count the number of elements
+     * @param k the number of lowest elements to keep
+     * @return the engine
+     */
+    private static KLowestEngine create(Engine kind, int[] keys, int count, int k){
+        if (kind == Engine.SORTED_ARRAY){
+            return SortedArrayKLowest.fromSortedKeys(keys, count, k);
+        } else if (kind == Engine.HEAP){
+            return HeapKLowest.fromSortedKeys(keys, count, k);
+        }
+        return RBTreePlus.fromSortedKeys(keys, 0, count, k, true); // a node per distinct value, as in KLowest
+    }
+}
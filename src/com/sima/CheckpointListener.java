@@ -0,0 +1,19 @@
+package com.sima;
+
+/**
+ * This interface represents a receiver of the k lowest elements reported by StreamingKLowest at each checkpoint.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public interface CheckpointListener {
+
+    /**
+     * Receives the k lowest elements encountered up to a checkpoint.
+     *
+     * @param position the number of elements passed up to the checkpoint
+     * @param kLowest a new array with the k lowest elements in ascending order (the listener may keep it)
+     */
+    void onCheckpoint(long position, int[] kLowest);
+}
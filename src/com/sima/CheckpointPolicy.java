@@ -0,0 +1,93 @@
+package com.sima;
+
+/**
+ * This class represents the policy that decides when StreamingKLowest reports the k lowest elements encountered so
+ * far: every N elements, every T milliseconds, or only on demand (when StreamingKLowest.requestCheckpoint is called).
+ * A time based policy keeps the time of the last checkpoint, so a policy object should be used by one stream only.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public abstract class CheckpointPolicy {
+
+    // The number of elements between two reads of the clock by a time based policy
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    /**
+     * Checks whether a checkpoint is due after the element at the given position (1 for the first element).
+     *
+     * @param position the number of elements passed so far
+     * @return true if a checkpoint should be reported
+     */
+    public abstract boolean isDue(long position);
+
+    /**
+     * Notifies the policy that a checkpoint was reported (for any reason) after the given position.
+     *
+     * @param position the number of elements passed so far
+     */
+    public void checkpointReported(long position){
+    }
+
+    /**
+     * Returns a policy that reports a checkpoint every n elements.
+     *
+     * @param n the number of elements between two checkpoints
+     * @return the policy
+     */
+    public static CheckpointPolicy everyElements(final long n){
+        if (n <= 0){
+            throw new IllegalArgumentException("Invalid number of elements: " + n);
+        }
+        return new CheckpointPolicy() {
+            @Override
+            public boolean isDue(long position) {
+                return position % n == 0;
+            }
+        };
+    }
+
+    /**
+     * Returns a policy that reports a checkpoint when at least the given time has passed since the previous one.
+     * The clock is read once every 1024 elements, so a slow stream may report a checkpoint later than the time.
+     *
+     * @param millis the number of milliseconds between two checkpoints
+     * @return the policy
+     */
+    public static CheckpointPolicy everyMillis(final long millis){
+        if (millis <= 0){
+            throw new IllegalArgumentException("Invalid number of milliseconds: " + millis);
+        }
+        return new CheckpointPolicy() {
+            private final long _intervalNanos = millis * 1000000L;
+            private long _lastCheckpointNanos = System.nanoTime();
+
+            @Override
+            public boolean isDue(long position) {
+                return position % CLOCK_CHECK_INTERVAL == 0 &&
+                        System.nanoTime() - _lastCheckpointNanos >= _intervalNanos;
+            }
+
+            @Override
+            public void checkpointReported(long position) {
+                _lastCheckpointNanos = System.nanoTime();
+            }
+        };
+    }
+
+    /**
+     * Returns a policy that never reports a checkpoint by itself (checkpoints are reported only on demand and at
+     * the end of the stream).
+     *
+     * @return the policy
+     */
+    public static CheckpointPolicy onDemand(){
+        return new CheckpointPolicy() {
+            @Override
+            public boolean isDue(long position) {
+                return false;
+            }
+        };
+    }
+}
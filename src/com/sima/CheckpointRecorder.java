@@ -0,0 +1,24 @@
+package com.sima;
+
+/**
+ * This interface represents a recorder of the counters of TreeStats at each checkpoint of KLowest. The JFR recorder
+ * (JfrCheckpointRecorder, which commits a CheckpointEvent) is in the optional module in the jfr directory, which needs
+ * Java 11 or later, and is loaded by TreeStats only if it's on the class path - so the algorithm itself compiles and
+ * runs on Java 8.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+interface CheckpointRecorder {
+
+    /**
+     * Records the counters of the current thread since its previous checkpoint.
+     *
+     * @param k the k of the algorithm
+     * @param checkpoint the number of the checkpoint
+     * @param numOfElements the number of elements in the tree
+     * @param delta the counts since the previous checkpoint, indexed by the ordinals of TreeStats.Counter
+     */
+    void record(int k, int checkpoint, int numOfElements, long[] delta);
+}
@@ -0,0 +1,195 @@
+package com.sima;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * This class represents the output of the input array and of the k lowest elements at the checkpoints.
+ * Everything is formatted into a single preallocated byte buffer (numbers are converted to digits without creating
+ * strings), which is written to a channel in bulk when it's full and on flush.
+ * There are two formats:
+ * 1. Text - the same format as RBTreePlus.printKMin and the original printing of InputData.
+ * 2. Binary - records of little-endian 32-bit integers: the checkpoint number (0 for the input array), the number
+ *    of elements and the elements. Text written by writeText is skipped in the binary format.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class CheckpointWriter {
+
+    // The size of the output buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The max. number of characters of an int ("-2147483648") and a separator
+    private static final int MAX_INT_CHARS = 12;
+
+    // The number of elements of the input array in a line (text format)
+    private static final int ELEMENTS_PER_LINE = 25;
+
+    // Instance variables - the channel, whether the format is binary, the buffer and a buffer for digits
+    private WritableByteChannel _channel;
+    private boolean _binary;
+    private ByteBuffer _buffer;
+    private byte[] _digits;
+
+    /**
+     * Constructor - sets the channel and the format and allocates the buffer.
+     *
+     * @param channel the channel the output is written to
+     * @param binary true for the binary format, false for text
+     */
+    public CheckpointWriter(WritableByteChannel channel, boolean binary) {
+        _channel = channel;
+        _binary = binary;
+        _buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        _digits = new byte[MAX_INT_CHARS];
+    }
+
+    /**
+     * Returns a text writer to the standard output (System.out at the time of the call).
+     *
+     * @return the writer
+     */
+    public static CheckpointWriter toStandardOutput(){
+        return new CheckpointWriter(Channels.newChannel(System.out), false);
+    }
+
+    /**
+     * Writes text (only ASCII characters are supported). Does nothing in the binary format.
+     *
+     * @param text the text
+     */
+    public void writeText(String text){
+        if (_binary){
+            return;
+        }
+        for (int i = 0; i < text.length(); i++){
+            ensureRemaining(1);
+            _buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Writes the k lowest elements at a checkpoint - in the text format a header line and a line with the elements
+     * (separated by commas), in the binary format a record.
+     * Time complexity: Θ(count).
+     *
+     * @param k the k of the algorithm (used in the header line)
+     * @param checkpoint the number of the checkpoint (1 for the first)
+     * @param keys an array with the elements in ascending order
+     * @param count the number of elements in the array
+     */
+    public void writeCheckpoint(int k, int checkpoint, int[] keys, int count){
+        if (_binary){
+            writeRecordHeader(checkpoint, count);
+            for (int i = 0; i < count; i++){
+                ensureRemaining(4);
+                _buffer.putInt(keys[i]);
+            }
+            return;
+        }
+        writeText("\n");
+        writeInt(k);
+        writeText(" lowest elements in check point ");
+        writeInt(checkpoint);
+        writeText(":\n");
+        if (count > 0){ // an empty tree prints nothing (as printKMin)
+            for (int i = 0; i < count - 1; i++){
+                writeInt(keys[i]);
+                _buffer.put((byte) ',');
+            }
+            writeInt(keys[count - 1]);
+            writeText("\n");
+        }
+    }
+
+    /**
+     * Writes the input array - in the text format a header line and the elements (25 elements per line), in the
+     * binary format a record with checkpoint number 0.
+     * Time complexity: Θ(n).
+     *
+     * @param regions the regions of the input (see InputData.getRegions)
+     * @param n the number of elements
+     */
+    public void writeInputArray(IntBuffer[] regions, int n){
+        if (_binary){
+            writeRecordHeader(0, n);
+        } else {
+            writeText("Input array (n=");
+            writeInt(n);
+            writeText("):\n");
+        }
+        int i = 0;
+        for (IntBuffer region : regions){
+            for (int j = 0; j < region.limit(); j++, i++){
+                if (_binary){
+                    ensureRemaining(4);
+                    _buffer.putInt(region.get(j));
+                } else {
+                    writeInt(region.get(j));
+                    if (i < n - 1){
+                        _buffer.put((byte) ',');
+                        if ((i + 1) % ELEMENTS_PER_LINE == 0){
+                            writeText("\n");
+                        }
+                    }
+                }
+            }
+        }
+        writeText("\n");
+    }
+
+    /**
+     * Writes the buffered output to the channel.
+     */
+    public void flush(){
+        _buffer.flip();
+        try {
+            while (_buffer.hasRemaining()){
+                _channel.write(_buffer);
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        _buffer.clear();
+    }
+
+    /**
+     * Writes the decimal digits of an integer (and leaves room for a separator after it).
+     *
+     * @param value the integer
+     */
+    private void writeInt(int value){
+        ensureRemaining(MAX_INT_CHARS);
+        long remaining = Math.abs((long) value); // a long, so the minimum integer value has an absolute value
+        int start = _digits.length;
+        do { // fill the digits from the last one
+            _digits[--start] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0){
+            _digits[--start] = '-';
+        }
+        _buffer.put(_digits, start, _digits.length - start);
+    }
+
+    // Writes the number of the checkpoint and the number of elements of a binary record
+    private void writeRecordHeader(int checkpoint, int count){
+        ensureRemaining(8);
+        _buffer.putInt(checkpoint);
+        _buffer.putInt(count);
+    }
+
+    // Flushes the buffer if it doesn't have the given number of bytes remaining
+    private void ensureRemaining(int bytes){
+        if (_buffer.remaining() < bytes){
+            flush();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.sima;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class represents a publisher of the TreeDeltas of the checkpoints to any number of subscribers, with the same
+ * protocol as java.util.concurrent.Flow (the project targets Java 8, which doesn't have Flow, so the Subscriber and
+ * Subscription interfaces are declared here with the same methods, and a Flow.Subscriber can be adapted to them
+ * directly). Every delta is a single item - a batch of all the net changes between two checkpoints.
+ * A subscriber receives onSubscribe when it subscribes, and then an onNext for each delta only after it requested it
+ * (Subscription.request), followed by onComplete when the publisher is closed (or onError). The deltas that were
+ * submitted but not requested yet wait in a buffer of the subscriber, and when the buffer is full, submit blocks until
+ * the subscriber requests more - so a slow subscriber slows the algorithm down instead of losing deltas or using
+ * unbounded memory.
+ * The methods of a subscriber are called by the thread that calls submit or close, or by the thread that calls
+ * request (never by two threads at a time), so a subscriber that requests more deltas in onNext receives them on the
+ * submitting thread.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class DeltaPublisher implements AutoCloseable {
+
+    /**
+     * This interface represents a receiver of deltas (as java.util.concurrent.Flow.Subscriber).
+     */
+    public interface Subscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(TreeDelta delta);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * This interface represents the link between the publisher and a subscriber (as
+     * java.util.concurrent.Flow.Subscription).
+     */
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+
+    // The default number of deltas buffered for each subscriber
+    private static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    // Instance variables - the number of deltas buffered for each subscriber, the subscriptions and whether the
+    // publisher was closed
+    private final int _bufferCapacity;
+    private final List<DeltaSubscription> _subscriptions;
+    private volatile boolean _closed;
+
+    /**
+     * Constructor - creates a publisher with a default buffer for each subscriber.
+     */
+    public DeltaPublisher() {
+        this(DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Constructor - creates a publisher that buffers up to the given number of deltas for each subscriber.
+     *
+     * @param bufferCapacity the number of deltas buffered for each subscriber
+     */
+    public DeltaPublisher(int bufferCapacity) {
+        if (bufferCapacity <= 0){
+            throw new IllegalArgumentException("Invalid buffer capacity: " + bufferCapacity);
+        }
+        _bufferCapacity = bufferCapacity;
+        _subscriptions = new CopyOnWriteArrayList<>();
+        _closed = false;
+    }
+
+    /**
+     * Adds a subscriber, which receives the deltas submitted from now on. A subscriber of a closed publisher
+     * receives onComplete at once.
+     *
+     * @param subscriber the subscriber
+     */
+    public void subscribe(Subscriber subscriber){
+        DeltaSubscription subscription = new DeltaSubscription(subscriber);
+        _subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (_closed){
+            subscription.finish(null);
+        }
+    }
+
+    /**
+     * Publishes a delta to all the subscribers - delivers it to a subscriber that requested it, and otherwise adds it
+     * to the subscriber's buffer, waiting while the buffer is full.
+     *
+     * @param delta the delta
+     */
+    public void submit(TreeDelta delta){
+        if (_closed){
+            throw new IllegalStateException("The publisher is closed");
+        }
+        for (DeltaSubscription subscription : _subscriptions){
+            subscription.add(delta);
+        }
+    }
+
+    /**
+     * Closes the publisher - every subscriber receives onComplete after the deltas in its buffer.
+     */
+    @Override
+    public void close(){
+        _closed = true;
+        for (DeltaSubscription subscription : _subscriptions){
+            subscription.finish(null);
+        }
+    }
+
+    /**
+     * Closes the publisher because of a failure - every subscriber receives onError with it (without the deltas in
+     * its buffer).
+     *
+     * @param failure the failure
+     */
+    public void closeExceptionally(Throwable failure){
+        _closed = true;
+        for (DeltaSubscription subscription : _subscriptions){
+            subscription.finish(failure);
+        }
+    }
+
+    // The subscription of a subscriber - its buffer, the number of deltas it requested and didn't receive yet, and its
+    // state (guarded by the subscription's lock)
+    private final class DeltaSubscription implements Subscription {
+        private final Subscriber _subscriber;
+        private final ArrayDeque<TreeDelta> _buffer;
+        private long _demand;
+        private boolean _cancelled, _finished, _delivering;
+        private Throwable _failure;
+
+        private DeltaSubscription(Subscriber subscriber) {
+            _subscriber = subscriber;
+            _buffer = new ArrayDeque<>();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0){ // ends the subscription with the error, which is delivered as any other signal
+                finish(new IllegalArgumentException("Invalid number of deltas requested: " + n));
+                return;
+            }
+            synchronized (this){
+                _demand = _demand + n < 0 ? Long.MAX_VALUE : _demand + n; // unbounded on overflow
+            }
+            deliver();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this){
+                _cancelled = true;
+                _buffer.clear();
+                notifyAll(); // releases a blocked submit
+            }
+            _subscriptions.remove(this);
+        }
+
+        // Adds a delta to the buffer (waits while the buffer is full) and delivers what was requested
+        private void add(TreeDelta delta){
+            synchronized (this){
+                boolean interrupted = false;
+                while (!_cancelled && _buffer.size() >= _bufferCapacity){
+                    try {
+                        wait();
+                    } catch (InterruptedException e){
+                        interrupted = true; // the delta must not be lost, so keep waiting
+                    }
+                }
+                if (interrupted){
+                    Thread.currentThread().interrupt();
+                }
+                if (_cancelled){
+                    return;
+                }
+                _buffer.addLast(delta);
+            }
+            deliver();
+        }
+
+        // Ends the subscription after the buffered deltas (or at once with a failure)
+        private void finish(Throwable failure){
+            synchronized (this){
+                _finished = true;
+                if (failure != null){
+                    _failure = failure;
+                    _buffer.clear();
+                    notifyAll(); // releases a blocked submit
+                }
+            }
+            deliver();
+        }
+
+        // Delivers the requested deltas, and the completion after the last one, on the current thread (unless another
+        // thread is delivering - it delivers them too)
+        private void deliver(){
+            Throwable failure;
+            while (true){
+                TreeDelta delta;
+                synchronized (this){
+                    if (_delivering || _cancelled){
+                        return;
+                    }
+                    if (_buffer.isEmpty() && _finished){ // the end of the subscription
+                        _cancelled = true;
+                        failure = _failure;
+                        break;
+                    }
+                    if (_buffer.isEmpty() || _demand == 0){
+                        return;
+                    }
+                    delta = _buffer.pollFirst();
+                    if (_demand != Long.MAX_VALUE){
+                        _demand--;
+                    }
+                    _delivering = true;
+                    notifyAll(); // the buffer has room for a blocked submit
+                }
+                try {
+                    _subscriber.onNext(delta);
+                } finally {
+                    synchronized (this){
+                        _delivering = false;
+                    }
+                }
+            }
+            _subscriptions.remove(this);
+            if (failure != null){
+                _subscriber.onError(failure);
+            } else {
+                _subscriber.onComplete();
+            }
+        }
+    }
+}
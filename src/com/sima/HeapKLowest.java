@@ -0,0 +1,133 @@
+package com.sima;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a data structure for keeping the k lowest elements in a binary max-heap of ints (as explained
+ * in the book, page 151), without a node object per element.
+ * The data structure consists of:
+ * 1. An array with room for k elements, which holds the heap (the max. element is at index 0, and the sons of index i
+ * are at 2i+1 and 2i+2).
+ * 2. A variable for the number of elements kept.
+ * An element that is smaller than the max. element replaces it at the root and is moved down to its place, so a kept
+ * element costs Θ(logk) moves inside a single array. The heap isn't sorted, so the elements are sorted at a
+ * checkpoint.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class HeapKLowest implements KLowestEngine {
+
+    // Instance variables - the heap and the number of elements kept
+    private int[] _heap;
+    private int _numOfElements;
+
+    /**
+     * Constructor - allocates an array of k slots and sets the number of elements to 0.
+     *
+     * @param k the max. number of elements kept
+     */
+    public HeapKLowest(int k) {
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        _heap = new int[k];
+        _numOfElements = 0;
+    }
+
+    /**
+     * Returns a data structure with the given elements (at most k of them). The elements are placed in descending
+     * order, which is a valid max-heap, so no element is moved.
+     * Time complexity: Θ(k).
+     *
+     * @param keys the elements, in ascending order
+     * @param count the number of elements
+     * @param k the max. number of elements kept
+     * @return the data structure
+     */
+    public static HeapKLowest fromSortedKeys(int[] keys, int count, int k){
+        if (count > k){
+            throw new IllegalArgumentException("Too many elements: " + count + " (k = " + k + ")");
+        }
+        HeapKLowest heap = new HeapKLowest(k);
+        for (int i = 0; i < count; i++){
+            heap._heap[i] = keys[count - 1 - i];
+        }
+        heap._numOfElements = count;
+        return heap;
+    }
+
+    // Getters for the num. of elements and k
+    @Override
+    public int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    @Override
+    public int getCapacity() {
+        return _heap.length;
+    }
+
+    /**
+     * Offers an element - if the heap has less than k elements, the element is added as a leaf and moved up to its
+     * place. Otherwise, an element that isn't smaller than the root is rejected in Θ(1), and a smaller element
+     * replaces the root and is moved down to its place.
+     * Time complexity: Θ(1) for a rejected element, Θ(logk) otherwise.
+     *
+     * @param key the element
+     * @return true if the element was kept
+     */
+    @Override
+    public boolean offer(int key){
+        int[] heap = _heap;
+        if (_numOfElements < heap.length){ // move the key up from a new leaf while its parent is smaller
+            int i = _numOfElements++;
+            while (i > 0){
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] >= key){
+                    break;
+                }
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = key;
+            return true;
+        }
+        if (heap.length == 0 || key >= heap[0]){
+            return false;
+        }
+        int size = _numOfElements;
+        int i = 0;
+        while (true){ // move the key down from the root while a son is greater
+            int son = 2 * i + 1;
+            if (son >= size){
+                break;
+            }
+            if (son + 1 < size && heap[son + 1] > heap[son]){ // the greater son
+                son++;
+            }
+            if (heap[son] <= key){
+                break;
+            }
+            heap[i] = heap[son];
+            i = son;
+        }
+        heap[i] = key;
+        return true;
+    }
+
+    /**
+     * Copies the elements kept into an array in ascending order (sorts a copy of the heap).
+     * Time complexity: Θ(klogk).
+     *
+     * @param keys the array into which the elements are copied (must have room for all the elements)
+     * @return the number of elements copied
+     */
+    @Override
+    public int copyKeys(int[] keys){
+        System.arraycopy(_heap, 0, keys, 0, _numOfElements);
+        Arrays.sort(keys, 0, _numOfElements);
+        return _numOfElements;
+    }
+}
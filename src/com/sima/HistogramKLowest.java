@@ -0,0 +1,140 @@
+package com.sima;
+
+/**
+ * This class represents an alternative data structure for keeping the k lowest elements, for elements from a small
+ * bounded range [minValue, maxValue] (like the random numbers between 0-1023 used in the assignment).
+ * The data structure consists of:
+ * 1. A count array, which holds the number of kept elements for each value in the range.
+ * 2. The current max. value (the k-th lowest element once k elements are kept).
+ * 3. A variable for the number of elements kept.
+ * Offering an element is Θ(1) amortized - the max. value only moves down while the structure is full, so all the
+ * searches for the next max. value together pass over the range at most once.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class HistogramKLowest {
+
+    // The max. range size for which KLowest chooses this data structure over RBTreePlus
+    public static final int MAX_RANGE = 1 << 20;
+
+    // Instance variables - the range, the count array (index 0 is minValue), k, num. of elements and max. value
+    private int _minValue, _maxValue;
+    private int[] _counts;
+    private int _k, _numOfElements;
+    private int _max;
+
+    /**
+     * Constructor - allocates a count array for the range and sets the number of elements to 0.
+     *
+     * @param k the max. number of elements kept
+     * @param minValue the lowest value in the range
+     * @param maxValue the highest value in the range
+     */
+    public HistogramKLowest(int k, int minValue, int maxValue) {
+        if (minValue > maxValue || (long) maxValue - minValue >= MAX_RANGE){
+            throw new IllegalArgumentException("Invalid value range: [" + minValue + ", " + maxValue + "]");
+        }
+        _minValue = minValue;
+        _maxValue = maxValue;
+        _counts = new int[maxValue - minValue + 1];
+        _k = k;
+        _numOfElements = 0;
+        _max = minValue;
+    }
+
+    /**
+     * Checks whether a value range is small enough for this data structure.
+     *
+     * @param minValue the lowest value in the range
+     * @param maxValue the highest value in the range
+     * @return true if the range has at most MAX_RANGE values
+     */
+    public static boolean fits(int minValue, int maxValue){
+        return minValue <= maxValue && (long) maxValue - minValue < MAX_RANGE;
+    }
+
+    // Getters for the num. of elements and the max. value
+    public int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    public int getMax() {
+        return _max;
+    }
+
+    /**
+     * Offers a value - the value is counted if less than k elements are kept, or if it is smaller than the max. value
+     * (in which case one occurrence of the max. value is removed, and the max. value moves down to the next value
+     * that has a count if it was the last occurrence).
+     * Time complexity: Θ(1) amortized.
+     *
+     * @param value the offered value (must be in the range)
+     * @return true if the value was kept
+     */
+    public boolean offer(int value){
+        if (value < _minValue || value > _maxValue){
+            throw new IllegalArgumentException("Value " + value + " is out of range [" + _minValue + ", " +
+                    _maxValue + "]");
+        }
+        if (_numOfElements < _k){ // if there are less than k elements - count the value
+            _counts[value - _minValue]++;
+            _numOfElements++;
+            if (_numOfElements == 1 || value > _max){
+                _max = value;
+            }
+            return true;
+        }
+        if (value >= _max){
+            return false;
+        }
+        _counts[value - _minValue]++;
+        int maxIndex = _max - _minValue;
+        _counts[maxIndex]--;
+        while (_counts[maxIndex] == 0){ // find the next max. value (a value that has a count exists below the max)
+            maxIndex--;
+        }
+        _max = maxIndex + _minValue;
+        return true;
+    }
+
+    /**
+     * Copies the kept elements into an array in ascending order.
+     * Time complexity: Θ(r + k), where r is the size of the range up to the max. value.
+     *
+     * @param keys the array into which the elements are copied (must have room for all the elements)
+     * @return the number of elements copied
+     */
+    public int copyKeys(int[] keys){
+        int count = 0;
+        if (_numOfElements > 0){
+            int maxIndex = _max - _minValue;
+            for (int i = 0; i <= maxIndex; i++){
+                for (int j = 0; j < _counts[i]; j++){
+                    keys[count++] = i + _minValue;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prints the kept elements in ascending order, in the same format as RBTreePlus.printKMin.
+     * Time complexity: Θ(r + k), where r is the size of the range up to the max. value.
+     */
+    public void printKMin(){
+        if (_numOfElements == 0){
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        int maxIndex = _max - _minValue;
+        for (int i = 0; i <= maxIndex; i++){
+            for (int j = 0; j < _counts[i]; j++){
+                line.append(i + _minValue).append(',');
+            }
+        }
+        line.setLength(line.length() - 1); // remove the comma after the max. value
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,301 @@
+package com.sima;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class represents an ingestion pipeline of the KLowest algorithm, for elements that come from several slow
+ * blocking sources (sockets, files or pipes) - channels of little-endian 32-bit integers, as in the binary input
+ * file of InputData.
+ * Every source is read by its own reader thread, which converts the bytes of each read into a batch of values and puts
+ * the batch into an IntRingBuffer (a preallocated lock-free multi-producer ring of int slots). A single writer thread
+ * (the thread that calls run) drains the ring and offers the values to a bounded RBTreePlus in batches (see
+ * RBTreePlus.offerAll), so the tree is only used by one thread and needs no lock. When the ring is full the readers
+ * wait, so the sources are read no faster than the writer consumes them.
+ * The readers are created by a ThreadFactory - platform threads by default. On a JDK with virtual threads, a factory
+ * of virtual threads (Thread.ofVirtual().factory()) gives every source a cheap thread that doesn't hold a platform
+ * thread while it's blocked in a read.
+ * Checkpoints are reported to a CheckpointListener as in StreamingKLowest - when the CheckpointPolicy decides so
+ * (the position is the number of values drained so far, in the order they were drained) and at the end of the
+ * sources. The throughput, the number of values waiting in the ring (queue depth) and the number of times a reader
+ * waited for the writer can be read from any thread while the pipeline runs.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class IngestionPipeline {
+
+    // The default number of slots in the ring, and the max. number of values read or drained at a time
+    static final int DEFAULT_RING_CAPACITY = 1 << 16;
+    private static final int BATCH_SIZE = 1024;
+
+    // Instance variables - the tree, the ring, the factory of the reader threads, the policy and listener of the
+    // checkpoints, the number of values drained so far, the position of the last checkpoint and the time the run
+    // started (read by the statistics getters from other threads)
+    private final RBTreePlus _tree;
+    private final IntRingBuffer _ring;
+    private final ThreadFactory _threadFactory;
+    private final CheckpointPolicy _policy;
+    private final CheckpointListener _listener;
+    private volatile long _position;
+    private long _lastCheckpointPosition;
+    private volatile long _startNanos;
+
+    // The sources of the run, the number of readers that didn't finish yet, and the first failure of a reader
+    private volatile List<ReadableByteChannel> _sources;
+    private final AtomicInteger _activeReaders;
+    private final AtomicReference<Throwable> _failure;
+
+    /**
+     * Constructor - creates a pipeline with a ring of a default size, whose readers are daemon platform threads.
+     *
+     * @param k the number of lowest elements to keep
+     * @param policy the policy that decides when checkpoints are reported
+     * @param listener the receiver of the k lowest elements at each checkpoint (called by the writer thread)
+     */
+    public IngestionPipeline(int k, CheckpointPolicy policy, CheckpointListener listener) {
+        this(k, DEFAULT_RING_CAPACITY, platformThreads(), policy, listener);
+    }
+
+    /**
+     * Constructor - creates a tree bounded to k elements and the ring, and sets the factory of the readers and the
+     * policy and listener of the checkpoints.
+     *
+     * @param k the number of lowest elements to keep
+     * @param ringCapacity the number of slots in the ring (rounded up to a power of 2)
+     * @param threadFactory the factory of the reader threads
+     * @param policy the policy that decides when checkpoints are reported
+     * @param listener the receiver of the k lowest elements at each checkpoint (called by the writer thread)
+     */
+    public IngestionPipeline(int k, int ringCapacity, ThreadFactory threadFactory, CheckpointPolicy policy,
+                             CheckpointListener listener) {
+        _tree = new RBTreePlus(k, true);
+        _ring = new IntRingBuffer(ringCapacity);
+        _threadFactory = threadFactory;
+        _policy = policy;
+        _listener = listener;
+        _position = 0;
+        _lastCheckpointPosition = -1;
+        _activeReaders = new AtomicInteger();
+        _failure = new AtomicReference<>();
+    }
+
+    /**
+     * Returns a factory of daemon platform threads named "ingestion-reader-N".
+     *
+     * @return the factory
+     */
+    public static ThreadFactory platformThreads(){
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-reader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Getters for the number of values drained so far, the number of values waiting in the ring, the number of
+    // slots in the ring and the number of times a reader waited because the ring was full
+    public long getPosition() {
+        return _position;
+    }
+
+    public int getQueueDepth() {
+        return _ring.size();
+    }
+
+    public int getRingCapacity() {
+        return _ring.getCapacity();
+    }
+
+    public long getBackpressureWaits() {
+        return _ring.getFullWaits();
+    }
+
+    /**
+     * Returns the number of values drained per second since the run started (0 before it started).
+     *
+     * @return the throughput
+     */
+    public double getThroughput(){
+        long startNanos = _startNanos;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsedNanos <= 0 ? 0 : _position * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Runs the pipeline over the sources - starts a reader thread for every source, drains the ring on the calling
+     * thread until all the sources ended, and reports a checkpoint at the end. A pipeline runs once. The sources aren't
+     * closed (unless a reader fails, see below).
+     * If a reader fails, the ring and all the sources are closed (to stop the other readers, which may be blocked in
+     * a read or waiting for free slots), and the failure is thrown after all the readers finished.
+     * Time complexity: Θ(mlogk) for the writer, where m is the total number of values of the sources.
+     *
+     * @param sources the sources
+     * @throws IOException if a source can't be read, or ended in the middle of a value
+     */
+    public void run(List<? extends ReadableByteChannel> sources) throws IOException {
+        if (_startNanos != 0){
+            throw new IllegalStateException("The pipeline already ran");
+        }
+        _startNanos = System.nanoTime();
+        _sources = new ArrayList<>(sources);
+        _activeReaders.set(_sources.size());
+        List<Thread> readers = new ArrayList<>();
+        boolean drained = false;
+        try {
+            for (ReadableByteChannel source : _sources){
+                Thread reader = _threadFactory.newThread(() -> read(source));
+                readers.add(reader);
+                reader.start();
+            }
+            drain();
+            drained = true;
+        } finally {
+            if (!drained){ // the writer failed - stop the readers
+                stop();
+            }
+            awaitReaders(readers);
+        }
+        Throwable failure = _failure.get();
+        if (failure instanceof IOException){
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException){
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error){
+            throw (Error) failure;
+        } else if (failure != null){
+            throw new IOException(failure);
+        }
+        checkpoint();
+    }
+
+    /**
+     * Reports the k lowest values drained so far to the listener (unless they were already reported at the current
+     * position). Called by the writer thread.
+     * Time complexity: Θ(k).
+     */
+    private void checkpoint(){
+        if (_position != _lastCheckpointPosition){
+            _lastCheckpointPosition = _position;
+            _policy.checkpointReported(_position);
+            _listener.onCheckpoint(_position, _tree.toSortedArray());
+        }
+    }
+
+    /**
+     * The loop of the writer - drains the ring and offers the values to the tree until all the readers finished and
+     * the ring is empty, or a reader failed.
+     * Time complexity: Θ(mlogk), where m is the number of values drained.
+     */
+    private void drain(){
+        int[] values = new int[Math.min(_ring.getCapacity(), BATCH_SIZE)];
+        int idle = 0;
+        while (_failure.get() == null){
+            boolean finished = _activeReaders.get() == 0; // read before the drain, so no value is missed
+            int count = _ring.drain(values);
+            if (count > 0){
+                offerAll(values, count);
+                idle = 0;
+            } else if (finished){
+                return;
+            } else {
+                IntRingBuffer.idle(++idle);
+            }
+        }
+    }
+
+    /**
+     * Offers a batch of drained values to the tree, and reports the checkpoints that the policy decides on inside
+     * the batch (the values up to each checkpoint are offered before it's reported).
+     * Time complexity: Θ(mlogk), where m is the number of values.
+     *
+     * @param values the values
+     * @param count the number of values
+     */
+    private void offerAll(int[] values, int count){
+        long position = _position;
+        int from = 0;
+        for (int i = 0; i < count; i++){
+            position++;
+            if (_policy.isDue(position)){
+                _tree.offerAll(values, from, i + 1);
+                from = i + 1;
+                _position = position;
+                checkpoint();
+            }
+        }
+        _tree.offerAll(values, from, count);
+        _position = position;
+    }
+
+    /**
+     * The loop of a reader - reads the source until it ends, and puts the complete values of each read into the ring.
+     *
+     * @param source the source
+     */
+    private void read(ReadableByteChannel source){
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(4 * BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int[] batch = new int[BATCH_SIZE];
+            while (source.read(buffer) >= 0){
+                buffer.flip();
+                int count = buffer.remaining() / 4; // a value split between two reads is completed by the next read
+                buffer.asIntBuffer().get(batch, 0, count); // the view has the byte order of the buffer
+                buffer.position(4 * count);
+                buffer.compact();
+                if (count > 0 && !_ring.put(batch, 0, count)){ // the ring was closed after a failure
+                    return;
+                }
+            }
+            if (buffer.position() != 0){
+                throw new IOException("A source ended in the middle of a value (" + buffer.position() + " bytes)");
+            }
+        } catch (Throwable e){
+            if (_failure.compareAndSet(null, e)){
+                stop();
+            }
+        } finally {
+            _activeReaders.decrementAndGet();
+        }
+    }
+
+    /**
+     * Closes the ring and the sources, so the readers that wait for free slots or are blocked in a read stop.
+     */
+    private void stop(){
+        _ring.close();
+        for (ReadableByteChannel source : _sources){
+            try {
+                source.close();
+            } catch (IOException e){
+                // the source is closed anyway, and the failure that stopped the run is reported
+            }
+        }
+    }
+
+    // Waits for the reader threads to finish
+    private static void awaitReaders(List<Thread> readers){
+        boolean interrupted = false;
+        for (Thread reader : readers){
+            while (reader.isAlive()){
+                try {
+                    reader.join();
+                } catch (InterruptedException e){
+                    interrupted = true; // the readers must finish before run returns
+                }
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
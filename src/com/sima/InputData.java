@@ -1,10 +1,19 @@
 package com.sima;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Random;
 
 /**
  * This class represents the input data required for the KLowest algorithm - n, k, array with random numbers
- * (integers between 0-1023) and 4 checkpoints.
+ * (integers between 0-1023, or in a range declared by the caller) and 4 checkpoints.
+ * The elements can also be read from a binary file of little-endian 32-bit integers. The file is memory-mapped
+ * (in regions of up to 2^28 elements, so files beyond 2 GB are supported) and read through IntBuffer views, so no
+ * array is created and the heap memory used doesn't depend on n.
  *
  * @author Sima Margulis Davidi
  * @version 30-07-2017
@@ -12,24 +21,101 @@ import java.util.Random;
 
 public class InputData {
 
-    // Instance variables - 4 checkpoints, array, n and k
+    // The range of the random numbers when the caller doesn't declare one
+    private static final int DEFAULT_MIN_VALUE = 0;
+    private static final int DEFAULT_MAX_VALUE = 1023;
+
+    // The max. number of elements in a memory-mapped region of a file (a region is at most 1 GB)
+    public static final int MAX_REGION_ELEMENTS = 1 << 28;
+
+    // Instance variables - 4 checkpoints, array, n, k, the regions of the elements (views of the array or of the
+    // mapped file) and the range of the values (if declared by the caller)
     private int _checkpointN1, _checkpointN2, _checkpointN3, _checkpointN4, _k, _n;
     private int[] _array;
+    private IntBuffer[] _regions;
+    private int _minValue, _maxValue;
+    private boolean _valueRangeDeclared;
 
     /** Constructor - sets n and k to the input values, sets checkpoints and creates an array filled with
-     *  random numbers, by using a method called createRandomArray.
+     *  random numbers, by using a method called createRandomArray (the array is printed only by printArray).
      *
      * @param n the number of elements in the array
      * @param k the number of elements in my chosen data structure
      */
     public InputData(int n, int k) {
+        this(n, k, DEFAULT_MIN_VALUE, DEFAULT_MAX_VALUE, false);
+    }
+
+    /** Constructor - same as InputData(n, k), but the random numbers are between minValue and maxValue, and the range
+     *  is declared to the algorithm (which allows KLowest to use a data structure for bounded values, if the range
+     *  has at most HistogramKLowest.MAX_RANGE values). Any range of int values can be declared.
+     *
+     * @param n the number of elements in the array
+     * @param k the number of elements in my chosen data structure
+     * @param minValue the lowest value in the array
+     * @param maxValue the highest value in the array
+     */
+    public InputData(int n, int k, int minValue, int maxValue) {
+        this(n, k, minValue, maxValue, true);
+    }
+
+    // Common constructor - sets all instance variables and creates the random array
+    private InputData(int n, int k, int minValue, int maxValue, boolean valueRangeDeclared) {
+        if (minValue > maxValue){
+            throw new IllegalArgumentException("Invalid value range: [" + minValue + ", " + maxValue + "]");
+        }
+        setNAndK(n, k);
+        _minValue = minValue;
+        _maxValue = maxValue;
+        _valueRangeDeclared = valueRangeDeclared;
+        _array = createRandomArray(n);
+        _regions = new IntBuffer[] {IntBuffer.wrap(_array)};
+    }
+
+    /** Constructor - memory-maps a binary file of little-endian 32-bit integers (n is the number of integers in the
+     *  file), sets k and the checkpoints. The elements aren't copied into an array (getArray returns null) and
+     *  aren't printed.
+     *
+     * @param file the input file
+     * @param k the number of elements in my chosen data structure
+     * @throws IOException if the file can't be mapped, its size isn't a multiple of 4 bytes (a truncated or
+     *         misaligned file) or it has more than Integer.MAX_VALUE elements
+     */
+    public InputData(File file, int k) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % 4 != 0){
+                throw new IOException("Invalid size of an input file " + file + ": " + size + " bytes (not a whole "
+                        + "number of 32-bit integers)");
+            }
+            long elements = size / 4;
+            if (elements > Integer.MAX_VALUE){
+                throw new IOException("Too many elements in " + file + ": " + elements);
+            }
+            int n = (int) elements;
+            setNAndK(n, k);
+            _array = null;
+            _regions = new IntBuffer[(int) (((long) n + MAX_REGION_ELEMENTS - 1) / MAX_REGION_ELEMENTS)];
+            for (int r = 0; r < _regions.length; r++){ // map each region and view it as little-endian integers
+                long first = (long) r * MAX_REGION_ELEMENTS;
+                long regionElements = Math.min(MAX_REGION_ELEMENTS, n - first);
+                _regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, 4 * first, 4 * regionElements)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+        } // the mappings remain valid after the channel is closed
+        _minValue = Integer.MIN_VALUE;
+        _maxValue = Integer.MAX_VALUE;
+        _valueRangeDeclared = false;
+    }
+
+    // Sets n, k and the checkpoints (computed in long to avoid an overflow for a large n)
+    private void setNAndK(int n, int k){
         _n = n;
         _k = k;
         _checkpointN1 = n / 4;
         _checkpointN2 = n / 2;
-        _checkpointN3 = 3 * n / 4;
+        _checkpointN3 = (int) (3L * n / 4);
         _checkpointN4 = n;
-        _array = createRandomArray(n);
     }
 
     // Getters for all instance variables
@@ -45,6 +131,20 @@ public class InputData {
         return _array;
     }
 
+    public IntBuffer[] getRegions() {
+        return _regions;
+    }
+
+    /**
+     * Returns the number of elements in each region (except for the last one, which may have less elements) - the
+     * element at index i is at index i % regionSize of region i / regionSize.
+     *
+     * @return the number of elements in each region
+     */
+    public int getRegionSize() {
+        return _array != null ? Math.max(_n, 1) : MAX_REGION_ELEMENTS;
+    }
+
     public int getCheckpointN1() {
         return _checkpointN1;
     }
@@ -61,9 +161,40 @@ public class InputData {
         return _checkpointN4;
     }
 
+    public int getMinValue() {
+        return _minValue;
+    }
+
+    public int getMaxValue() {
+        return _maxValue;
+    }
+
+    public boolean isValueRangeDeclared() {
+        return _valueRangeDeclared;
+    }
+
+    /**
+     * Prints the elements (25 elements per line) to the standard output.
+     * Time complexity: Θ(n).
+     */
+    public void printArray(){
+        printArray(CheckpointWriter.toStandardOutput());
+    }
+
+    /**
+     * Writes the elements with the given writer (and flushes it).
+     * Time complexity: Θ(n).
+     *
+     * @param writer the writer
+     */
+    public void printArray(CheckpointWriter writer){
+        writer.writeInputArray(_regions, _n);
+        writer.flush();
+    }
+
     /**
-     * Creates an array filled with random numbers between 0 and 1023, as requested in the assignment.
-     * Prints the array during the creation process (prints 25 elements per line).
+     * Creates an array filled with random numbers between 0 and 1023, as requested in the assignment (or between
+     * the min. and max. values declared by the caller). The array isn't printed (see printArray).
      * For this method integer numbers where chosen, which increases the probability of multiple elements in the array
      * with the same key. Therefore, it will work in a similar way for floating point numbers (after a small modification).
      * Time complexity: Θ(n), where n is the total number of elements in the array (passes once over the array elements).
@@ -73,21 +204,18 @@ public class InputData {
      */
     private int[] createRandomArray(int size){
         Random random = new Random();
+        long range = (long) _maxValue - _minValue + 1;
         int[] arr = new int[size];
-        System.out.println("Input array (n=" + size + "):");
         for (int i = 0; i < size; i++){
-            arr[i] = random.nextInt(1024); // set a random number in index i of the array
-            // print the element in index i
-            if (i == size - 1){
-                System.out.print(arr[i]);
-            } else {
-                System.out.print(arr[i] + ",");
-                if ((i+1) % 25 == 0){
-                    System.out.println("");
-                }
+            // set a random number in index i of the array
+            if (range <= Integer.MAX_VALUE){
+                arr[i] = _minValue + random.nextInt((int) range);
+            } else { // a range wider than the positive integers - draw until the number is in the range
+                do {
+                    arr[i] = random.nextInt();
+                } while (arr[i] < _minValue || arr[i] > _maxValue);
             }
         }
-        System.out.println("");
         return arr;
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.sima;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class represents a bounded multi-producer single-consumer queue of int values in a preallocated ring of
+ * primitive slots (used by IngestionPipeline).
+ * Every value has a sequence number - the number of values put before it. A producer claims a range of free slots by
+ * a compare-and-set of the tail sequence, writes its values into them and then marks each slot as available with the
+ * lap of its sequence (the sequence divided by the capacity), so producers never wait for each other and the
+ * consumer never reads a slot before its value is written. The consumer takes the available values from the head
+ * sequence on, and publishes the new head, which frees the slots for the producers.
+ * When the ring is full, a producer waits (yields briefly and then parks) until the consumer frees slots - the
+ * backpressure that slows fast sources down to the speed of the consumer.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+class IntRingBuffer {
+
+    // The number of times a waiting thread yields before it parks, and the time it parks (in nanoseconds)
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 20000;
+
+    // Instance variables - the slots, the lap in which each slot was written (-1 before the first lap), the mask of a
+    // slot index, the number of bits of the capacity, the next sequence to claim (tail) and to take (head), whether
+    // the buffer was closed and the number of times a producer waited for free slots
+    private final int[] _slots;
+    private final AtomicIntegerArray _laps;
+    private final int _mask, _shift;
+    private final AtomicLong _tail;
+    private volatile long _head;
+    private volatile boolean _closed;
+    private final AtomicLong _fullWaits;
+
+    /**
+     * Constructor - allocates the slots.
+     *
+     * @param capacity the number of slots (rounded up to a power of 2)
+     */
+    IntRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30){
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        _slots = new int[slots];
+        _laps = new AtomicIntegerArray(slots);
+        for (int i = 0; i < slots; i++){
+            _laps.set(i, -1);
+        }
+        _mask = slots - 1;
+        _shift = Integer.numberOfTrailingZeros(slots);
+        _tail = new AtomicLong();
+        _head = 0;
+        _closed = false;
+        _fullWaits = new AtomicLong();
+    }
+
+    // Getters for the capacity, the number of values in the buffer (approximate while it's used) and the number of
+    // times a producer waited because the buffer was full
+    int getCapacity() {
+        return _slots.length;
+    }
+
+    int size() {
+        return (int) (_tail.get() - _head);
+    }
+
+    long getFullWaits() {
+        return _fullWaits.get();
+    }
+
+    /**
+     * Closes the buffer - producers that wait for free slots, and later puts, return false. Can be called from any
+     * thread.
+     */
+    void close(){
+        _closed = true;
+    }
+
+    /**
+     * Puts values into the buffer, waiting for free slots while it's full. The values may be split between several
+     * claims, so the values of other producers may be taken between them. Can be called by any number of threads.
+     * Time complexity: Θ(m), where m is the number of values (plus the waiting time).
+     *
+     * @param values the array of the values
+     * @param from the index of the first value
+     * @param to the index after the last value
+     * @return true if all the values were put, false if the buffer was closed
+     */
+    boolean put(int[] values, int from, int to){
+        int waits = 0;
+        while (from < to){
+            if (_closed){
+                return false;
+            }
+            long tail = _tail.get();
+            int free = _slots.length - (int) (tail - _head);
+            if (free == 0){ // backpressure - wait for the consumer
+                if (waits++ == 0){
+                    _fullWaits.incrementAndGet();
+                }
+                idle(waits);
+                continue;
+            }
+            int count = Math.min(free, to - from);
+            if (!_tail.compareAndSet(tail, tail + count)){ // another producer claimed the slots
+                continue;
+            }
+            waits = 0;
+            for (int i = 0; i < count; i++){
+                long sequence = tail + i;
+                int slot = (int) sequence & _mask;
+                _slots[slot] = values[from + i];
+                _laps.lazySet(slot, (int) (sequence >>> _shift)); // publishes the value (ordered after the write)
+            }
+            from += count;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the available values (up to the size of the array) from the head of the buffer. Must be called by a
+     * single thread.
+     * Time complexity: Θ(m), where m is the number of values taken.
+     *
+     * @param values the array into which the values are copied
+     * @return the number of values taken (0 if no value is available)
+     */
+    int drain(int[] values){
+        long head = _head;
+        int count = 0;
+        while (count < values.length){
+            long sequence = head + count;
+            int slot = (int) sequence & _mask;
+            if (_laps.get(slot) != (int) (sequence >>> _shift)){ // not written yet
+                break;
+            }
+            values[count++] = _slots[slot];
+        }
+        if (count > 0){
+            _head = head + count; // frees the slots
+        }
+        return count;
+    }
+
+    /**
+     * Waits a little - yields for the first attempts and then parks.
+     *
+     * @param attempt the number of attempts so far (1 for the first)
+     */
+    static void idle(int attempt){
+        if (attempt < YIELDS){
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
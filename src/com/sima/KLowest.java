@@ -1,10 +1,37 @@
 package com.sima;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * This class represents the algorithm for the assignment.
- * The algorithm passes over the array once and prints the k lowest elements encountered up to checkpoints
- * 1, 2, 3 and 4 (4th point is the end of the array).
- * The algorithm uses the RBTreePlus data structure for storing the k lowest elements checked so far.
+ * The algorithm passes over the array (or the memory-mapped file) once and prints the k lowest elements encountered
+ * up to checkpoints 1, 2, 3 and 4 (4th point is the end of the array).
+ * The algorithm uses the RBTreePlus data structure for storing the k lowest elements checked so far (or the
+ * array-backed RBTreePlusArray, which doesn't allocate a node per insertion). If the input declares a small range
+ * of values, the algorithm uses HistogramKLowest instead, which counts the occurrences of each value. To let the
+ * algorithm choose between a sorted array, a heap and RBTreePlus while it runs, see runAdaptive.
+ * The algorithm can also run in parallel (see runParallel), in which case parts of the array are passed over by
+ * fork-join tasks (KLowestTask) and their k lowest elements are merged.
+ * For a source of unknown length or other checkpoints, see StreamingKLowest. For the k lowest elements of the last
+ * elements only, see runWindow. To write the checkpoints without stopping the pass over the array, see runPersistent.
+ * To save the state at every checkpoint and resume a stopped run from its last checkpoint, see runResumable. For
+ * elements that come from several blocking sources instead of an array, see runSources. To publish only the changes
+ * of the k lowest elements between checkpoints, see runDeltas. To change k between checkpoints, see runResizable.
+ * The k lowest elements are copied into a reusable array at each checkpoint and written by a CheckpointWriter.
+ * For long, double or object elements, see KLowestLong, KLowestDouble and KLowestObj (generated from the templates in
+ * tools/template).
  *
  * @author Sima Margulis Davidi
  * @version 30-07-2017
@@ -12,57 +39,520 @@ package com.sima;
 
 public class KLowest {
 
+    // Instance variables - whether the k lowest elements are kept in RBTreePlusArray instead of RBTreePlus, and the
+    // writer of the checkpoints
+    private boolean _arrayStorage;
+    private CheckpointWriter _writer;
+
+    /**
+     * Constructor - creates an algorithm that keeps the k lowest elements in RBTreePlus.
+     */
+    public KLowest() {
+        this(false);
+    }
+
+    /**
+     * Constructor - creates an algorithm that keeps the k lowest elements in RBTreePlusArray if arrayStorage is true,
+     * or in RBTreePlus otherwise, and writes the checkpoints to the standard output.
+     *
+     * @param arrayStorage whether to use the array-backed tree
+     */
+    public KLowest(boolean arrayStorage) {
+        this(arrayStorage, CheckpointWriter.toStandardOutput());
+    }
+
+    /**
+     * Constructor - same as KLowest(arrayStorage), but writes the checkpoints with the given writer.
+     *
+     * @param arrayStorage whether to use the array-backed tree
+     * @param writer the writer of the checkpoints (flushed at the end of each run)
+     */
+    public KLowest(boolean arrayStorage, CheckpointWriter writer) {
+        _arrayStorage = arrayStorage;
+        _writer = writer;
+    }
+
     /**
      * Runs the algorithm. Receives the InputData (object which contains n, k, array with random numbers
      * (integers between 0-1023) and 4 checkpoints), passes over the array once and prints the k lowest elements
      * encountered up to checkpoints 1, 2, 3 and 4.
-     * Uses replaceNode method if the RBTreePlus structure has k (lowest) elements to replace the node that has the
-     * max. key with a new node with smaller key.
-     * Time complexity: Θ(n), where n is the total number of elements in the array (passes once over the array elements).
+     * Offers every element to a tree bounded to k elements - the tree inserts the element while it has less than k
+     * elements, and afterwards rejects it or uses it to replace the node that has the max. key. The elements between
+     * two checkpoints are offered as a batch (see RBTreePlus.offerAll), which filters out the elements that aren't
+     * smaller than the max. key before they reach the tree. The tree is a multiset (a node per distinct value, with its
+     * number of occurrences), so for random numbers between 0-1023 it has at most 1024 nodes however large k is, and an
+     * element that is already in the tree is added without rebalancing.
+     * If the input declares a small range of values (see HistogramKLowest.fits), the occurrences of each value are
+     * counted instead. A declared range of more than HistogramKLowest.MAX_RANGE values is passed over with the tree like
+     * an undeclared one, since the trees accept every int value (the minimum integer value as well).
+     * When TreeStats is enabled, a JFR CheckpointEvent with the work done by the tree is committed at each checkpoint
+     * (if the optional jfr module is on the class path).
+     * Time complexity: Θ(nlogk), where n is the total number of elements in the array (passes once over the array
+     * elements, Θ(logk) for each offer), or Θ(n) if the input declares a small range of values.
      *
      * @param input the input data
      */
     public void run(InputData input){
-        int[] array = input.getArray();
-        RBTreePlus tree = new RBTreePlus();
+        if (input.isValueRangeDeclared() && HistogramKLowest.fits(input.getMinValue(), input.getMaxValue())){
+            runHistogram(input);
+            return;
+        }
+        if (_arrayStorage){
+            runArrayStorage(input);
+            return;
+        }
+        run(input, new int[] {input.getK()});
+    }
+
+    /**
+     * Runs the algorithm for several values of k in a single pass (instead of a pass for each k) - passes over the array
+     * once with a tree bounded to the largest k, and prints the k lowest elements up to each checkpoint for every k in
+     * the given order. The k lowest elements for a smaller k are the first k keys of the walk from the min. key of the
+     * tree (RBTreePlus.copyKeys, which moves from each node to its successor), so the walk is done once per checkpoint
+     * for all the values of k. The k of the input isn't used.
+     * Time complexity: Θ(nlogK), where n is the total number of elements in the array and K is the largest k, and Θ(K + s)
+     * for each checkpoint, where s is the sum of the values of k.
+     *
+     * @param input the input data
+     * @param kValues the values of k (positive)
+     */
+    public void run(InputData input, int[] kValues){
+        if (kValues.length == 0){
+            throw new IllegalArgumentException("No values of k");
+        }
+        int maxK = 0;
+        for (int k : kValues){
+            if (k <= 0){
+                throw new IllegalArgumentException("Invalid k: " + k);
+            }
+            maxK = Math.max(maxK, k);
+        }
+        RBTreePlus tree = new RBTreePlus(maxK, true); // a node per distinct value
+        int[] kLowest = new int[Math.min(maxK, input.getN())]; // reused at every checkpoint
+        int[] checkpoints = distinctCheckpoints(input);
+        int checkpointsCount = 0;
+        int regionStart = 0; // the index in the input of the first element of the region
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            int j = 0;
+            while (j < region.limit()){
+                // offer the elements up to the next checkpoint (or the end of the region) as a batch
+                int end = (int) Math.min(region.limit(), (long) checkpoints[checkpointsCount] - regionStart);
+                tree.offerAll(region, j, end);
+                j = end;
+                if (regionStart + j == checkpoints[checkpointsCount]){
+                    // if checkpoint is reached - print k lowest elements up to this point for every k
+                    checkpointsCount++;
+                    int count = tree.copyKeys(kLowest);
+                    for (int k : kValues){
+                        _writer.writeCheckpoint(k, checkpointsCount, kLowest, Math.min(k, count));
+                    }
+                    if (TreeStats.ENABLED){
+                        TreeStats.commitCheckpoint(maxK, checkpointsCount, tree.getNumOfElements());
+                    }
+                }
+            }
+            regionStart += region.limit();
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, but with a k that changes between checkpoints - the k lowest
+     * elements of checkpoint c are printed for the k of kValues[c-1], and k is changed right after the previous
+     * checkpoint (so the elements between the checkpoints are offered with the new k). The elements are kept in a
+     * ResizableKLowest, which changes k by splitting and joining trees in Θ(logk), and keeps up to reservoirSize
+     * elements that didn't fit, so the elements printed after k grows are exact as long as the growth is covered by
+     * the reservoir (see ResizableKLowest.isExact).
+     * Time complexity: Θ(n(logK + logr)), where n is the total number of elements in the array, K is the largest k
+     * and r is the size of the reservoir, and Θ(logK + logr) for each change of k.
+     *
+     * @param input the input data
+     * @param kValues the k of each checkpoint (non-negative, one for each distinct checkpoint)
+     * @param reservoirSize the max. number of elements kept in the reservoir
+     */
+    public void runResizable(InputData input, int[] kValues, int reservoirSize){
+        int[] checkpoints = distinctCheckpoints(input);
+        if (kValues.length != checkpoints.length){
+            throw new IllegalArgumentException("Expected " + checkpoints.length + " values of k, got " +
+                    kValues.length);
+        }
+        int maxK = 0;
+        for (int k : kValues){
+            if (k < 0){
+                throw new IllegalArgumentException("Invalid k: " + k);
+            }
+            maxK = Math.max(maxK, k);
+        }
+        ResizableKLowest kLowestElements = new ResizableKLowest(kValues.length > 0 ? kValues[0] : 0, reservoirSize);
+        int[] kLowest = new int[Math.min(maxK, input.getN())]; // reused at every checkpoint
+        int checkpointsCount = 0;
+        int regionStart = 0; // the index in the input of the first element of the region
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            int j = 0;
+            while (j < region.limit()){
+                // offer the elements up to the next checkpoint (or the end of the region) as a batch
+                int end = (int) Math.min(region.limit(), (long) checkpoints[checkpointsCount] - regionStart);
+                kLowestElements.offerAll(region, j, end);
+                j = end;
+                if (regionStart + j == checkpoints[checkpointsCount]){
+                    // if checkpoint is reached - print k lowest elements up to this point, and change k for the next
+                    checkpointsCount++;
+                    _writer.writeCheckpoint(kLowestElements.getK(), checkpointsCount, kLowest,
+                            kLowestElements.copyKeys(kLowest));
+                    if (checkpointsCount < kValues.length){
+                        kLowestElements.resize(kValues[checkpointsCount]);
+                    }
+                }
+            }
+            regionStart += region.limit();
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, and saves its state (the tree, the position and the number of
+     * checkpoints written) to a file after each checkpoint is written. If the file exists when the run starts, the
+     * state is restored from it and the run resumes after the last checkpoint it saved - the elements before it aren't
+     * offered again and the checkpoints before it aren't written again. The state is restored in Θ(k) (see
+     * KLowestState).
+     * Time complexity: Θ(mlogk), where m is the number of elements after the restored position, and Θ(k) for saving
+     * the state at each checkpoint.
+     *
+     * @param input the input data (the same input as the run that saved the state)
+     * @param stateFile the file of the state
+     * @throws IOException if the state can't be saved or restored, or was saved by a run with another k or input
+     */
+    public void runResumable(InputData input, File stateFile) throws IOException {
+        int k = input.getK();
+        RBTreePlus tree;
+        long position;
+        int checkpointsCount;
+        if (stateFile.exists()){ // resume from the last saved checkpoint
+            KLowestState state = KLowestState.load(stateFile);
+            tree = state.getTree();
+            position = state.getPosition();
+            checkpointsCount = state.getCheckpointsCount();
+            if (tree.getCapacity() != k || position > input.getN()){
+                throw new IOException("The state in " + stateFile + " was saved by another run (k = " +
+                        tree.getCapacity() + ", position " + position + ")");
+            }
+        } else {
+            tree = new RBTreePlus(k, true); // a node per distinct value, as in run
+            position = 0;
+            checkpointsCount = 0;
+        }
+        int[] kLowest = new int[Math.min(k, input.getN())]; // reused at every checkpoint
+        int[] checkpoints = distinctCheckpoints(input);
+        int regionStart = 0; // the index in the input of the first element of the region
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            int j = (int) Math.min(region.limit(), Math.max(0, position - regionStart)); // skip the offered elements
+            while (j < region.limit()){
+                // offer the elements up to the next checkpoint (or the end of the region) as a batch
+                int end = (int) Math.min(region.limit(), (long) checkpoints[checkpointsCount] - regionStart);
+                tree.offerAll(region, j, end);
+                j = end;
+                if (regionStart + j == checkpoints[checkpointsCount]){
+                    // if checkpoint is reached - print k lowest elements up to this point, and then save the state
+                    checkpointsCount++;
+                    _writer.writeCheckpoint(k, checkpointsCount, kLowest, tree.copyKeys(kLowest));
+                    _writer.flush(); // the checkpoint is written before the state that skips it is saved
+                    new KLowestState(tree, regionStart + j, checkpointsCount).save(stateFile);
+                }
+            }
+            regionStart += region.limit();
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, but keeps the k lowest elements in RBTreePlusArray. The tree's arrays
+     * are allocated once with room for k elements, so passing over the array doesn't allocate any memory.
+     * Time complexity: Θ(nlogk), where n is the total number of elements in the array.
+     *
+     * @param input the input data
+     */
+    private void runArrayStorage(InputData input){
+        RBTreePlusArray tree = new RBTreePlusArray(input.getK());
+        int[] kLowest = new int[Math.min(input.getK(), input.getN())]; // reused at every checkpoint
+        int checkpointsCount = 0;
+        int i = 0; // the index of the element in the input
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            for (int j = 0; j < region.limit(); j++, i++){
+                tree.offer(region.get(j));
+                if (isCheckpoint(input, i)){
+                    // if checkpoint is reached - print k lowest elements up to this point
+                    checkpointsCount++;
+                    _writer.writeCheckpoint(input.getK(), checkpointsCount, kLowest, tree.copyKeys(kLowest));
+                }
+            }
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, but keeps the k lowest elements in AdaptiveKLowest, which chooses
+     * between a sorted array, a heap and RBTreePlus by k and by the rate of elements kept, and switches between them
+     * if the rate changes while the array is passed over.
+     * Time complexity: Θ(nlogk), where n is the total number of elements in the array (Θ(k) for a kept element of a
+     * small k, whose sorted array is moved by a memory copy).
+     *
+     * @param input the input data
+     */
+    public void runAdaptive(InputData input){
+        AdaptiveKLowest kLowestElements = new AdaptiveKLowest(input.getK());
+        int[] kLowest = new int[Math.min(input.getK(), input.getN())]; // reused at every checkpoint
+        int checkpointsCount = 0;
+        int i = 0; // the index of the element in the input
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            for (int j = 0; j < region.limit(); j++, i++){
+                kLowestElements.offer(region.get(j));
+                if (isCheckpoint(input, i)){
+                    // if checkpoint is reached - print k lowest elements up to this point
+                    checkpointsCount++;
+                    _writer.writeCheckpoint(input.getK(), checkpointsCount, kLowest,
+                            kLowestElements.copyKeys(kLowest));
+                }
+            }
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, but keeps the k lowest elements in HistogramKLowest (used when the
+     * input declares a small range of values).
+     * Time complexity: Θ(n + r), where n is the total number of elements in the array and r is the size of the range
+     * (Θ(1) amortized for each offer, Θ(r + k) for each checkpoint).
+     *
+     * @param input the input data
+     */
+    private void runHistogram(InputData input){
+        HistogramKLowest histogram = new HistogramKLowest(input.getK(), input.getMinValue(), input.getMaxValue());
+        int[] kLowest = new int[Math.min(input.getK(), input.getN())]; // reused at every checkpoint
+        int checkpointsCount = 0;
+        int i = 0; // the index of the element in the input
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            for (int j = 0; j < region.limit(); j++, i++){
+                histogram.offer(region.get(j));
+                if (isCheckpoint(input, i)){
+                    // if checkpoint is reached - print k lowest elements up to this point
+                    checkpointsCount++;
+                    _writer.writeCheckpoint(input.getK(), checkpointsCount, kLowest, histogram.copyKeys(kLowest));
+                }
+            }
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in parallel, and prints the same k lowest elements as run at each checkpoint.
+     * The array is divided into 4 segments by the checkpoints. The k lowest elements of each segment are found by a
+     * KLowestTask on the common fork-join pool (which splits the segment further), and the k lowest elements up to
+     * each checkpoint are the k lowest elements of the merge of the previous checkpoint and the segment.
+     * Time complexity: Θ(nlogk) work, where n is the total number of elements in the array, and Θ(k) for merging each
+     * segment.
+     *
+     * @param input the input data
+     */
+    public void runParallel(InputData input){
+        int[] checkpoints = {input.getCheckpointN1(), input.getCheckpointN2(), input.getCheckpointN3(),
+                input.getCheckpointN4()};
+        KLowestTask[] segments = new KLowestTask[checkpoints.length];
+        int from = 0;
+        for (int c = 0; c < checkpoints.length; c++){ // start a task for each segment
+            segments[c] = new KLowestTask(input.getRegions(), input.getRegionSize(), from, checkpoints[c],
+                    input.getK());
+            ForkJoinPool.commonPool().execute(segments[c]);
+            from = checkpoints[c];
+        }
+        int[] kLowest = new int[0];
         int checkpointsCount = 0;
-        for (int i=0; i < input.getN(); i++){
-            int elements = tree.getNumOfElements();
-            if (elements < input.getK()){ // if there are less than k elements - insert into the tree
-                tree.insert(array[i]);
-            } else { // if there are k elements - use replaceNode to handle max node replacement
-                replaceNode(tree, array[i]);
-            }
-            if (i == input.getCheckpointN1()-1 || i == input.getCheckpointN2()-1 || i == input.getCheckpointN3()-1 ||
-                    i == input.getCheckpointN4()-1){
-                // if checkpoint is reached - print k lowest elements up to this point
+        from = 0;
+        for (int c = 0; c < checkpoints.length; c++){
+            kLowest = KLowestTask.mergeLowest(kLowest, segments[c].join(), input.getK());
+            if (checkpoints[c] > from){ // an empty segment is the same checkpoint as the previous one
+                // print k lowest elements up to this checkpoint
                 checkpointsCount++;
-                System.out.println("\n" + input.getK() + " lowest elements in check point " + checkpointsCount + ":");
-                tree.printKMin();
+                _writer.writeCheckpoint(input.getK(), checkpointsCount, kLowest, kLowest.length);
             }
+            from = checkpoints[c];
         }
+        _writer.flush();
     }
 
     /**
-     * Handles max key node replacement, if the input key is smaller than max key. (Does nothing if the input key
-     * is not smaller than max key.)
-     * Time complexity: Θ(logk), where k is the total number of elements in the tree. (Θ(logk) for delete(RBTreePlusNode) +
-     *  + Θ(1) for setMax(RBTreePlusNode) + Θ(logk) for insert(RBTreePlusNode))
+     * Runs the algorithm in the same way as run, but keeps the k lowest elements in PersistentRBTreePlus, and writes the
+     * checkpoints on a separate reporting thread. At each checkpoint a snapshot of the tree is taken in Θ(1) and handed
+     * to the reporting thread, which copies and writes it while the elements after the checkpoint are offered to the
+     * live tree. The snapshots are written in the order of the checkpoints, and the run returns after all of them were
+     * written.
+     * Time complexity: Θ(nlogk), where n is the total number of elements in the array (the Θ(k) walk of each checkpoint
+     * is done by the reporting thread).
      *
-     * @param tree the input tree on which replacement occurs
-     * @param key the key to be inserted to the tree instead of the max node if it's smaller than max key
+     * @param input the input data
      */
-    private void replaceNode(RBTreePlus tree, int key){
-        RBTreePlusNode maxNode = tree.getMaxNode();
-        if (key < maxNode.getKey()){
-            RBTreePlusNode maxPredNode = tree.predecessor(maxNode); // used for the predecessor of the max node
-            if (key >= maxPredNode.getKey()){ // if key is the new maximum - changes the key of the max node
-                maxNode.setKey(key);
-            } else { // if key isn't the new maximum - deletes the max node and inserts key into the tree
-                tree.delete(maxNode);
-                tree.setMaxNode(maxPredNode);
-                tree.insert(key);
+    public void runPersistent(InputData input){
+        final int k = input.getK();
+        PersistentRBTreePlus tree = new PersistentRBTreePlus(k);
+        ExecutorService reporter = Executors.newSingleThreadExecutor(); // one thread, so the order is kept
+        List<Future<?>> reports = new ArrayList<>();
+        int checkpointsCount = 0;
+        int i = 0; // the index of the element in the input
+        try {
+            for (IntBuffer region : input.getRegions()){ // an array is a single region
+                for (int j = 0; j < region.limit(); j++, i++){
+                    tree.offer(region.get(j));
+                    if (isCheckpoint(input, i)){
+                        // if checkpoint is reached - write k lowest elements up to this point on the reporting thread
+                        checkpointsCount++;
+                        final int checkpoint = checkpointsCount;
+                        final PersistentRBTreePlus.Snapshot snapshot = tree.snapshot();
+                        reports.add(reporter.submit(() -> {
+                            int[] kLowest = snapshot.toSortedArray();
+                            _writer.writeCheckpoint(k, checkpoint, kLowest, kLowest.length);
+                        }));
+                    }
+                }
             }
+            for (Future<?> report : reports){ // wait for the reports (and rethrow their failures)
+                report.get();
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the checkpoints to be written", e);
+        } catch (ExecutionException e){
+            if (e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            reporter.shutdown();
         }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm over a sliding window - prints the k lowest elements of the last windowSize elements before
+     * each checkpoint (instead of all the elements up to the checkpoint), by SlidingWindowKLowest.
+     * Time complexity: Θ(nlogc) amortized, where n is the total number of elements in the array and c is the number
+     * of candidates kept by the window, and Θ(k + logc) for each checkpoint.
+     *
+     * @param input the input data
+     * @param windowSize the number of elements in the window
+     */
+    public void runWindow(InputData input, long windowSize){
+        SlidingWindowKLowest window = SlidingWindowKLowest.lastElements(input.getK(), windowSize);
+        int checkpointsCount = 0;
+        int i = 0; // the index of the element in the input
+        for (IntBuffer region : input.getRegions()){ // an array is a single region
+            for (int j = 0; j < region.limit(); j++, i++){
+                window.offer(region.get(j));
+                if (isCheckpoint(input, i)){
+                    // if checkpoint is reached - print k lowest elements of the window
+                    checkpointsCount++;
+                    int[] kLowest = window.kLowest();
+                    _writer.writeCheckpoint(input.getK(), checkpointsCount, kLowest, kLowest.length);
+                }
+            }
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Runs the algorithm in the same way as run, but instead of printing the k lowest elements at each checkpoint,
+     * publishes the net change since the previous checkpoint - the elements that entered the k lowest and the elements
+     * that were evicted from them (a TreeDelta, recorded by a KeyChangeRecorder) - so the work at a checkpoint depends
+     * on the churn and not on k. A subscriber rebuilds the k lowest elements by applying the deltas in order
+     * (TreeDelta.applyTo). The publisher is closed at the end (or closed exceptionally if the run fails).
+     * Time complexity: Θ(nlogk), where n is the total number of elements in the array, and Θ(clogc) for each
+     * checkpoint, where c is the number of changes since the previous checkpoint.
+     *
+     * @param input the input data
+     * @param publisher the publisher of the deltas
+     */
+    public void runDeltas(InputData input, DeltaPublisher publisher){
+        RBTreePlus tree = new RBTreePlus(input.getK(), true); // a node per distinct value, as in run
+        KeyChangeRecorder changes = new KeyChangeRecorder();
+        tree.setChangeRecorder(changes);
+        int[] checkpoints = distinctCheckpoints(input);
+        int checkpointsCount = 0;
+        int regionStart = 0; // the index in the input of the first element of the region
+        try {
+            for (IntBuffer region : input.getRegions()){ // an array is a single region
+                int j = 0;
+                while (j < region.limit()){
+                    // offer the elements up to the next checkpoint (or the end of the region) as a batch
+                    int end = (int) Math.min(region.limit(), (long) checkpoints[checkpointsCount] - regionStart);
+                    tree.offerAll(region, j, end);
+                    j = end;
+                    if (regionStart + j == checkpoints[checkpointsCount]){
+                        // if checkpoint is reached - publish the changes since the previous checkpoint
+                        checkpointsCount++;
+                        publisher.submit(changes.take(checkpointsCount));
+                    }
+                }
+                regionStart += region.limit();
+            }
+        } catch (RuntimeException | Error e){
+            publisher.closeExceptionally(e);
+            throw e;
+        }
+        publisher.close();
+    }
+
+    /**
+     * Runs the algorithm over elements that come from several blocking sources (channels of little-endian 32-bit
+     * integers), by an IngestionPipeline - every source is read by a thread of the given factory, and the calling
+     * thread offers the elements to the tree. Prints the k lowest elements at each checkpoint of the policy and at the
+     * end of the sources.
+     * Time complexity: Θ(nlogk), where n is the total number of elements of the sources.
+     *
+     * @param sources the sources
+     * @param k the number of lowest elements
+     * @param policy the policy that decides when checkpoints are printed (in addition to the end)
+     * @param threadFactory the factory of the reader threads (for example IngestionPipeline.platformThreads)
+     * @throws IOException if a source can't be read
+     */
+    public void runSources(List<? extends ReadableByteChannel> sources, final int k, CheckpointPolicy policy,
+                           ThreadFactory threadFactory) throws IOException {
+        final int[] checkpointsCount = {0};
+        CheckpointListener listener =
+                (position, kLowest) -> _writer.writeCheckpoint(k, ++checkpointsCount[0], kLowest, kLowest.length);
+        IngestionPipeline pipeline =
+                new IngestionPipeline(k, IngestionPipeline.DEFAULT_RING_CAPACITY, threadFactory, policy, listener);
+        pipeline.run(sources);
+        _writer.flush();
+    }
+
+    /**
+     * Returns the checkpoints that are reached by the algorithm, without repetitions, in ascending order (a
+     * checkpoint that is equal to the previous one, or 0, doesn't print anything).
+     *
+     * @param input the input data
+     * @return the distinct positive checkpoints
+     */
+    static int[] distinctCheckpoints(InputData input){
+        int[] checkpoints = {input.getCheckpointN1(), input.getCheckpointN2(), input.getCheckpointN3(),
+                input.getCheckpointN4()};
+        int count = 0;
+        int previous = 0;
+        for (int checkpoint : checkpoints){
+            if (checkpoint > previous){
+                checkpoints[count++] = checkpoint;
+                previous = checkpoint;
+            }
+        }
+        return Arrays.copyOf(checkpoints, count);
+    }
+
+    /**
+     * Checks whether an index is the last index before one of the 4 checkpoints.
+     *
+     * @param input the input data
+     * @param i the index of an element in the input
+     * @return true if the k lowest elements should be printed after the element at index i
+     */
+    private static boolean isCheckpoint(InputData input, int i){
+        return i == input.getCheckpointN1()-1 || i == input.getCheckpointN2()-1 || i == input.getCheckpointN3()-1 ||
+                i == input.getCheckpointN4()-1;
     }
-}
\ No newline at end of file
+}
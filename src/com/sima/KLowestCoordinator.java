@@ -0,0 +1,165 @@
+package com.sima;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a run of the KLowest algorithm over a binary input file by several worker processes.
+ * The input is divided into equal parts, and every part is passed over by a worker - a separate JVM started with the
+ * class path of the coordinator, which runs the main method of this class, memory-maps the input file, computes the
+ * KLowestSummary of its part and writes it to its standard output in the compact format. The coordinator reads the
+ * summaries from the pipes of the workers and reduces them in rounds of pairs (a tree reduction - summary i is merged
+ * with summary i + 1, then with summary i + 2, and so on), so each round merges half of the remaining summaries, and
+ * writes the k lowest elements at each checkpoint in the same format as KLowest.run.
+ * The output is the same as the output of KLowest.run over the same file, because every checkpoint of a summary holds
+ * the k lowest elements of its part up to that checkpoint of the whole input.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestCoordinator {
+
+    // Instance variables - the writer of the checkpoints
+    private CheckpointWriter _writer;
+
+    /**
+     * Constructor - creates a coordinator that writes the checkpoints to the standard output.
+     */
+    public KLowestCoordinator() {
+        this(CheckpointWriter.toStandardOutput());
+    }
+
+    /**
+     * Constructor - creates a coordinator that writes the checkpoints with the given writer.
+     *
+     * @param writer the writer of the checkpoints (flushed at the end of each run)
+     */
+    public KLowestCoordinator(CheckpointWriter writer) {
+        _writer = writer;
+    }
+
+    /**
+     * The main method of a worker process. Receives the input file, k and the part of the input (from index inclusive,
+     * to index exclusive), and writes the summary of the part to the standard output.
+     *
+     * @param args the input file, k, from and to
+     * @throws IOException if the input can't be read or the summary can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4){
+            throw new IllegalArgumentException("Usage: KLowestCoordinator <input file> <k> <from> <to>");
+        }
+        InputData input = new InputData(new File(args[0]), Integer.parseInt(args[1]));
+        KLowestSummary summary = KLowestSummary.ofPart(input, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        summary.writeTo(Channels.newChannel(System.out));
+        System.out.flush();
+    }
+
+    /**
+     * Runs the algorithm over a binary input file of little-endian 32-bit integers (as read by InputData) with the
+     * given number of worker processes, and writes the k lowest elements at each checkpoint. The workers run at the
+     * same time, and their errors are written to the standard error of the coordinator.
+     * Time complexity: Θ((n/w)logk) for each worker, where n is the number of elements and w is the number of workers,
+     * and Θ(wk) for the reduction of each checkpoint.
+     *
+     * @param inputFile the input file
+     * @param k the number of lowest elements
+     * @param workers the number of worker processes
+     * @throws IOException if a worker can't be started, fails or writes an invalid summary
+     */
+    public void run(File inputFile, int k, int workers) throws IOException {
+        if (workers <= 0){
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        InputData input = new InputData(inputFile, k); // for n (the file is mapped but not read)
+        int n = input.getN();
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int w = 0; w < workers; w++){ // start a worker for each part
+                int from = (int) ((long) n * w / workers);
+                int to = (int) ((long) n * (w + 1) / workers);
+                processes.add(startWorker(inputFile, k, from, to));
+            }
+            KLowestSummary[] summaries = new KLowestSummary[workers];
+            for (int w = 0; w < workers; w++){
+                summaries[w] = readSummary(processes.get(w), w);
+            }
+            KLowestSummary summary = reduce(summaries);
+            for (int c = 0; c < summary.getNumOfCheckpoints(); c++){
+                int[] kLowest = summary.getCheckpoint(c).toSortedArray();
+                _writer.writeCheckpoint(k, c + 1, kLowest, kLowest.length);
+            }
+        } finally {
+            for (Process process : processes){ // stop the workers that are left after a failure
+                process.destroy();
+            }
+        }
+        _writer.flush();
+    }
+
+    /**
+     * Reduces summaries into a single summary in rounds of pairs - in each round the summary at every multiple of
+     * 2*step is merged with the summary step positions after it.
+     * Time complexity: Θ(sck), where s is the number of summaries and c is the number of checkpoints.
+     *
+     * @param summaries the summaries (the array is used for the intermediate summaries)
+     * @return the reduced summary
+     */
+    static KLowestSummary reduce(KLowestSummary[] summaries){
+        for (int step = 1; step < summaries.length; step *= 2){
+            for (int i = 0; i + step < summaries.length; i += 2 * step){
+                summaries[i] = summaries[i].merge(summaries[i + step]);
+            }
+        }
+        return summaries[0];
+    }
+
+    /**
+     * Starts a worker JVM for a part of the input, with the java executable and the class path of the current JVM.
+     *
+     * @param inputFile the input file
+     * @param k the number of lowest elements
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @return the worker process
+     * @throws IOException if the process can't be started
+     */
+    private static Process startWorker(File inputFile, int k, int from, int to) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                KLowestCoordinator.class.getName(), inputFile.getAbsolutePath(), Integer.toString(k),
+                Integer.toString(from), Integer.toString(to));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * Reads the summary of a worker from its standard output, and waits for the worker to exit.
+     *
+     * @param process the worker process
+     * @param worker the number of the worker (for the error message)
+     * @return the summary
+     * @throws IOException if the worker failed or wrote an invalid summary
+     */
+    private static KLowestSummary readSummary(Process process, int worker) throws IOException {
+        KLowestSummary summary;
+        try (InputStream output = process.getInputStream()) {
+            summary = KLowestSummary.readFrom(Channels.newChannel(output));
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0){
+                throw new IOException("Worker " + worker + " failed with exit code " + exitCode);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for worker " + worker, e);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,48 @@
+package com.sima;
+
+/**
+ * This interface represents a data structure that keeps the k lowest elements offered to it - the operations that
+ * KLowest needs from it: offering an element (which keeps it or rejects it), the number of elements kept, k, and
+ * copying the kept elements in ascending order at a checkpoint.
+ * The implementations are RBTreePlus (a red-black tree, Θ(logk) for a kept element and Θ(k) for a copy),
+ * SortedArrayKLowest (a sorted array, Θ(k) for a kept element and Θ(k) for a copy) and HeapKLowest (a max-heap,
+ * Θ(logk) for a kept element and Θ(klogk) for a copy). All of them reject an element that isn't smaller than the max.
+ * element in Θ(1). AdaptiveKLowest chooses between them while the elements are offered.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public interface KLowestEngine {
+
+    /**
+     * Offers an element - keeps it if less than k elements are kept, or if it's smaller than the max. element kept
+     * (which is then evicted).
+     *
+     * @param key the element
+     * @return true if the element was kept
+     */
+    boolean offer(int key);
+
+    /**
+     * Returns the number of elements kept (up to k).
+     *
+     * @return the number of elements
+     */
+    int getNumOfElements();
+
+    /**
+     * Returns the max. number of elements kept (k).
+     *
+     * @return k
+     */
+    int getCapacity();
+
+    /**
+     * Copies the elements kept into an array in ascending order.
+     *
+     * @param keys the array into which the elements are copied (must have room for all the elements)
+     * @return the number of elements copied
+     */
+    int copyKeys(int[] keys);
+}
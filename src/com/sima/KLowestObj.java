@@ -0,0 +1,46 @@
+// Generated by tools/GenerateVariants.java from tools/template/KLowest.template - don't edit.
+package com.sima;
+
+import java.util.Comparator;
+
+/**
+ * This class represents the KLowest algorithm for object elements - passes over an array once and finds the k
+ * lowest elements encountered up to each checkpoint, with a bounded RBTreePlusObj.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestObj {
+
+    // The class only has static methods
+    private KLowestObj() {
+    }
+
+    /**
+     * Passes over the elements of an array up to the last checkpoint, and copies the k lowest elements encountered up
+     * to each checkpoint.
+     * Time complexity: Θ(nlogk), where n is the last checkpoint (Θ(logk) for each offer), and Θ(k) for each checkpoint.
+     *
+     * @param values the elements
+     * @param checkpoints the checkpoints (numbers of elements, in ascending order)
+     * @param k the number of lowest elements
+     * @param comparator the order of the elements
+     * @return the k lowest elements up to each checkpoint, in ascending order
+     */
+    public static <E> Object[][] atCheckpoints(E[] values, int[] checkpoints, int k,
+                                               Comparator<? super E> comparator) {
+        RBTreePlusObj<E> tree = new RBTreePlusObj<>(k, comparator);
+        Object[][] kLowest = new Object[checkpoints.length][];
+        int i = 0; // the index of the next element
+        for (int c = 0; c < checkpoints.length; c++){
+            if (checkpoints[c] < i || checkpoints[c] > values.length){
+                throw new IllegalArgumentException("Invalid checkpoint: " + checkpoints[c]);
+            }
+            tree.offerAll(values, i, checkpoints[c]);
+            i = checkpoints[c];
+            kLowest[c] = tree.toSortedArray(); // the k lowest elements up to this checkpoint
+        }
+        return kLowest;
+    }
+}
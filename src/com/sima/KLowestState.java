@@ -0,0 +1,151 @@
+package com.sima;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents the state of a KLowest run at a checkpoint - the tree of the k lowest elements, the number of
+ * elements of the input that were offered to it (the position) and the number of checkpoints written - which can be
+ * saved to a file and restored, so a run that was stopped can resume from its last checkpoint instead of passing over
+ * the input again (see KLowest.runResumable).
+ * The file is a header followed by the keys of the tree in ascending order (every occurrence of a key), all in
+ * little-endian:
+ * 1. magic number (int), format version (int), flags (int - 1 for a multiset tree) and capacity of the tree (int).
+ * 2. position (long), number of checkpoints written (int) and number of keys (int).
+ * 3. the keys (int each).
+ * The file is written through a FileChannel into a temporary file, which is forced to the disk and then moved over
+ * the previous file, so a stop in the middle of a save leaves the previous state. It's read through a memory mapping,
+ * and the tree is built bottom-up from the sorted keys (RBTreePlus.fromSortedKeys) in Θ(k) instead of k insertions.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestState {
+
+    // The magic number ("KLST" in little-endian), format version and size of the header in bytes
+    private static final int MAGIC = 0x54534C4B;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    // The flag of a multiset tree
+    private static final int MULTISET = 1;
+
+    // The size of the buffer through which the keys are written
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Instance variables - the tree, the position and the number of checkpoints written
+    private RBTreePlus _tree;
+    private long _position;
+    private int _checkpointsCount;
+
+    /**
+     * Constructor - sets the tree, the position and the number of checkpoints written.
+     *
+     * @param tree the tree of the k lowest elements
+     * @param position the number of elements of the input offered to the tree
+     * @param checkpointsCount the number of checkpoints written
+     */
+    public KLowestState(RBTreePlus tree, long position, int checkpointsCount) {
+        _tree = tree;
+        _position = position;
+        _checkpointsCount = checkpointsCount;
+    }
+
+    // Getters for the tree, the position and the number of checkpoints written
+    public RBTreePlus getTree() {
+        return _tree;
+    }
+
+    public long getPosition() {
+        return _position;
+    }
+
+    public int getCheckpointsCount() {
+        return _checkpointsCount;
+    }
+
+    /**
+     * Saves the state to a file (replaces the file if it exists).
+     * Time complexity: Θ(k), where k is the number of elements in the tree.
+     *
+     * @param file the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(File file) throws IOException {
+        int[] keys = _tree.toSortedArray();
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(_tree.isMultiset() ? MULTISET : 0).putInt(_tree.getCapacity());
+            buffer.putLong(_position).putInt(_checkpointsCount).putInt(keys.length);
+            int i = 0;
+            while (true){
+                int count = Math.min(keys.length - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(keys, i, count); // the view has the byte order of the buffer
+                buffer.position(buffer.position() + 4 * count);
+                i += count;
+                buffer.flip();
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                if (i == keys.length){
+                    break;
+                }
+                buffer.clear();
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a state saved by save.
+     * Time complexity: Θ(k), where k is the number of elements in the saved tree.
+     *
+     * @param file the file
+     * @return the state
+     * @throws IOException if the file can't be read or isn't a valid state file
+     */
+    public static KLowestState load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE){
+                throw new IOException("Invalid size of a state file " + file + ": " + size);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC){
+                throw new IOException("Not a state file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION){
+                throw new IOException("Unsupported version of the state file " + file + ": " + version);
+            }
+            boolean multiset = (buffer.getInt() & MULTISET) != 0;
+            int capacity = buffer.getInt();
+            long position = buffer.getLong();
+            int checkpointsCount = buffer.getInt();
+            int numOfKeys = buffer.getInt();
+            if (numOfKeys < 0 || size != HEADER_SIZE + 4L * numOfKeys){
+                throw new IOException("Truncated state file " + file + ": " + numOfKeys + " keys in " + size + " bytes");
+            }
+            int[] keys = new int[numOfKeys];
+            buffer.asIntBuffer().get(keys); // the view starts after the header
+            try {
+                RBTreePlus tree = RBTreePlus.fromSortedKeys(keys, 0, numOfKeys, capacity, multiset);
+                return new KLowestState(tree, position, checkpointsCount);
+            } catch (IllegalArgumentException e){
+                throw new IOException("Invalid keys in the state file " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.sima;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * This class represents a mergeable summary of a part of the input - the k lowest elements of the part that are
+ * before each checkpoint of the whole input (the elements of the part up to checkpoint c are the elements between the
+ * start of the part and checkpoint c). The k lowest elements of the whole input up to each checkpoint are the k
+ * lowest elements of the merge of the summaries of all the parts, so the parts can be passed over by separate
+ * processes (see KLowestCoordinator).
+ * The elements of every checkpoint are kept in a multiset RBTreePlus, and two summaries are merged checkpoint by
+ * checkpoint by RBTreePlus.merge in Θ(k).
+ * A summary is sent between processes in a compact format (through any channel - a pipe, a socket or a file), of
+ * little-endian 32-bit integers: magic number, format version, k, number of checkpoints, and for every checkpoint the
+ * number of elements followed by the elements in ascending order.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestSummary {
+
+    // The magic number ("KLSM" in little-endian) and format version
+    private static final int MAGIC = 0x4D534C4B;
+    private static final int VERSION = 1;
+
+    // The size of the buffer through which a summary is written and read
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Instance variables - k and the tree of the k lowest elements up to each checkpoint
+    private int _k;
+    private RBTreePlus[] _checkpoints;
+
+    /**
+     * Constructor - sets k and the trees of the checkpoints.
+     *
+     * @param k the number of lowest elements
+     * @param checkpoints the tree of the k lowest elements up to each checkpoint
+     */
+    public KLowestSummary(int k, RBTreePlus[] checkpoints) {
+        _k = k;
+        _checkpoints = checkpoints;
+    }
+
+    // Getters for k, the num. of checkpoints and the tree of a checkpoint (0 is the first checkpoint)
+    public int getK() {
+        return _k;
+    }
+
+    public int getNumOfCheckpoints() {
+        return _checkpoints.length;
+    }
+
+    public RBTreePlus getCheckpoint(int c) {
+        return _checkpoints[c];
+    }
+
+    /**
+     * Returns the summary of a part of the input, for the distinct checkpoints of the input (as in KLowest.run). The
+     * part is passed over once with a multiset tree bounded to k elements, and the tree is copied at each checkpoint
+     * inside the part (a checkpoint before the part has no elements, and a checkpoint after the part has all the
+     * elements of the part).
+     * Time complexity: Θ(mlogk), where m is the number of elements in the part, and Θ(k) for each checkpoint.
+     *
+     * @param input the input data
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @return the summary
+     */
+    public static KLowestSummary ofPart(InputData input, int from, int to){
+        int k = input.getK();
+        int[] checkpoints = KLowest.distinctCheckpoints(input);
+        RBTreePlus tree = new RBTreePlus(k, true);
+        RBTreePlus[] trees = new RBTreePlus[checkpoints.length];
+        IntBuffer[] regions = input.getRegions();
+        int regionSize = input.getRegionSize();
+        int i = from; // the index of the next element to offer
+        for (int c = 0; c < checkpoints.length; c++){
+            int end = Math.min(to, checkpoints[c]);
+            while (i < end){ // offer the elements up to the checkpoint, region by region
+                IntBuffer region = regions[i / regionSize];
+                int regionStart = i - i % regionSize;
+                int regionEnd = (int) Math.min(end, (long) regionStart + region.limit());
+                tree.offerAll(region, i - regionStart, regionEnd - regionStart);
+                i = regionEnd;
+            }
+            int[] keys = tree.toSortedArray();
+            trees[c] = RBTreePlus.fromSortedKeys(keys, 0, keys.length, k, true);
+        }
+        return new KLowestSummary(k, trees);
+    }
+
+    /**
+     * Returns the summary of the parts of this summary and another summary (with the same k and checkpoints).
+     * Time complexity: Θ(ck), where c is the number of checkpoints.
+     *
+     * @param other the other summary
+     * @return a new summary
+     */
+    public KLowestSummary merge(KLowestSummary other){
+        if (other._k != _k || other._checkpoints.length != _checkpoints.length){
+            throw new IllegalArgumentException("Summaries of different runs (k = " + _k + " and " + other._k + ", " +
+                    _checkpoints.length + " and " + other._checkpoints.length + " checkpoints)");
+        }
+        RBTreePlus[] trees = new RBTreePlus[_checkpoints.length];
+        for (int c = 0; c < trees.length; c++){
+            trees[c] = _checkpoints[c].merge(other._checkpoints[c], _k);
+        }
+        return new KLowestSummary(_k, trees);
+    }
+
+    /**
+     * Writes the summary to a channel in the compact format.
+     * Time complexity: Θ(ck), where c is the number of checkpoints.
+     *
+     * @param channel the channel
+     * @throws IOException if the summary can't be written
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(_k).putInt(_checkpoints.length);
+        for (RBTreePlus tree : _checkpoints){
+            if (buffer.remaining() < 4){
+                drain(channel, buffer);
+            }
+            buffer.putInt(tree.getNumOfElements());
+            int[] keys = tree.toSortedArray();
+            int i = 0;
+            while (i < keys.length){
+                if (buffer.remaining() < 4){
+                    drain(channel, buffer);
+                }
+                int count = Math.min(keys.length - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(keys, i, count); // the view has the byte order of the buffer
+                buffer.position(buffer.position() + 4 * count);
+                i += count;
+            }
+        }
+        drain(channel, buffer);
+    }
+
+    /**
+     * Reads a summary written by writeTo from a channel, and builds the tree of every checkpoint bottom-up from its
+     * sorted elements (see RBTreePlus.fromSortedKeys). The channel is read ahead in blocks, so it should end with the
+     * summary.
+     * Time complexity: Θ(ck), where c is the number of checkpoints.
+     *
+     * @param channel the channel
+     * @return the summary
+     * @throws IOException if the summary can't be read or isn't valid
+     */
+    public static KLowestSummary readFrom(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip(); // the buffer starts empty
+        if (readInt(channel, buffer) != MAGIC){
+            throw new IOException("Not a summary");
+        }
+        int version = readInt(channel, buffer);
+        if (version != VERSION){
+            throw new IOException("Unsupported version of a summary: " + version);
+        }
+        int k = readInt(channel, buffer);
+        int numOfCheckpoints = readInt(channel, buffer);
+        if (k < 0 || numOfCheckpoints < 0){
+            throw new IOException("Invalid summary header: k = " + k + ", " + numOfCheckpoints + " checkpoints");
+        }
+        RBTreePlus[] trees = new RBTreePlus[numOfCheckpoints];
+        for (int c = 0; c < numOfCheckpoints; c++){
+            int numOfKeys = readInt(channel, buffer);
+            if (numOfKeys < 0 || numOfKeys > k){
+                throw new IOException("Invalid number of elements in a summary: " + numOfKeys);
+            }
+            int[] keys = new int[numOfKeys];
+            int i = 0;
+            while (i < numOfKeys){
+                if (buffer.remaining() < 4){
+                    fill(channel, buffer);
+                }
+                int count = Math.min(numOfKeys - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(keys, i, count);
+                buffer.position(buffer.position() + 4 * count);
+                i += count;
+            }
+            try {
+                trees[c] = RBTreePlus.fromSortedKeys(keys, 0, numOfKeys, k, true);
+            } catch (IllegalArgumentException e){
+                throw new IOException("Invalid elements in a summary", e);
+            }
+        }
+        return new KLowestSummary(k, trees);
+    }
+
+    // Writes the content of a buffer (that is being filled) to a channel and clears it
+    private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Reads an int from a buffer (that is being read), filling the buffer from a channel first if needed
+    private static int readInt(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4){
+            fill(channel, buffer);
+        }
+        return buffer.getInt();
+    }
+
+    // Reads more bytes from a channel into a buffer (that is being read), until it has at least an int
+    private static void fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.compact();
+        while (buffer.position() < 4){
+            if (channel.read(buffer) < 0){
+                throw new EOFException("The summary ended unexpectedly");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,97 @@
+package com.sima;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class represents a fork-join task that finds the k lowest elements of a part of the input (an array or a
+ * memory-mapped file, which are read through the regions of InputData).
+ * A part that is small enough is passed over once with a bounded RBTreePlus. A larger part is split into two halves
+ * that are computed in parallel, and the k lowest elements of the two halves are merged.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+class KLowestTask extends RecursiveTask<int[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    // The min. number of elements in a part that is split into two halves
+    private static final int SPLIT_THRESHOLD = 1 << 14;
+
+    // Instance variables - the regions of the input, the number of elements in each region, the part of the input
+    // (from index inclusive, to index exclusive) and k
+    private final IntBuffer[] _regions;
+    private final int _regionSize;
+    private final int _from, _to, _k;
+
+    /**
+     * Constructor - sets the regions, the part of the input and k.
+     *
+     * @param regions the regions of the input (see InputData.getRegions)
+     * @param regionSize the number of elements in each region (see InputData.getRegionSize)
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @param k the number of lowest elements to find
+     */
+    KLowestTask(IntBuffer[] regions, int regionSize, int from, int to, int k) {
+        _regions = regions;
+        _regionSize = regionSize;
+        _from = from;
+        _to = to;
+        _k = k;
+    }
+
+    /**
+     * Finds the k lowest elements of the part of the array.
+     * Time complexity: Θ(mlogk) work, where m is the number of elements in the part (Θ(logk) for each offer and
+     * Θ(k) for each merge of two halves).
+     *
+     * @return the k lowest elements of the part in ascending order (all the elements if there are less than k)
+     */
+    @Override
+    protected int[] compute() {
+        int size = _to - _from;
+        if (size <= SPLIT_THRESHOLD || size <= 2 * _k){
+            RBTreePlus tree = new RBTreePlus(_k);
+            int i = _from;
+            while (i < _to){ // pass over the part of each region (absolute gets are safe for concurrent tasks)
+                IntBuffer region = _regions[i / _regionSize];
+                int regionStart = i - i % _regionSize;
+                int end = (int) Math.min(_to, (long) regionStart + region.limit());
+                for (; i < end; i++){
+                    tree.offer(region.get(i - regionStart));
+                }
+            }
+            return tree.toSortedArray();
+        }
+        int middle = _from + size / 2;
+        KLowestTask left = new KLowestTask(_regions, _regionSize, _from, middle, _k);
+        left.fork();
+        int[] rightLowest = new KLowestTask(_regions, _regionSize, middle, _to, _k).compute();
+        return mergeLowest(left.join(), rightLowest, _k);
+    }
+
+    /**
+     * Merges two sorted arrays and returns the k lowest elements of both.
+     * Time complexity: Θ(k).
+     *
+     * @param a the first sorted array
+     * @param b the second sorted array
+     * @param k the number of lowest elements to keep
+     * @return the k lowest elements of both arrays in ascending order
+     */
+    static int[] mergeLowest(int[] a, int[] b, int k){
+        int[] merged = new int[Math.min(k, a.length + b.length)];
+        int i = 0, j = 0;
+        for (int m = 0; m < merged.length; m++){
+            if (j == b.length || (i < a.length && a[i] <= b[j])){
+                merged[m] = a[i++];
+            } else {
+                merged[m] = b[j++];
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,97 @@
+package com.sima;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a recorder of the keys that enter and are evicted from an RBTreePlus (see
+ * RBTreePlus.setChangeRecorder) - by insert, delete, remove and every path of offer (including the change of the max
+ * key in place). The keys are appended to two growable arrays, and the take method turns them into the net TreeDelta
+ * since the previous take - both arrays are sorted and merged, and a key that is in both is dropped from both (an
+ * entered key that was evicted before the checkpoint, or an evicted key that entered again). The arrays grow with the
+ * churn between two takes, not with k.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KeyChangeRecorder {
+
+    // The initial size of the arrays
+    private static final int INITIAL_SIZE = 64;
+
+    // Instance variables - the entered and evicted keys since the previous take, and their numbers
+    private int[] _entered, _evicted;
+    private int _numOfEntered, _numOfEvicted;
+
+    /**
+     * Constructor - allocates the arrays.
+     */
+    public KeyChangeRecorder() {
+        _entered = new int[INITIAL_SIZE];
+        _evicted = new int[INITIAL_SIZE];
+        _numOfEntered = 0;
+        _numOfEvicted = 0;
+    }
+
+    /**
+     * Records a key that entered the tree.
+     * Time complexity: Θ(1) amortized.
+     *
+     * @param key the key
+     */
+    void entered(int key){
+        if (_numOfEntered == _entered.length){
+            _entered = Arrays.copyOf(_entered, 2 * _entered.length);
+        }
+        _entered[_numOfEntered++] = key;
+    }
+
+    /**
+     * Records occurrences of a key that were evicted from the tree.
+     * Time complexity: Θ(1) amortized for each occurrence.
+     *
+     * @param key the key
+     * @param count the number of occurrences
+     */
+    void evicted(int key, int count){
+        while (_numOfEvicted + count > _evicted.length){
+            _evicted = Arrays.copyOf(_evicted, 2 * _evicted.length);
+        }
+        for (int i = 0; i < count; i++){
+            _evicted[_numOfEvicted++] = key;
+        }
+    }
+
+    /**
+     * Returns the net change since the previous take, and starts recording the next one.
+     * Time complexity: Θ(clogc), where c is the number of keys recorded since the previous take.
+     *
+     * @param checkpoint the number of the checkpoint of the delta
+     * @return the delta
+     */
+    public TreeDelta take(int checkpoint){
+        Arrays.sort(_entered, 0, _numOfEntered);
+        Arrays.sort(_evicted, 0, _numOfEvicted);
+        int i = 0, j = 0, entered = 0, evicted = 0;
+        while (i < _numOfEntered && j < _numOfEvicted){ // keep the keys that aren't in both (compacted in place)
+            if (_entered[i] < _evicted[j]){
+                _entered[entered++] = _entered[i++];
+            } else if (_entered[i] > _evicted[j]){
+                _evicted[evicted++] = _evicted[j++];
+            } else { // cancels out
+                i++;
+                j++;
+            }
+        }
+        while (i < _numOfEntered){
+            _entered[entered++] = _entered[i++];
+        }
+        while (j < _numOfEvicted){
+            _evicted[evicted++] = _evicted[j++];
+        }
+        TreeDelta delta = new TreeDelta(checkpoint, Arrays.copyOf(_entered, entered), Arrays.copyOf(_evicted, evicted));
+        _numOfEntered = 0;
+        _numOfEvicted = 0;
+        return delta;
+    }
+}
@@ -0,0 +1,290 @@
+package com.sima;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a keyed version of the data structure for keeping the k lowest elements - a separate k
+ * bounded red-black tree for every tenant key (for example a customer id), for millions of tenants.
+ * Instead of an RBTreePlus object per tenant (with its own sentinel and an object per node), the trees of all the
+ * tenants live in one shared arena of node slots (an RBSlotArena, as in RBTreePlusArray) - the parent, left son, right
+ * son, key and color of a node are kept in parallel primitive arrays at the index of its slot, slot 0 is the sentinel
+ * nilT of all the trees, and the slots released by delete are kept in one free list.
+ * A tenant is an index into the tenant arrays, which keep the tenant key, the root slot, the slot of the max node and
+ * the number of elements of its tree (20 bytes). An operation makes the tree of its tenant the current tree of the
+ * arena and saves it back after a change. The tenant of a tenant key is found through an open-addressing hash table of
+ * primitive arrays (linear probing, a power of 2 entries of 12 bytes, at most half full - 2 to 4 entries per tenant),
+ * so a tenant costs about 44 to 68 bytes in addition to its nodes (17 bytes each).
+ * All the arrays grow by doubling, so once every tenant holds k elements offer doesn't allocate any memory.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KeyedKLowestStore {
+
+    // Default number of tenants and node slots allocated by the constructor
+    private static final int DEFAULT_TENANTS = 16;
+
+    // Instance variables - k and the node arena of all the trees
+    private final int _k;
+    private final RBSlotArena _arena;
+
+    // The tenant arrays (indexed by tenant) - tenant key, root slot, slot of the max node and number of elements - and
+    // the number of tenants
+    private long[] _tenantKey;
+    private int[] _root, _maxNode, _numOfElements;
+    private int _numOfTenants;
+
+    // The hash table - the tenant keys and their tenants plus 1 (0 marks an empty entry)
+    private long[] _tableKeys;
+    private int[] _tableTenants;
+
+    // The tenant whose tree is the current tree of the arena
+    private int _tenant;
+
+    /**
+     * Constructor - creates an empty store with room for a default number of tenants.
+     *
+     * @param k the max. number of elements kept for every tenant
+     */
+    public KeyedKLowestStore(int k) {
+        this(k, DEFAULT_TENANTS);
+    }
+
+    /**
+     * Constructor - creates an empty store and allocates the arrays with room for the expected number of tenants with
+     * k elements each. The arrays grow only if there are more tenants.
+     *
+     * @param k the max. number of elements kept for every tenant
+     * @param expectedTenants the expected number of tenants
+     */
+    public KeyedKLowestStore(int k, int expectedTenants) {
+        _arena = new RBSlotArena(slots(k, expectedTenants));
+        _k = k;
+        _tenantKey = new long[expectedTenants];
+        _root = new int[expectedTenants];
+        _maxNode = new int[expectedTenants];
+        _numOfElements = new int[expectedTenants];
+        _numOfTenants = 0;
+        int tableSize = Integer.highestOneBit(Math.max(2 * expectedTenants - 1, 1)) << 1;
+        _tableKeys = new long[tableSize];
+        _tableTenants = new int[tableSize];
+    }
+
+    // Checks k and the expected number of tenants, and returns the number of slots for k elements of each tenant
+    private static int slots(int k, int expectedTenants){
+        if (k <= 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        if (expectedTenants <= 0){
+            throw new IllegalArgumentException("Invalid number of tenants: " + expectedTenants);
+        }
+        return (int) Math.min((long) k * expectedTenants + 1, Integer.MAX_VALUE - 8);
+    }
+
+    // Getters for k and the num. of tenants
+    public int getK() {
+        return _k;
+    }
+
+    public int getNumOfTenants() {
+        return _numOfTenants;
+    }
+
+    /**
+     * Returns the number of elements kept for a tenant key (0 for an unknown tenant key).
+     * Time complexity: Θ(1) expected.
+     *
+     * @param tenantKey the tenant key
+     * @return the number of elements
+     */
+    public int getNumOfElements(long tenantKey){
+        int tenant = findTenant(tenantKey);
+        return tenant < 0 ? 0 : _numOfElements[tenant];
+    }
+
+    /**
+     * Offers a value to the tree of a tenant key (a tenant is added for a new tenant key), in the same way as
+     * RBTreePlusArray.offer - the value is inserted if the tree has less than k elements, rejected if it isn't
+     * smaller than the max. key, and otherwise replaces the max. key (in place, or by delete and insert into the
+     * released slot).
+     * Time complexity: Θ(1) expected for a rejected value, Θ(logk) otherwise.
+     *
+     * @param tenantKey the tenant key
+     * @param value the offered value
+     * @return true if the value was added to the tree of the tenant
+     */
+    public boolean offer(long tenantKey, int value){
+        selectTenant(tenantOf(tenantKey));
+        if (!_arena.offer(value, _k)){
+            return false;
+        }
+        saveTenant();
+        return true;
+    }
+
+    /**
+     * Copies the k lowest values of a tenant key into an array in ascending order.
+     * Time complexity: Θ(k) (plus Θ(1) expected to find the tenant).
+     *
+     * @param tenantKey the tenant key
+     * @param keys the array into which the values are copied (must have room for k values)
+     * @return the number of values copied (0 for an unknown tenant key)
+     */
+    public int copyKeys(long tenantKey, int[] keys){
+        int tenant = findTenant(tenantKey);
+        if (tenant < 0){
+            return 0;
+        }
+        selectTenant(tenant);
+        return _arena.copyKeys(keys);
+    }
+
+    /**
+     * Returns the k lowest values of a tenant key.
+     * Time complexity: Θ(k) (plus Θ(1) expected to find the tenant).
+     *
+     * @param tenantKey the tenant key
+     * @return a new array with the values in ascending order (empty for an unknown tenant key)
+     */
+    public int[] kLowest(long tenantKey){
+        int[] keys = new int[getNumOfElements(tenantKey)];
+        copyKeys(tenantKey, keys);
+        return keys;
+    }
+
+    /**
+     * Removes a tenant key and releases the slots of its tree to the free list. The last tenant is moved into the
+     * index of the removed tenant, so the tenant arrays stay dense.
+     * Time complexity: Θ(k) (plus Θ(1) expected to update the hash table).
+     *
+     * @param tenantKey the tenant key
+     * @return true if the tenant key was in the store
+     */
+    public boolean remove(long tenantKey){
+        int entry = findEntry(tenantKey);
+        if (_tableTenants[entry] == 0){
+            return false;
+        }
+        int tenant = _tableTenants[entry] - 1;
+        _arena.releaseTree(_root[tenant]);
+        removeEntry(entry);
+        int last = --_numOfTenants;
+        if (tenant != last){ // move the last tenant into the removed tenant's index
+            _tenantKey[tenant] = _tenantKey[last];
+            _root[tenant] = _root[last];
+            _maxNode[tenant] = _maxNode[last];
+            _numOfElements[tenant] = _numOfElements[last];
+            _tableTenants[findEntry(_tenantKey[tenant])] = tenant + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the tenant of a tenant key, or -1 if the tenant key isn't in the store.
+     * Time complexity: Θ(1) expected.
+     *
+     * @param tenantKey the tenant key
+     * @return the tenant
+     */
+    private int findTenant(long tenantKey){
+        return _tableTenants[findEntry(tenantKey)] - 1;
+    }
+
+    /**
+     * Returns the tenant of a tenant key, and adds a tenant with an empty tree if the tenant key isn't in the store
+     * (the tenant arrays and the hash table are doubled if they are full).
+     * Time complexity: Θ(1) expected (amortized when the arrays grow).
+     *
+     * @param tenantKey the tenant key
+     * @return the tenant
+     */
+    private int tenantOf(long tenantKey){
+        int entry = findEntry(tenantKey);
+        if (_tableTenants[entry] != 0){
+            return _tableTenants[entry] - 1;
+        }
+        if (_numOfTenants == _tenantKey.length){
+            int tenants = 2 * _tenantKey.length;
+            _tenantKey = Arrays.copyOf(_tenantKey, tenants);
+            _root = Arrays.copyOf(_root, tenants);
+            _maxNode = Arrays.copyOf(_maxNode, tenants);
+            _numOfElements = Arrays.copyOf(_numOfElements, tenants);
+        }
+        if (2 * (_numOfTenants + 1) > _tableKeys.length){ // keep the table at most half full
+            rehash(2 * _tableKeys.length);
+            entry = findEntry(tenantKey);
+        }
+        int tenant = _numOfTenants++;
+        _tenantKey[tenant] = tenantKey;
+        _root[tenant] = RBSlotArena.NIL_T;
+        _maxNode[tenant] = RBSlotArena.NIL_T;
+        _numOfElements[tenant] = 0;
+        _tableKeys[entry] = tenantKey;
+        _tableTenants[entry] = tenant + 1;
+        return tenant;
+    }
+
+    // Returns the entry of a tenant key in the hash table, or the empty entry at which the probing stopped
+    private int findEntry(long tenantKey){
+        int mask = _tableKeys.length - 1;
+        int entry = hash(tenantKey) & mask;
+        while (_tableTenants[entry] != 0 && _tableKeys[entry] != tenantKey){
+            entry = (entry + 1) & mask;
+        }
+        return entry;
+    }
+
+    // Mixes the bits of a tenant key (consecutive tenant keys are spread over the table)
+    private static int hash(long tenantKey){
+        long h = tenantKey * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Empties an entry of the hash table, and moves back the later entries of its probe sequence that would not be
+     * found any more (backward shift deletion, so no deleted markers are needed).
+     * Time complexity: Θ(1) expected.
+     *
+     * @param entry the entry
+     */
+    private void removeEntry(int entry){
+        int mask = _tableKeys.length - 1;
+        int next = (entry + 1) & mask;
+        while (_tableTenants[next] != 0){
+            int home = hash(_tableKeys[next]) & mask;
+            // the entry at next can move back to entry if its home isn't cyclically in (entry, next]
+            if (((next - home) & mask) >= ((next - entry) & mask)){
+                _tableKeys[entry] = _tableKeys[next];
+                _tableTenants[entry] = _tableTenants[next];
+                entry = next;
+            }
+            next = (next + 1) & mask;
+        }
+        _tableTenants[entry] = 0;
+    }
+
+    // Rebuilds the hash table with a new size (a power of 2)
+    private void rehash(int tableSize){
+        _tableKeys = new long[tableSize];
+        _tableTenants = new int[tableSize];
+        for (int tenant = 0; tenant < _numOfTenants; tenant++){
+            int entry = findEntry(_tenantKey[tenant]);
+            _tableKeys[entry] = _tenantKey[tenant];
+            _tableTenants[entry] = tenant + 1;
+        }
+    }
+
+    // Makes the tree of a tenant the current tree of the arena
+    private void selectTenant(int tenant){
+        _tenant = tenant;
+        _arena.setTree(_root[tenant], _maxNode[tenant], _numOfElements[tenant]);
+    }
+
+    // Saves the current tree of the arena as the tree of the selected tenant (after it was changed)
+    private void saveTenant(){
+        _root[_tenant] = _arena.getRoot();
+        _maxNode[_tenant] = _arena.getMaxNode();
+        _numOfElements[_tenant] = _arena.getNumOfElements();
+    }
+}
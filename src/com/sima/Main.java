@@ -17,6 +17,7 @@ public class Main {
         for (int i = 0; i < nValues.length; i++){
             for (int j = 0; j < kValues.length; j++){
                 InputData input = new InputData(nValues[i], kValues[j]);
+                input.printArray();
                 KLowest algorithm = new KLowest();
                 algorithm.run(input);
                 System.out.println("_______________________________________________________________________________________________________________________________________________________________________________________");
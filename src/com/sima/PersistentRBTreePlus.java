@@ -0,0 +1,309 @@
+package com.sima;
+
+/**
+ * This class represents a persistent version of the data structure for keeping the k lowest elements - a red-black
+ * tree from which an immutable snapshot of the current keys can be taken in Θ(1), while the live tree keeps changing.
+ * The tree is a left-leaning red-black tree (Sedgewick's variant of the red-black tree, in which a red node is always
+ * a left son), since its insert and deleteMax only change the nodes on the path from the root. The nodes don't have
+ * parent pointers, because a node may be shared by several versions of the tree.
+ * Every node holds the version of the tree in which it was created. The live tree changes a node in place only if the
+ * node belongs to the current version, and otherwise changes a copy of it (path copying), so the nodes reachable from
+ * a snapshot never change. Taking a snapshot only increments the version - the first change after a snapshot copies
+ * the path of Θ(logk) nodes, and later changes reuse the copies until the next snapshot. A version that no snapshot
+ * refers to any more is reclaimed by the garbage collector.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class PersistentRBTreePlus {
+
+    // A node of the tree (left and right sons, key, color and the version in which the node was created)
+    private static final class Node {
+        private Node _leftSon, _rightSon;
+        private int _key;
+        private boolean _red;
+        private long _version;
+
+        private Node(int key, boolean red, long version) {
+            _key = key;
+            _red = red;
+            _version = version;
+        }
+    }
+
+    /**
+     * This class represents an immutable snapshot of the keys of the tree. A snapshot can be read by any thread once it
+     * was published safely (for example by submitting a task that uses it to an executor).
+     */
+    public static final class Snapshot {
+
+        // Instance variables - the root of the version and its number of elements
+        private final Node _root;
+        private final int _numOfElements;
+
+        private Snapshot(Node root, int numOfElements) {
+            _root = root;
+            _numOfElements = numOfElements;
+        }
+
+        // Getter for the num. of elements
+        public int getNumOfElements() {
+            return _numOfElements;
+        }
+
+        /**
+         * Copies the keys of the snapshot into an array in ascending order, by an inorder walk.
+         * Time complexity: Θ(k), where k is the number of elements in the snapshot.
+         *
+         * @param keys the array into which the keys are copied (must have room for all the elements)
+         * @return the number of keys copied
+         */
+        public int copyKeys(int[] keys){
+            return copyInorder(_root, keys, 0);
+        }
+
+        /**
+         * Returns the keys of the snapshot in ascending order.
+         * Time complexity: Θ(k), where k is the number of elements in the snapshot.
+         *
+         * @return a new array with the keys in ascending order
+         */
+        public int[] toSortedArray(){
+            int[] keys = new int[_numOfElements];
+            copyKeys(keys);
+            return keys;
+        }
+
+        /**
+         * Prints the keys of the snapshot in ascending order, in the same format as RBTreePlus.printKMin.
+         * Time complexity: Θ(k), where k is the number of elements in the snapshot.
+         */
+        public void printKMin(){
+            if (_numOfElements == 0){
+                return;
+            }
+            StringBuilder line = new StringBuilder();
+            for (int key : toSortedArray()){
+                line.append(key).append(',');
+            }
+            line.setLength(line.length() - 1); // remove the comma after the max. key
+            System.out.println(line);
+        }
+
+        // Copies the keys of a subtree into an array from the given index, and returns the index after the last key
+        private static int copyInorder(Node node, int[] keys, int index){
+            while (node != null){ // the right son is handled by the loop instead of recursion
+                index = copyInorder(node._leftSon, keys, index);
+                keys[index++] = node._key;
+                node = node._rightSon;
+            }
+            return index;
+        }
+    }
+
+    // Instance variables - root of the live tree, number of elements, max. number of elements kept by offer, current
+    // version and the max. key (valid when the tree isn't empty)
+    private Node _root;
+    private int _numOfElements;
+    private int _capacity;
+    private long _version;
+    private int _max;
+
+    /**
+     * Constructor - creates an empty tree bounded to the given number of elements.
+     *
+     * @param capacity the max. number of elements kept by offer (k)
+     */
+    public PersistentRBTreePlus(int capacity) {
+        _root = null;
+        _numOfElements = 0;
+        _capacity = capacity;
+        _version = 0;
+    }
+
+    // Getters for the num. of elements and capacity
+    public int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current keys. Later changes of the tree don't affect the snapshot.
+     * Time complexity: Θ(1).
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot(){
+        _version++; // the nodes of the current version are shared with the snapshot from now on
+        return new Snapshot(_root, _numOfElements);
+    }
+
+    /**
+     * Offers a key to a bounded tree, in the same way as RBTreePlus.offer - the key is inserted if the tree has less
+     * than k elements, rejected if it isn't smaller than the max. key, and otherwise replaces the max. key.
+     * Time complexity: Θ(1) for a rejected key, Θ(logk) otherwise.
+     *
+     * @param key the offered key
+     * @return true if the key was added to the tree
+     */
+    public boolean offer(int key){
+        if (_numOfElements < _capacity){
+            insert(key);
+            return true;
+        }
+        if (_numOfElements == 0 || key >= _max){
+            return false;
+        }
+        deleteMax();
+        insert(key);
+        return true;
+    }
+
+    /**
+     * Inserts a key into the live tree.
+     * Time complexity: Θ(logk), where k is the number of elements in the tree.
+     *
+     * @param key the key
+     */
+    public void insert(int key){
+        _root = insert(_root, key);
+        _root._red = false;
+        if (_numOfElements == 0 || key >= _max){
+            _max = key;
+        }
+        _numOfElements++;
+    }
+
+    /**
+     * Deletes the max. key from the live tree.
+     * Time complexity: Θ(logk), where k is the number of elements in the tree.
+     */
+    public void deleteMax(){
+        if (_root == null){
+            return;
+        }
+        if (!isRed(_root._leftSon) && !isRed(_root._rightSon)){
+            _root = own(_root);
+            _root._red = true;
+        }
+        _root = deleteMax(_root);
+        _numOfElements--;
+        if (_root != null){
+            _root = own(_root);
+            _root._red = false;
+            Node node = _root;
+            while (node._rightSon != null){ // find the new max. key
+                node = node._rightSon;
+            }
+            _max = node._key;
+        }
+    }
+
+    // Inserts a key into a subtree and returns the new root of the subtree
+    private Node insert(Node h, int key){
+        if (h == null){
+            return new Node(key, true, _version);
+        }
+        h = own(h);
+        if (key < h._key){
+            h._leftSon = insert(h._leftSon, key);
+        } else {
+            h._rightSon = insert(h._rightSon, key);
+        }
+        return balance(h);
+    }
+
+    // Deletes the max. key of a subtree and returns the new root of the subtree
+    private Node deleteMax(Node h){
+        h = own(h);
+        if (isRed(h._leftSon)){ // lean the red link to the right, so it can be removed
+            h = rotateRight(h);
+        }
+        if (h._rightSon == null){
+            return null;
+        }
+        if (!isRed(h._rightSon) && !isRed(h._rightSon._leftSon)){ // make sure the right son isn't a 2-node
+            h = moveRedRight(h);
+        }
+        h._rightSon = deleteMax(h._rightSon);
+        return balance(h);
+    }
+
+    /**
+     * Returns the node if it belongs to the current version, or a copy of it that belongs to the current version.
+     *
+     * @param node the node (not null)
+     * @return a node of the current version with the same key, color and sons
+     */
+    private Node own(Node node){
+        if (node._version == _version){
+            return node;
+        }
+        Node copy = new Node(node._key, node._red, _version);
+        copy._leftSon = node._leftSon;
+        copy._rightSon = node._rightSon;
+        return copy;
+    }
+
+    // Checks whether a node is red (null is black)
+    private static boolean isRed(Node node){
+        return node != null && node._red;
+    }
+
+    // Performs a left rotation on an owned node and returns the new root of the subtree
+    private Node rotateLeft(Node h){
+        Node x = own(h._rightSon);
+        h._rightSon = x._leftSon;
+        x._leftSon = h;
+        x._red = h._red;
+        h._red = true;
+        return x;
+    }
+
+    // Performs a right rotation on an owned node and returns the new root of the subtree
+    private Node rotateRight(Node h){
+        Node x = own(h._leftSon);
+        h._leftSon = x._rightSon;
+        x._rightSon = h;
+        x._red = h._red;
+        h._red = true;
+        return x;
+    }
+
+    // Flips the colors of an owned node and its two sons
+    private void flipColors(Node h){
+        h._leftSon = own(h._leftSon);
+        h._rightSon = own(h._rightSon);
+        h._red = !h._red;
+        h._leftSon._red = !h._leftSon._red;
+        h._rightSon._red = !h._rightSon._red;
+    }
+
+    // Moves a red link to the right son of an owned node (or to one of its sons)
+    private Node moveRedRight(Node h){
+        flipColors(h);
+        if (isRed(h._leftSon._leftSon)){
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // Restores the left-leaning red-black properties of an owned node on the way up
+    private Node balance(Node h){
+        if (isRed(h._rightSon) && !isRed(h._leftSon)){
+            h = rotateLeft(h);
+        }
+        if (isRed(h._leftSon) && isRed(h._leftSon._leftSon)){
+            h = rotateRight(h);
+        }
+        if (isRed(h._leftSon) && isRed(h._rightSon)){
+            flipColors(h);
+        }
+        return h;
+    }
+}
@@ -0,0 +1,610 @@
+// Generated by tools/GenerateVariants.java from tools/template/RBSlotArena.template - don't edit.
+package com.sima;
+
+import java.util.Arrays;
+
+/**
+ * This class represents an arena of red-black tree nodes that are kept in parallel primitive arrays instead of
+ * RBTreePlusNode objects, with the red-black tree algorithms on them (held by RBTreePlusArray and KeyedKLowestStore).
+ * Each node is a slot (an index into the arrays), and the parent, left son, right son, key and color of the node are
+ * kept in the parent, leftSon, rightSon, key and color arrays at that index. Each slot takes 17 bytes.
+ * Slot 0 is the sentinel nilT of every tree in the arena, so a node is nilT if and only if its slot is 0 (no key is
+ * reserved for the sentinel). Slots released by delete are kept in a free list and reused by the next insert, so
+ * replacing the max node of a full tree doesn't allocate any memory.
+ * The arena may hold several trees, but the operations change the current tree - the tree whose root, max node and
+ * number of elements are set in the arena (the owner of several trees sets them before an operation and reads them
+ * back after it).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+final class RBSlotArena {
+
+    // The slot of the sentinel nilT (shared by all the trees)
+    static final int NIL_T = 0;
+
+    // Node colors (kept in a byte array instead of RBTreePlusNode.Color references)
+    private static final byte RED = 0;
+    private static final byte BLACK = 1;
+
+    // Instance variables - the node arrays (indexed by slot), head of the free slots list and the first slot that was
+    // never used
+    private int[] _parent, _leftSon, _rightSon, _key;
+    private byte[] _color;
+    private int _freeList, _nextUnused;
+
+    // The current tree - root slot, slot of the node with the max key and number of elements
+    private int _root, _maxNode, _numOfElements;
+
+    /**
+     * Constructor - allocates the node arrays with the given number of slots (including the sentinel slot), colors the
+     * sentinel black and sets the current tree to an empty tree. The arrays grow if more slots are needed.
+     *
+     * @param slots the number of slots allocated
+     */
+    RBSlotArena(int slots) {
+        _parent = new int[slots];
+        _leftSon = new int[slots];
+        _rightSon = new int[slots];
+        _key = new int[slots];
+        _color = new byte[slots];
+        _color[NIL_T] = BLACK;
+        _freeList = NIL_T;
+        _nextUnused = 1;
+        setTree(NIL_T, NIL_T, 0);
+    }
+
+    // Getters for the current tree and the key of a node
+    int getRoot() {
+        return _root;
+    }
+
+    int getMaxNode() {
+        return _maxNode;
+    }
+
+    int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    int getKey(int node) {
+        return _key[node];
+    }
+
+    // Setters for the current tree and the key of a node
+    void setTree(int root, int maxNode, int numOfElements) {
+        _root = root;
+        _maxNode = maxNode;
+        _numOfElements = numOfElements;
+    }
+
+    void setMaxNode(int max) {
+        _maxNode = max;
+    }
+
+    void setKey(int node, int key) {
+        _key[node] = key;
+    }
+
+    /**
+     * Checks whether the input node is the sentinel - nilT.
+     * Time complexity: Θ(1).
+     *
+     * @param node the input node
+     * @return true if the node is nilT
+     */
+    boolean isNilT(int node){
+        return node == NIL_T;
+    }
+
+    /**
+     * Returns a free slot for a new node - the head of the free list if there is one, or the next slot that was
+     * never used (the arrays are doubled if they are full).
+     * Time complexity: Θ(1) amortized.
+     *
+     * @return the slot of the new node
+     */
+    private int allocateNode(){
+        if (!isNilT(_freeList)){ // reuse a slot released by delete
+            int node = _freeList;
+            _freeList = _leftSon[node];
+            return node;
+        }
+        if (_nextUnused == _key.length){
+            int slots = (int) Math.min(2L * _key.length, Integer.MAX_VALUE - 8);
+            if (slots == _key.length){
+                throw new IllegalStateException("The node arena is full");
+            }
+            _parent = Arrays.copyOf(_parent, slots);
+            _leftSon = Arrays.copyOf(_leftSon, slots);
+            _rightSon = Arrays.copyOf(_rightSon, slots);
+            _key = Arrays.copyOf(_key, slots);
+            _color = Arrays.copyOf(_color, slots);
+        }
+        return _nextUnused++;
+    }
+
+    /**
+     * Adds a released slot to the head of the free list (the list is linked through the left son array).
+     * Time complexity: Θ(1).
+     *
+     * @param node the released slot
+     */
+    private void releaseNode(int node){
+        _leftSon[node] = _freeList;
+        _freeList = node;
+    }
+
+    /**
+     * Releases all the slots of a tree, by a walk that releases every node after its left subtree (the left son array
+     * of a released node links the free list, so the right son is read first). The current tree doesn't change.
+     * Time complexity: Θ(k), where k is the number of elements in the tree.
+     *
+     * @param node the root of the tree
+     */
+    void releaseTree(int node){
+        while (!isNilT(node)){
+            releaseTree(_leftSon[node]);
+            int rightSon = _rightSon[node];
+            releaseNode(node);
+            node = rightSon;
+        }
+    }
+
+    // The links and the color of a node, read and written by the red-black tree code below (which is shared with
+    // RBTreePlus - see tools/template/RBTreeCore.template)
+    private int parent(int node){
+        return _parent[node];
+    }
+
+    private int leftSon(int node){
+        return _leftSon[node];
+    }
+
+    private int rightSon(int node){
+        return _rightSon[node];
+    }
+
+    private byte color(int node){
+        return _color[node];
+    }
+
+    private void setParent(int node, int parent){
+        _parent[node] = parent;
+    }
+
+    private void setLeftSon(int node, int leftSon){
+        _leftSon[node] = leftSon;
+    }
+
+    private void setRightSon(int node, int rightSon){
+        _rightSon[node] = rightSon;
+    }
+
+    private void setColor(int node, byte color){
+        _color[node] = color;
+    }
+
+    /**
+     * Performs a left rotation of the current tree on node x.
+     * Time complexity: Θ(1) (as explained in the book, page 234)
+     *
+     * @param x the node on which the rotation is executed
+     */
+    private void leftRotate(int x){
+        int y = rightSon(x); // set y to x's right son
+        if (!isNilT(y)){ // the rotation can only be executed if y isn't nilT (as explained in the book, page 234)
+            int yLeftSon = leftSon(y);
+            setRightSon(x, yLeftSon); // turn y's left subtree into x's right subtree
+            if (!isNilT(yLeftSon)){
+                setParent(yLeftSon, x);
+            }
+            int xParent = parent(x);
+            setParent(y, xParent); // link x's parent to y
+            if (isNilT(xParent)){
+                _root = y;
+            } else if (x == leftSon(xParent)){ // if x is his father's left son
+                setLeftSon(xParent, y);
+            } else {
+                setRightSon(xParent, y);
+            }
+            setLeftSon(y, x);
+            setParent(x, y);
+        }
+    }
+
+    /**
+     * Performs a right rotation of the current tree on node y.
+     * Time complexity: Θ(1) (as explained in the book, page 234, symmetrical to leftRotate)
+     *
+     * @param y the node on which the rotation is executed
+     */
+    private void rightRotate(int y){
+        int x = leftSon(y); // set x to y's left son
+        if (!isNilT(x)){ // the rotation can only be executed if x isn't nilT (as explained in the book, page 234)
+            int xRightSon = rightSon(x);
+            setLeftSon(y, xRightSon); // turn x's right subtree into y's left subtree
+            if (!isNilT(xRightSon)){
+                setParent(xRightSon, y);
+            }
+            int yParent = parent(y);
+            setParent(x, yParent); // link y's parent to x
+            if (isNilT(yParent)){
+                _root = x;
+            } else if (y == rightSon(yParent)){ // if y is his father's right son
+                setRightSon(yParent, x);
+            } else {
+                setLeftSon(yParent, x);
+            }
+            setRightSon(x, y);
+            setParent(y, x);
+        }
+    }
+
+    /**
+     * Restores the red-black tree properties of the tree after z's insertion.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param z the input node that was inserted to the tree
+     * @return true if the root was red before it was colored black (so the black-height of the tree grew by one)
+     */
+    private boolean insertFixup(int z){
+        int zParent = parent(z);
+        while (color(zParent) == RED){
+            int zGrandpa = parent(zParent);
+            if (zParent == leftSon(zGrandpa)){ // if z's parent is his parent's left son
+                int zUncle = rightSon(zGrandpa);
+                if (color(zUncle) == RED){
+                    // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
+                    setColor(zParent, BLACK);
+                    setColor(zUncle, BLACK);
+                    setColor(zGrandpa, RED);
+                    z = zGrandpa;
+                } else {
+                    if (z == rightSon(zParent)){
+                        // case 2: z is his father's right son - perform left rotation on z's parent
+                        z = zParent;
+                        leftRotate(z);
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
+                    }
+                    // case 3: z is his father's left son - recolor z's parent and grandpa and perform
+                    // right rotation on grandpa
+                    setColor(zParent, BLACK);
+                    setColor(zGrandpa, RED);
+                    rightRotate(zGrandpa);
+                }
+            } else { // if z's parent is his parent's right son (symmetrical to z's parent is his father's left son)
+                int zUncle = leftSon(zGrandpa);
+                if (color(zUncle) == RED){
+                    // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
+                    setColor(zParent, BLACK);
+                    setColor(zUncle, BLACK);
+                    setColor(zGrandpa, RED);
+                    z = zGrandpa;
+                } else {
+                    if (z == leftSon(zParent)){
+                        // case 2: z is his father's left son - perform right rotation on z's parent
+                        z = zParent;
+                        rightRotate(z);
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
+                    }
+                    // case 3: z is his father's right son - recolor z's parent and grandpa and perform
+                    // left rotation on grandpa
+                    setColor(zParent, BLACK);
+                    setColor(zGrandpa, RED);
+                    leftRotate(zGrandpa);
+                }
+            }
+            zParent = parent(z); // continue from z's parent (z moved up in case 1)
+        } // end of while
+        // case 0: fix the root's color to correct property num. 2 of red-black tree
+        boolean rootWasRed = color(_root) == RED;
+        setColor(_root, BLACK);
+        return rootWasRed;
+    }
+
+    /**
+     * Restores the red-black tree properties of the tree after a deletion. Since x may be nilT, whose parent is never
+     * set (nilT may be shared by several trees), x's parent is kept in a variable.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param x the node that replaced the deleted node in the tree
+     * @param xParent x's parent
+     */
+    private void deleteFixup(int x, int xParent){
+        while (x != _root && color(x) == BLACK){
+            int w;
+            if (x == leftSon(xParent)){ // x is a left son
+                w = rightSon(xParent);
+                if (color(w) == RED){
+                    // case 1: w (x's brother) is red
+                    setColor(w, BLACK);
+                    setColor(xParent, RED);
+                    leftRotate(xParent);
+                    w = rightSon(xParent);
+                }
+
+                if (color(leftSon(w)) == BLACK &&
+                        color(rightSon(w)) == BLACK){
+                    // case 2: w and his sons are black
+                    setColor(w, RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(rightSon(w)) == BLACK){
+                        // case 3: w is black, w's left son is red and w's right son is black
+                        setColor(leftSon(w), BLACK);
+                        setColor(w, RED);
+                        rightRotate(w);
+                        w = rightSon(xParent);
+                    }
+                    // case 4: w is black and w's right son is red
+                    setColor(w, color(xParent));
+                    setColor(xParent, BLACK);
+                    setColor(rightSon(w), BLACK);
+                    leftRotate(xParent);
+                    x = _root;
+                }
+
+            } else { // x is a right son (symmetrical to x is a left son)
+                w = leftSon(xParent);
+                if (color(w) == RED){
+                    // case 1: w (x's brother) is red
+                    setColor(w, BLACK);
+                    setColor(xParent, RED);
+                    rightRotate(xParent);
+                    w = leftSon(xParent);
+                }
+
+                if (color(rightSon(w)) == BLACK &&
+                        color(leftSon(w)) == BLACK){
+                    // case 2: w and his sons are black
+                    setColor(w, RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(leftSon(w)) == BLACK){
+                        // case 3: w is black, w's right son is red and w's left son is black
+                        setColor(rightSon(w), BLACK);
+                        setColor(w, RED);
+                        leftRotate(w);
+                        w = leftSon(xParent);
+                    }
+                    // case 4: w is black and w's left son is red
+                    setColor(w, color(xParent));
+                    setColor(xParent, BLACK);
+                    setColor(leftSon(w), BLACK);
+                    rightRotate(xParent);
+                    x = _root;
+                }
+            }
+        } // end of while
+        if (!isNilT(x)){
+            setColor(x, BLACK);
+        }
+    }
+
+    /**
+     * Finds the node with the maximum key in a tree rooted in a given node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 217).
+     *
+     * @return the node with the maximum key
+     */
+    private int treeMaxNode(int node){
+        while (!isNilT(rightSon(node))){
+            node = rightSon(node);
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node with the minimum key in a tree rooted in a given node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 217).
+     *
+     * @return the node with the minimum key
+     */
+    private int treeMinNode(int node){
+        while (!isNilT(leftSon(node))){
+            node = leftSon(node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns a node which is the predecessor of the input node (nilT if the input node has the minimum key).
+     * In order to find the predecessor, the method first checks if the node has a left son. If so - the predecessor
+     * is the maximum of left son's subtree (to find this maximum - treeMaxNode method is used). Otherwise, the
+     * predecessor is the node's lowest ancestor that has a right son who is also an ancestor of the node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the predecessor node
+     */
+    int predecessor(int node){
+        if (!isNilT(leftSon(node))){ // if the node has a left son
+            return treeMaxNode(leftSon(node));
+        }
+        // if the node doesn't have a left son
+        int y = parent(node);
+        while (!isNilT(y) && node == leftSon(y)){
+            node = y;
+            y = parent(y);
+        }
+        return y;
+    }
+
+    /**
+     * Returns a node which is the successor of the input node (nilT if the input node has the maximum key).
+     * In order to find the successor, the method first checks if the node has a right son. If so - the successor
+     * is the minimum of right son's subtree (to find this minimum - treeMinNode method is used). Otherwise, the
+     * successor is the node's lowest ancestor that has a left son who is also an ancestor of the node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the successor node
+     */
+    int successor(int node){
+        if (!isNilT(rightSon(node))){ // if the node has a right son
+            return treeMinNode(rightSon(node));
+        }
+        // if the node doesn't have a right son
+        int y = parent(node);
+        while (!isNilT(y) && node == rightSon(y)){
+            node = y;
+            y = parent(y);
+        }
+        return y;
+    }
+
+
+    /**
+     * Gets a key and inserts a node with this key into the current tree, in a free slot.
+     * Increments the number of elements in the tree.
+     * Uses a method named insertFixup to maintain the red-black tree properties.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param key the key to be inserted into the tree
+     * @return the slot of the inserted node
+     */
+    int insert(int key){
+        // z is the node to be inserted - z's key is set to the input key and it is colored red based on the insertion
+        // algorithm in the book (page 236)
+        int z = allocateNode();
+        _key[z] = key;
+        _color[z] = RED;
+        int y = NIL_T;
+        int x = _root;
+        while (!isNilT(x)){ // find the right place to insert z node
+            y = x;
+            if (key < _key[x]){
+                x = _leftSon[x];
+            } else {
+                x = _rightSon[x];
+            }
+        }
+        _parent[z] = y;
+        if (isNilT(y)){ // if the tree was empty - z is the root
+            _root = z;
+        } else if (key < _key[y]){
+            _leftSon[y] = z;
+        } else {
+            _rightSon[y] = z;
+        }
+        _leftSon[z] = NIL_T;
+        _rightSon[z] = NIL_T;
+        if (isNilT(_maxNode) || key >= _key[_maxNode]){ // if z's key is greater/equal to maximum - set _max to z
+            _maxNode = z;
+        }
+        insertFixup(z);
+        _numOfElements++;
+        return z;
+    }
+
+    /**
+     * Offers a key to the current tree, which keeps the capacity (k) lowest keys offered to it, in the same way as
+     * RBTreePlus.offer. When the max node is replaced, its slot is released by delete and reused by insert.
+     * Time complexity: Θ(1) for a rejected key, Θ(logk) otherwise, where k is the capacity of the tree.
+     *
+     * @param key the offered key
+     * @param capacity the max. number of elements kept in the tree (k)
+     * @return true if the key was added to the tree
+     */
+    boolean offer(int key, int capacity){
+        if (_numOfElements < capacity){ // if there are less than k elements - insert into the tree
+            insert(key);
+            return true;
+        }
+        int maxNode = _maxNode;
+        if (isNilT(maxNode) || key >= _key[maxNode]){
+            return false;
+        }
+        // the max node has no right son, so its predecessor is its left son (a red leaf) or its parent
+        int maxPredNode = isNilT(_leftSon[maxNode]) ? _parent[maxNode] : _leftSon[maxNode];
+        if (isNilT(maxPredNode) || key >= _key[maxPredNode]){ // if key is the new maximum - changes the max key
+            _key[maxNode] = key;
+        } else { // if key isn't the new maximum - deletes the max node and inserts key into its slot
+            delete(maxNode);
+            _maxNode = maxPredNode;
+            insert(key);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the node with the minimum key in the current tree.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @return the node with the minimum key (nilT if the tree is empty)
+     */
+    int minNode(){
+        return isNilT(_root) ? NIL_T : treeMinNode(_root);
+    }
+
+
+    /**
+     * Deletes a node from the current tree, and uses deleteFixup method to restore the red-black tree properties.
+     * The slot that is spliced out of the tree is added to the free list, so its key remains readable only until
+     * the next insert.
+     * Decrements the number of elements in the tree.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param z the node to be deleted
+     * @return the released slot
+     */
+    int delete(int z){
+        int y, x;
+        if (isNilT(_leftSon[z]) || isNilT(_rightSon[z])){
+            y = z;
+        } else {
+            y = successor(z);
+        }
+        if (!isNilT(_leftSon[y])){
+            x = _leftSon[y];
+        } else {
+            x = _rightSon[y];
+        }
+        int yParent = _parent[y];
+        if (!isNilT(x)){ // nilT is shared by all the trees, so x's parent is passed to deleteFixup instead
+            _parent[x] = yParent;
+        }
+        if (isNilT(yParent)){
+            _root = x;
+        } else if (y == _leftSon[yParent]){
+            _leftSon[yParent] = x;
+        } else {
+            _rightSon[yParent] = x;
+        }
+        if (y != z){
+            _key[z] = _key[y];
+        }
+        if (_color[y] == BLACK){
+            // the fixup should be performed only if the deleted node was black, as a red node deletion does not
+            // violate red-black properties of the tree
+            deleteFixup(x, yParent);
+        }
+        releaseNode(y);
+        _numOfElements--;
+        return y;
+    }
+
+    /**
+     * Copies the keys of the current tree into an array in ascending order, by an iterative inorder walk (starts at
+     * the node with the minimum key and moves to the successor of each node).
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     *
+     * @param keys the array into which the keys are copied (must have room for all the elements)
+     * @return the number of keys copied
+     */
+    int copyKeys(int[] keys){
+        int count = 0;
+        if (!isNilT(_root)){
+            for (int node = treeMinNode(_root); !isNilT(node); node = successor(node)){
+                keys[count++] = _key[node];
+            }
+        }
+        return count;
+    }
+}
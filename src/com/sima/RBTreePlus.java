@@ -1,218 +1,414 @@
+// Generated by tools/GenerateVariants.java from tools/template/RBTreePlus.template - don't edit.
 package com.sima;
 
+import java.nio.IntBuffer;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import com.sima.TreeStats.Counter;
+
 /**
  * This class represents the data structure that I chose for keeping the k lowest elements from the array.
  * The data structure consists of:
  * 1. Red black tree (chosen to fulfill assignment's requirement of inserting element in Θ(logk) time complexity).
  * 2. The node with the max key (by value) in the tree.
  * 3. A variable for the number of elements in the tree.
+ * 4. An optional capacity - a bounded tree keeps only the lowest keys offered to it (see offer).
+ * Every node also holds the size of its subtree (an order-statistic tree, as explained in the book, page 340), so the
+ * j-th lowest key, the rank of a key and the number of keys in a range are found in Θ(logk) (see select, rank and
+ * countInRange) instead of an inorder walk of the whole tree.
+ * A multiset tree keeps a single node for each distinct key, with the number of occurrences of the key - inserting an
+ * existing key only increments its count, and evicting an occurrence of the max key only decrements it, so for keys
+ * with many duplicates the tree has a node per distinct key and most insertions need no rebalancing. The sizes of the
+ * subtrees count occurrences, so the number of elements, select, rank and the printed keys are the same as in a tree
+ * with a node per element.
+ * A bounded tree is one of the engines of AdaptiveKLowest (see KLowestEngine).
  *
  * @author Sima Margulis Davidi
  * @version 30-07-2017
  */
 
-public class RBTreePlus {
+public class RBTreePlus implements KLowestEngine {
+
+    // The number of keys filtered at a time by offerAll, and the number of nodes of a multiset tree after split or
+    // join (the sizes of the subtrees count occurrences, so the nodes are counted again when they're needed)
+    private static final int FILTER_BLOCK = 256;
+    private static final int UNKNOWN = -1;
 
-    // Instance variables - root of the tree, nilT node (the sentinel), pointer to the node with the max key and
-    // number of elements in the tree
+    // The sentinel (nilT) of all the trees - it's never changed (it has no parent, see deleteFixup), so trees can be
+    // used by different threads, and nodes that move between trees by split and join keep their links to nilT
+    private static final RBTreePlusNode NIL_T = createNilT();
+
+    // Instance variables - root of the tree, nilT node (the sentinel), pointer to the node with the max key,
+    // number of elements (occurrences) and nodes in the tree, the max. number of elements kept by offer, whether the
+    // tree is a multiset, a node that was left unused by an insertion of an existing key (reused by insert) and the
+    // recorder of the keys that enter and leave the tree (null if the changes aren't recorded)
     private RBTreePlusNode _root, _nilT;
     private RBTreePlusNode _maxNode;
-    private int _numOfElements;
+    private int _numOfElements, _numOfNodes;
+    private int _capacity;
+    private boolean _multiset;
+    private RBTreePlusNode _spare;
+    private int[] _survivors; // keys of a block that passed the filter of offerAll (allocated on first use)
+    private int[] _block; // keys of a block of a direct buffer, copied for offerAll (allocated on first use)
+    private KeyChangeRecorder _changes;
 
     /**
-     * Constructor - initializes the nilT node (assigns a key of the minimum integer value, so it won't affect the max
-     * node in the tree, and assigns a black color to it as per sentinel definition in red-black trees), sets the
-     * pointers of root and max node to nilT, and sets the number of elements to 0.
+     * Constructor - creates an unbounded tree (offer inserts every key).
      */
     public RBTreePlus() {
-        _nilT = new RBTreePlusNode(Integer.MIN_VALUE, RBTreePlusNode.Color.BLACK);
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor - creates a tree with a node per element.
+     *
+     * @param capacity the max. number of elements kept by offer (k)
+     */
+    public RBTreePlus(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Constructor - sets the nilT node to the sentinel shared by all the trees (see NIL_T), sets the pointers of root
+     * and max node to nilT, sets the number of elements to 0 and the capacity and the multiset mode to the input
+     * values.
+     *
+     * @param capacity the max. number of elements kept by offer (k)
+     * @param multiset true for a node per distinct key (with the number of its occurrences)
+     */
+    public RBTreePlus(int capacity, boolean multiset) {
+        _nilT = NIL_T;
         _root = _nilT;
         _maxNode = _nilT;
         _numOfElements = 0;
+        _numOfNodes = 0;
+        _capacity = capacity;
+        _multiset = multiset;
     }
 
-    // Getters for the num. of elements and max. node
+    // Getters for the num. of elements, num. of nodes, capacity, multiset mode and max. node
+    @Override
     public int getNumOfElements() {
         return _numOfElements;
     }
 
+    public int getNumOfNodes() {
+        if (_numOfNodes == UNKNOWN){
+            _numOfNodes = 0;
+            for (RBTreePlusNode node = isNilT(_root) ? _nilT : treeMinNode(_root); !isNilT(node);
+                 node = successor(node)){
+                _numOfNodes++;
+            }
+        }
+        return _numOfNodes;
+    }
+
+    public boolean isMultiset() {
+        return _multiset;
+    }
+
+    @Override
+    public int getCapacity() {
+        return _capacity;
+    }
+
     public RBTreePlusNode getMaxNode() {
         return _maxNode;
     }
 
-    // Setter for the max node
+    // Setters for the max node and the recorder of the changes (null to stop recording)
     public void setMaxNode(RBTreePlusNode max) {
         _maxNode = max;
     }
-    
+
+    public void setChangeRecorder(KeyChangeRecorder changes) {
+        _changes = changes;
+    }
+
     /**
      * Checks whether the input node is the sentinel - nilT.
-     * Since nilT is the only node which key is the minimum integer value, the method only checks the key of
-     * the input node, which results in a time complexity of Θ(1).
+     * The node is compared by identity (and not by a reserved key), so every int value can be a key of the tree.
+     * Time complexity: Θ(1).
      *
      * @param node the input node
      * @return true if the node is nilT
      */
     private boolean isNilT(RBTreePlusNode node){
-        if (node.getKey() == Integer.MIN_VALUE){
-            return true;
-        }
-        return false;
+        return node == _nilT;
+    }
+
+    // Creates the sentinel - a black empty subtree (its key of the minimum integer value only makes every key greater
+    // than or equal to the key of the max node of an empty tree)
+    private static RBTreePlusNode createNilT(){
+        RBTreePlusNode nilT = new RBTreePlusNode(Integer.MIN_VALUE, RBTreePlusNode.Color.BLACK);
+        nilT.setSize(0);
+        return nilT;
+    }
+
+    // Compares two keys (negative if a is lower than b, 0 if they are equal, positive otherwise)
+    private static int compare(int a, int b){
+        return Integer.compare(a, b);
+    }
+
+    // The links and the color of a node, read and written by the red-black tree code below (which is shared with the
+    // trees of slots of RBSlotArena - see tools/template/RBTreeCore.template)
+    private RBTreePlusNode parent(RBTreePlusNode node){
+        return node.getParent();
+    }
+
+    private RBTreePlusNode leftSon(RBTreePlusNode node){
+        return node.getLeftSon();
+    }
+
+    private RBTreePlusNode rightSon(RBTreePlusNode node){
+        return node.getRightSon();
+    }
+
+    private RBTreePlusNode.Color color(RBTreePlusNode node){
+        return node.getColor();
+    }
+
+    private void setParent(RBTreePlusNode node, RBTreePlusNode parent){
+        node.setParent(parent);
+    }
+
+    private void setLeftSon(RBTreePlusNode node, RBTreePlusNode leftSon){
+        node.setLeftSon(leftSon);
+    }
+
+    private void setRightSon(RBTreePlusNode node, RBTreePlusNode rightSon){
+        node.setRightSon(rightSon);
+    }
+
+    private void setColor(RBTreePlusNode node, RBTreePlusNode.Color color){
+        node.setColor(color);
     }
 
     /**
-     * Performs a left rotation of the tree on node x.
+     * Performs a left rotation of the tree on node x, and updates the sizes of the subtrees of x and y (the only
+     * subtrees that change, as explained in the book, page 343).
      * Time complexity: Θ(1) (as explained in the book, page 234)
      *
      * @param x the node on which the rotation is executed
      */
     private void leftRotate(RBTreePlusNode x){
-        RBTreePlusNode y = x.getRightSon(); // set y to x's right son
+        RBTreePlusNode y = rightSon(x); // set y to x's right son
         if (!isNilT(y)){ // the rotation can only be executed if y isn't nilT (as explained in the book, page 234)
-            RBTreePlusNode yLeftSon = y.getLeftSon();
-            x.setRightSon(yLeftSon); // turn y's left subtree into x's right subtree
+            TreeStats.count(Counter.LEFT_ROTATIONS);
+            RBTreePlusNode yLeftSon = leftSon(y);
+            setRightSon(x, yLeftSon); // turn y's left subtree into x's right subtree
             if (!isNilT(yLeftSon)){
-                yLeftSon.setParent(x);
+                setParent(yLeftSon, x);
             }
-            RBTreePlusNode xParent = x.getParent();
-            y.setParent(xParent); // link x's parent to y
+            RBTreePlusNode xParent = parent(x);
+            setParent(y, xParent); // link x's parent to y
             if (isNilT(xParent)){
                 _root = y;
-            } else if (x.equals(xParent.getLeftSon())){ // if x is his father's left son
-                xParent.setLeftSon(y);
+            } else if (x == leftSon(xParent)){ // if x is his father's left son
+                setLeftSon(xParent, y);
             } else {
-                xParent.setRightSon(y);
+                setRightSon(xParent, y);
             }
-            y.setLeftSon(x);
-            x.setParent(y);
+            setLeftSon(y, x);
+            setParent(x, y);
+            y.setSize(x.getSize()); // y's subtree has the nodes that were in x's subtree
+            updateSize(x);
         }
     }
 
     /**
-     * Performs a right rotation of the tree on node y.
+     * Performs a right rotation of the tree on node y, and updates the sizes of the subtrees of y and x.
      * Time complexity: Θ(1) (as explained in the book, page 234, symmetrical to leftRotate)
      *
      * @param y the node on which the rotation is executed
      */
     private void rightRotate(RBTreePlusNode y){
-        RBTreePlusNode x = y.getLeftSon(); // set x to y's left son
-        if (!isNilT(x)) { // the rotation can only be executed if x isn't nilT (as explained in the book, page 234)
-            RBTreePlusNode xRightSon = x.getRightSon();
-            y.setLeftSon(xRightSon); // turn x's right subtree into y's left subtree
-            if (!isNilT(xRightSon)) {
-                xRightSon.setParent(y);
+        RBTreePlusNode x = leftSon(y); // set x to y's left son
+        if (!isNilT(x)){ // the rotation can only be executed if x isn't nilT (as explained in the book, page 234)
+            TreeStats.count(Counter.RIGHT_ROTATIONS);
+            RBTreePlusNode xRightSon = rightSon(x);
+            setLeftSon(y, xRightSon); // turn x's right subtree into y's left subtree
+            if (!isNilT(xRightSon)){
+                setParent(xRightSon, y);
             }
-            RBTreePlusNode yParent = y.getParent();
-            x.setParent(yParent); // link y's parent to x
-            if (isNilT(yParent)) {
+            RBTreePlusNode yParent = parent(y);
+            setParent(x, yParent); // link y's parent to x
+            if (isNilT(yParent)){
                 _root = x;
-            } else if (y.equals(yParent.getRightSon())) { // if y is his father's right son
-                yParent.setRightSon(x);
+            } else if (y == rightSon(yParent)){ // if y is his father's right son
+                setRightSon(yParent, x);
             } else {
-                yParent.setLeftSon(x);
+                setLeftSon(yParent, x);
             }
-            x.setRightSon(y);
-            y.setParent(x);
+            setRightSon(x, y);
+            setParent(y, x);
+            x.setSize(y.getSize()); // x's subtree has the nodes that were in y's subtree
+            updateSize(y);
         }
     }
 
-    /**
-     * Gets a key and inserts a node with this key into the red-black tree.
-     * Increments the number of elements in the tree.
-     * Uses a method named insertFixup to maintain the red-black tree properties.
-     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
-     *
-     * @param key the key to be inserted into the tree
-     */
-    public void insert(int key){
-        // z is the node to be inserted - z's key is set to the input key and it is colored red based on the insertion
-        // algorithm in the book (page 236)
-        RBTreePlusNode z = new RBTreePlusNode(key, RBTreePlusNode.Color.RED);
-        RBTreePlusNode y = _nilT;
-        RBTreePlusNode x = _root;
-        while (!isNilT(x)){ // find the right place to insert z node
-            y = x;
-            if (z.getKey() < x.getKey()){
-                x = x.getLeftSon();
-            } else {
-                x = x.getRightSon();
-            }
-        }
-        z.setParent(y);
-        if (isNilT(y)){ // if the tree was empty - z is the root
-            _root = z;
-        } else if (z.getKey() < y.getKey()){
-            y.setLeftSon(z);
-        } else {
-            y.setRightSon(z);
-        }
-        z.setLeftSon(_nilT);
-        z.setRightSon(_nilT);
-        if (z.getKey() >= _maxNode.getKey()){ // if z's key is greater/equal to maximum - set _max to point to z
-            _maxNode = z;
-        }
-        insertFixup(z);
-        _numOfElements++;
-    }
-
     /**
      * Restores the red-black tree properties of the tree after z's insertion.
      * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
      *
      * @param z the input node that was inserted to the tree
+     * @return true if the root was red before it was colored black (so the black-height of the tree grew by one)
      */
-    private void insertFixup(RBTreePlusNode z){
-        RBTreePlusNode zParent = z.getParent();
-        while (zParent.getColor() == RBTreePlusNode.Color.RED){
-            RBTreePlusNode zGrandpa = zParent.getParent();
-            if (zParent.equals(zGrandpa.getLeftSon())){ // if z's parent is his parent's left son
-                RBTreePlusNode zUncle = zGrandpa.getRightSon();
-                if (zUncle.getColor() == RBTreePlusNode.Color.RED){
+    private boolean insertFixup(RBTreePlusNode z){
+        RBTreePlusNode zParent = parent(z);
+        while (color(zParent) == RBTreePlusNode.Color.RED){
+            RBTreePlusNode zGrandpa = parent(zParent);
+            if (zParent == leftSon(zGrandpa)){ // if z's parent is his parent's left son
+                RBTreePlusNode zUncle = rightSon(zGrandpa);
+                if (color(zUncle) == RBTreePlusNode.Color.RED){
                     // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
-                    zParent.setColor(RBTreePlusNode.Color.BLACK);
-                    zUncle.setColor(RBTreePlusNode.Color.BLACK);
-                    zGrandpa.setColor(RBTreePlusNode.Color.RED);
+                    TreeStats.count(Counter.INSERT_FIXUP_CASE_1);
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zUncle, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
                     z = zGrandpa;
-                } else{
-                    if (z.equals(zParent.getRightSon())){
+                } else {
+                    if (z == rightSon(zParent)){
                         // case 2: z is his father's right son - perform left rotation on z's parent
+                        TreeStats.count(Counter.INSERT_FIXUP_CASE_2);
                         z = zParent;
                         leftRotate(z);
-                        zParent = z.getParent(); // get z's parent after rotation to use in case 3
-                        zGrandpa = zParent.getParent(); // get z's grandpa after rotation to use in case 3
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
                     }
                     // case 3: z is his father's left son - recolor z's parent and grandpa and perform
                     // right rotation on grandpa
-                    zParent.setColor(RBTreePlusNode.Color.BLACK);
-                    zGrandpa.setColor(RBTreePlusNode.Color.RED);
+                    TreeStats.count(Counter.INSERT_FIXUP_CASE_3);
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
                     rightRotate(zGrandpa);
                 }
             } else { // if z's parent is his parent's right son (symmetrical to z's parent is his father's left son)
-                RBTreePlusNode zUncle = zGrandpa.getLeftSon();
-                if (zUncle.getColor() == RBTreePlusNode.Color.RED){
+                RBTreePlusNode zUncle = leftSon(zGrandpa);
+                if (color(zUncle) == RBTreePlusNode.Color.RED){
                     // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
-                    zParent.setColor(RBTreePlusNode.Color.BLACK);
-                    zUncle.setColor(RBTreePlusNode.Color.BLACK);
-                    zGrandpa.setColor(RBTreePlusNode.Color.RED);
+                    TreeStats.count(Counter.INSERT_FIXUP_CASE_1);
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zUncle, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
                     z = zGrandpa;
-                } else{
-                    if (z.equals(zParent.getLeftSon())){
+                } else {
+                    if (z == leftSon(zParent)){
                         // case 2: z is his father's left son - perform right rotation on z's parent
+                        TreeStats.count(Counter.INSERT_FIXUP_CASE_2);
                         z = zParent;
                         rightRotate(z);
-                        zParent = z.getParent(); // get z's parent after rotation to use in case 3
-                        zGrandpa = zParent.getParent(); // get z's grandpa after rotation to use in case 3
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
                     }
                     // case 3: z is his father's right son - recolor z's parent and grandpa and perform
                     // left rotation on grandpa
-                    zParent.setColor(RBTreePlusNode.Color.BLACK);
-                    zGrandpa.setColor(RBTreePlusNode.Color.RED);
+                    TreeStats.count(Counter.INSERT_FIXUP_CASE_3);
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
                     leftRotate(zGrandpa);
                 }
             }
+            zParent = parent(z); // continue from z's parent (z moved up in case 1)
         } // end of while
         // case 0: fix the root's color to correct property num. 2 of red-black tree
-        _root.setColor(RBTreePlusNode.Color.BLACK);
+        boolean rootWasRed = color(_root) == RBTreePlusNode.Color.RED;
+        setColor(_root, RBTreePlusNode.Color.BLACK);
+        return rootWasRed;
+    }
+
+    /**
+     * Restores the red-black tree properties of the tree after a deletion. Since x may be nilT, whose parent is never
+     * set (nilT may be shared by several trees), x's parent is kept in a variable.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param x the node that replaced the deleted node in the tree
+     * @param xParent x's parent
+     */
+    private void deleteFixup(RBTreePlusNode x, RBTreePlusNode xParent){
+        while (x != _root && color(x) == RBTreePlusNode.Color.BLACK){
+            RBTreePlusNode w;
+            if (x == leftSon(xParent)){ // x is a left son
+                w = rightSon(xParent);
+                if (color(w) == RBTreePlusNode.Color.RED){
+                    // case 1: w (x's brother) is red
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_1);
+                    setColor(w, RBTreePlusNode.Color.BLACK);
+                    setColor(xParent, RBTreePlusNode.Color.RED);
+                    leftRotate(xParent);
+                    w = rightSon(xParent);
+                }
+
+                if (color(leftSon(w)) == RBTreePlusNode.Color.BLACK &&
+                        color(rightSon(w)) == RBTreePlusNode.Color.BLACK){
+                    // case 2: w and his sons are black
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_2);
+                    setColor(w, RBTreePlusNode.Color.RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(rightSon(w)) == RBTreePlusNode.Color.BLACK){
+                        // case 3: w is black, w's left son is red and w's right son is black
+                        TreeStats.count(Counter.DELETE_FIXUP_CASE_3);
+                        setColor(leftSon(w), RBTreePlusNode.Color.BLACK);
+                        setColor(w, RBTreePlusNode.Color.RED);
+                        rightRotate(w);
+                        w = rightSon(xParent);
+                    }
+                    // case 4: w is black and w's right son is red
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_4);
+                    setColor(w, color(xParent));
+                    setColor(xParent, RBTreePlusNode.Color.BLACK);
+                    setColor(rightSon(w), RBTreePlusNode.Color.BLACK);
+                    leftRotate(xParent);
+                    x = _root;
+                }
+
+            } else { // x is a right son (symmetrical to x is a left son)
+                w = leftSon(xParent);
+                if (color(w) == RBTreePlusNode.Color.RED){
+                    // case 1: w (x's brother) is red
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_1);
+                    setColor(w, RBTreePlusNode.Color.BLACK);
+                    setColor(xParent, RBTreePlusNode.Color.RED);
+                    rightRotate(xParent);
+                    w = leftSon(xParent);
+                }
+
+                if (color(rightSon(w)) == RBTreePlusNode.Color.BLACK &&
+                        color(leftSon(w)) == RBTreePlusNode.Color.BLACK){
+                    // case 2: w and his sons are black
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_2);
+                    setColor(w, RBTreePlusNode.Color.RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(leftSon(w)) == RBTreePlusNode.Color.BLACK){
+                        // case 3: w is black, w's right son is red and w's left son is black
+                        TreeStats.count(Counter.DELETE_FIXUP_CASE_3);
+                        setColor(rightSon(w), RBTreePlusNode.Color.BLACK);
+                        setColor(w, RBTreePlusNode.Color.RED);
+                        leftRotate(w);
+                        w = leftSon(xParent);
+                    }
+                    // case 4: w is black and w's left son is red
+                    TreeStats.count(Counter.DELETE_FIXUP_CASE_4);
+                    setColor(w, color(xParent));
+                    setColor(xParent, RBTreePlusNode.Color.BLACK);
+                    setColor(leftSon(w), RBTreePlusNode.Color.BLACK);
+                    rightRotate(xParent);
+                    x = _root;
+                }
+            }
+        } // end of while
+        if (!isNilT(x)){
+            setColor(x, RBTreePlusNode.Color.BLACK);
+        }
     }
 
     /**
@@ -222,8 +418,8 @@ public class RBTreePlus {
      * @return the node with the maximum key
      */
     private RBTreePlusNode treeMaxNode(RBTreePlusNode node){
-        while (!isNilT(node.getRightSon())){
-            node = node.getRightSon();
+        while (!isNilT(rightSon(node))){
+            node = rightSon(node);
         }
         return node;
     }
@@ -235,16 +431,16 @@ public class RBTreePlus {
      * @return the node with the minimum key
      */
     private RBTreePlusNode treeMinNode(RBTreePlusNode node){
-        while (!isNilT(node.getLeftSon())){
-            node = node.getLeftSon();
+        while (!isNilT(leftSon(node))){
+            node = leftSon(node);
         }
         return node;
     }
 
     /**
-     * Returns a node which is the predecessor of the input node.
+     * Returns a node which is the predecessor of the input node (nilT if the input node has the minimum key).
      * In order to find the predecessor, the method first checks if the node has a left son. If so - the predecessor
-     * is the the maximum of left son's subtree (to find this maximum - treeMaxNode method is used). Otherwise, the
+     * is the maximum of left son's subtree (to find this maximum - treeMaxNode method is used). Otherwise, the
      * predecessor is the node's lowest ancestor that has a right son who is also an ancestor of the node.
      * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
      *
@@ -252,22 +448,22 @@ public class RBTreePlus {
      * @return the predecessor node
      */
     public RBTreePlusNode predecessor(RBTreePlusNode node){
-        if (!isNilT(node.getLeftSon())){ // if the node has a left son
-            return treeMaxNode(node.getLeftSon());
+        if (!isNilT(leftSon(node))){ // if the node has a left son
+            return treeMaxNode(leftSon(node));
         }
         // if the node doesn't have a left son
-        RBTreePlusNode y = node.getParent();
-        while (!isNilT(y) && node.equals(y.getLeftSon())){
+        RBTreePlusNode y = parent(node);
+        while (!isNilT(y) && node == leftSon(y)){
             node = y;
-            y = y.getParent();
+            y = parent(y);
         }
         return y;
     }
 
     /**
-     * Returns a node which is the successor of the input node.
+     * Returns a node which is the successor of the input node (nilT if the input node has the maximum key).
      * In order to find the successor, the method first checks if the node has a right son. If so - the successor
-     * is the the minimum of right son's subtree (to find this minimum - treeMinNode method is used). Otherwise, the
+     * is the minimum of right son's subtree (to find this minimum - treeMinNode method is used). Otherwise, the
      * successor is the node's lowest ancestor that has a left son who is also an ancestor of the node.
      * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
      *
@@ -275,27 +471,278 @@ public class RBTreePlus {
      * @return the successor node
      */
     public RBTreePlusNode successor(RBTreePlusNode node){
-        if (!isNilT(node.getRightSon())){ // if the node has a right son
-            return treeMinNode(node.getRightSon());
+        if (!isNilT(rightSon(node))){ // if the node has a right son
+            return treeMinNode(rightSon(node));
         }
         // if the node doesn't have a right son
-        RBTreePlusNode y = node.getParent();
-        while (!isNilT(y) && node.equals(y.getRightSon())){
+        RBTreePlusNode y = parent(node);
+        while (!isNilT(y) && node == rightSon(y)){
             node = y;
-            y = y.getParent();
+            y = parent(y);
         }
         return y;
     }
 
+    // Sets the size of the subtree of a node from the sizes of its sons and its number of occurrences
+    private void updateSize(RBTreePlusNode node){
+        node.setSize(node.getLeftSon().getSize() + node.getRightSon().getSize() + node.getCount());
+    }
+
+    /**
+     * Gets a key and inserts a node with this key into the red-black tree.
+     * Increments the number of elements in the tree.
+     * Uses a method named insertFixup to maintain the red-black tree properties.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param key the key to be inserted into the tree
+     */
+    public void insert(int key){
+        if (_changes != null){
+            _changes.entered(key);
+        }
+        // z is the node to be inserted - z's key is set to the input key and it is colored red based on the insertion
+        // algorithm in the book (page 236)
+        RBTreePlusNode z = _spare;
+        if (z == null){
+            z = new RBTreePlusNode(key, RBTreePlusNode.Color.RED);
+        } else { // reuse the node left unused by the previous insertion
+            _spare = null;
+            z.setKey(key);
+            z.setColor(RBTreePlusNode.Color.RED);
+            z.setCount(1);
+        }
+        if (!insertNode(z)){
+            _spare = z;
+        }
+    }
+
+    /**
+     * Inserts a red node that isn't linked to any other node into the red-black tree (used by insert for a new node
+     * and by offer for the evicted max node). In a multiset tree, if a node with the same key exists, its number of
+     * occurrences is incremented instead (and z isn't linked to the tree).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param z the node to be inserted into the tree (with a count of 1)
+     * @return true if z was linked to the tree, false if an existing node's count was incremented
+     */
+    private boolean insertNode(RBTreePlusNode z){
+        RBTreePlusNode y = _nilT;
+        RBTreePlusNode x = _root;
+        while (!isNilT(x)){ // find the right place to insert z node
+            y = x;
+            x.setSize(x.getSize() + 1); // z is added to the subtree of every node on the path
+            TreeStats.count(Counter.COMPARISONS);
+            int c = compare(z.getKey(), x.getKey());
+            if (_multiset && c == 0){ // an existing key - add an occurrence
+                x.setCount(x.getCount() + 1);
+                _numOfElements++;
+                return false;
+            }
+            if (c < 0){
+                x = x.getLeftSon();
+            } else {
+                x = x.getRightSon();
+            }
+        }
+        z.setParent(y);
+        if (isNilT(y)){ // if the tree was empty - z is the root
+            _root = z;
+        } else if (compare(z.getKey(), y.getKey()) < 0){
+            y.setLeftSon(z);
+        } else {
+            y.setRightSon(z);
+        }
+        z.setLeftSon(_nilT);
+        z.setRightSon(_nilT);
+        z.setSize(1);
+        if (isNilT(_maxNode) || compare(z.getKey(), _maxNode.getKey()) >= 0){ // z is the new maximum
+            _maxNode = z;
+        }
+        insertFixup(z);
+        _numOfElements++;
+        if (_numOfNodes != UNKNOWN){
+            _numOfNodes++;
+        }
+        return true;
+    }
+
+    /**
+     * Offers a key to a bounded tree, which keeps the capacity (k) lowest keys offered to it.
+     * If the tree has less than k elements, the key is inserted. Otherwise, a key that isn't smaller than the max key
+     * is rejected in Θ(1), and a smaller key replaces the max key:
+     * 1. If the key isn't smaller than the max node's predecessor, the key of the max node is changed in place.
+     * 2. Otherwise, the max node is removed and inserted again with the new key (no new node is allocated).
+     * Since the max node has no right son, its predecessor is its left son (a red leaf) if it has one, or its parent
+     * otherwise - so the predecessor is found and the max node is removed in Θ(1), except for a black leaf, which
+     * needs deleteFixup.
+     * In a multiset tree, if the max key has more than one occurrence, one occurrence is removed by decrementing its
+     * count, and the key is inserted (or its count is incremented).
+     * Time complexity: Θ(1) for a rejected key, Θ(logk) otherwise, where k is the capacity of the tree.
+     *
+     * @param key the offered key
+     * @return true if the key was added to the tree
+     */
+    @Override
+    public boolean offer(int key){
+        if (_numOfElements < _capacity){ // if there are less than k elements - insert into the tree
+            insert(key);
+            return true;
+        }
+        RBTreePlusNode maxNode = _maxNode;
+        TreeStats.count(Counter.COMPARISONS);
+        if (_numOfElements == 0 || compare(key, maxNode.getKey()) >= 0){
+            TreeStats.count(Counter.REJECTIONS);
+            return false;
+        }
+        if (maxNode.getCount() > 1){ // remove one occurrence of the max key and insert the key
+            TreeStats.count(Counter.OCCURRENCE_REPLACEMENTS);
+            removeOccurrence(maxNode);
+            insert(key);
+            return true;
+        }
+        RBTreePlusNode maxPredNode = maxNode.getLeftSon(); // used for the predecessor of the max node
+        if (isNilT(maxPredNode)){
+            maxPredNode = maxNode.getParent();
+        }
+        TreeStats.count(Counter.COMPARISONS);
+        if (isNilT(maxPredNode) || key > maxPredNode.getKey() || (key == maxPredNode.getKey() && !_multiset)){
+            // if key is the new maximum (or the max node is the only node) - changes the key of the max node
+            TreeStats.count(Counter.IN_PLACE_REPLACEMENTS);
+            if (_changes != null){
+                _changes.evicted(maxNode.getKey(), 1);
+                _changes.entered(key);
+            }
+            maxNode.setKey(key);
+        } else { // if key isn't the new maximum - removes the max node and inserts it again with the key
+            TreeStats.count(Counter.FULL_REPLACEMENTS);
+            delete(maxNode);
+            _maxNode = maxPredNode;
+            if (_changes != null){
+                _changes.entered(key);
+            }
+            maxNode.setKey(key);
+            maxNode.setColor(RBTreePlusNode.Color.RED);
+            maxNode.setCount(1);
+            if (!insertNode(maxNode)){ // the key is in the tree (a multiset) - keep the node for the next insertion
+                _spare = maxNode;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Offers the keys of a part of an array to a bounded tree, in the same way as offer.
+     * Once the tree has k elements, the keys are filtered in blocks - every key of the block is compared with the max.
+     * key and only the smaller keys (survivors) are compacted into a buffer, without a branch per key (the
+     * comparison result is added to the buffer index). Only the survivors are offered, so for random data and a
+     * small k most of the keys are handled by a tight compare-and-copy loop.
+     * Time complexity: Θ(m) for the filter + Θ(logk) for each survivor, where m is the number of keys.
+     *
+     * @param keys the array
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @return the number of keys that were added to the tree
+     */
+    public int offerAll(int[] keys, int from, int to){
+        int added = 0;
+        int i = from;
+        while (i < to && _numOfElements < _capacity){ // if there are less than k elements - insert into the tree
+            insert(keys[i++]);
+            added++;
+        }
+        if (i == to || _numOfElements == 0){
+            return added;
+        }
+        int[] survivors = survivorsBuffer();
+        while (i < to){
+            int end = Math.min(to, i + FILTER_BLOCK);
+            int max = _maxNode.getKey();
+            int count = 0;
+            int blockStart = i;
+            for (; i < end; i++){
+                int key = keys[i];
+                survivors[count] = key;
+                count += key < max ? 1 : 0;
+            }
+            TreeStats.add(Counter.COMPARISONS, end - blockStart);
+            TreeStats.add(Counter.REJECTIONS, end - blockStart - count);
+            for (int j = 0; j < count; j++){ // the max. key may have become smaller, so offer checks again
+                if (offer(survivors[j])){
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Offers the keys of a part of a buffer to a bounded tree, in the same way as offerAll(int[], int, int). The keys
+     * of a direct (or mapped) buffer are copied in blocks into an array, which is filtered by offerAll(int[], int, int)
+     * (the keys are read through a duplicate of the buffer, so its position doesn't change).
+     * Time complexity: Θ(m) for the copy and the filter + Θ(logk) for each survivor, where m is the number of keys.
+     *
+     * @param keys the buffer
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @return the number of keys that were added to the tree
+     */
+    public int offerAll(IntBuffer keys, int from, int to){
+        if (keys.hasArray()){ // a heap buffer - filter its array directly
+            return offerAll(keys.array(), keys.arrayOffset() + from, keys.arrayOffset() + to);
+        }
+        int[] block = blockBuffer();
+        IntBuffer source = keys.duplicate();
+        source.position(from);
+        int added = 0;
+        for (int i = from; i < to; i += FILTER_BLOCK){
+            int length = Math.min(FILTER_BLOCK, to - i);
+            source.get(block, 0, length);
+            added += offerAll(block, 0, length);
+        }
+        return added;
+    }
+
+    // Returns the buffer for the survivors of a block of offerAll
+    private int[] survivorsBuffer(){
+        if (_survivors == null){
+            _survivors = new int[FILTER_BLOCK];
+        }
+        return _survivors;
+    }
+
+    // Returns the buffer for the keys of a block of a direct buffer in offerAll
+    private int[] blockBuffer(){
+        if (_block == null){
+            _block = new int[FILTER_BLOCK];
+        }
+        return _block;
+    }
+
     /**
      * Deletes a node from the red-black tree, and uses deleteFixup method to restore the red-black tree properties.
-     * Decrements the number of elements in the tree.
+     * Decrements the number of elements in the tree (in a multiset tree, all the occurrences of the node's key are
+     * deleted).
      * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
      *
      * @param z the node to be deleted
      * @return the deleted node
      */
     public RBTreePlusNode delete(RBTreePlusNode z){
+        if (_changes != null){
+            _changes.evicted(z.getKey(), z.getCount());
+        }
+        return deleteNode(z);
+    }
+
+    /**
+     * Deletes a node from the red-black tree in the same way as delete, without recording the change (used by join,
+     * which moves the node to another place in the tree).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param z the node to be deleted
+     * @return the deleted node
+     */
+    private RBTreePlusNode deleteNode(RBTreePlusNode z){
         RBTreePlusNode y, x;
         if (isNilT(z.getLeftSon()) || isNilT(z.getRightSon())){
             y = z;
@@ -308,122 +755,809 @@ public class RBTreePlus {
             x = y.getRightSon();
         }
         RBTreePlusNode yParent = y.getParent();
-        x.setParent(yParent);
+        if (!isNilT(x)){ // nilT's parent is never set, so x's parent is passed to deleteFixup instead
+            x.setParent(yParent);
+        }
         if (isNilT(yParent)){
             _root = x;
-        } else if (y.equals(yParent.getLeftSon())){
+        } else if (y == yParent.getLeftSon()){
             yParent.setLeftSon(x);
         } else {
             yParent.setRightSon(x);
         }
-        if (!y.equals(z)){
+        int deletedCount = z.getCount();
+        if (y != z){
             z.setKey(y.getKey());
+            z.setCount(y.getCount());
+        }
+        for (RBTreePlusNode node = yParent; !isNilT(node); node = node.getParent()){
+            // the subtree of every node on the path to the root changed (z is on the path if y isn't z) - the sizes are
+            // updated before the rotations of deleteFixup, which compute the sizes from the sons
+            updateSize(node);
         }
         if (y.getColor() == RBTreePlusNode.Color.BLACK){
             // the fixup should be performed only if the deleted node was black, as a red node deletion does not
             // violate red-black properties of the tree
-            deleteFixup(x);
+            deleteFixup(x, yParent);
+        }
+        _numOfElements -= deletedCount;
+        if (_numOfNodes != UNKNOWN){
+            _numOfNodes--;
         }
-        _numOfElements--;
         return y;
     }
 
     /**
-     * Restores the red-black tree properties of the tree after z's deletion.
-     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     * Removes one occurrence of a key from the tree - searches for a node with the key (as explained in the book,
+     * page 213) and deletes it (or decrements its count, if it has more than one occurrence). Since delete may move the
+     * key of the successor into the deleted node, the max node is found again if it was involved.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
      *
-     * @param x the input node that was deleted from the tree
+     * @param key the key to be removed
+     * @return true if the key was in the tree
      */
-    private void deleteFixup(RBTreePlusNode x){
-        while (!x.equals(_root) && x.getColor() == RBTreePlusNode.Color.BLACK){
-            RBTreePlusNode w;
-            if (x.equals(x.getParent().getLeftSon())){ // x is a left son
-                w = x.getParent().getRightSon();
-                if (w.getColor() == RBTreePlusNode.Color.RED){
-                    // case 1: w (x's brother) is red
-                    w.setColor(RBTreePlusNode.Color.BLACK);
-                    x.getParent().setColor(RBTreePlusNode.Color.RED);
-                    leftRotate(x.getParent());
-                    w = x.getParent().getRightSon();
-                }
+    public boolean remove(int key){
+        RBTreePlusNode z = _root;
+        while (!isNilT(z) && z.getKey() != key){
+            if (key < z.getKey()){
+                z = z.getLeftSon();
+            } else {
+                z = z.getRightSon();
+            }
+        }
+        if (isNilT(z)){
+            return false;
+        }
+        if (z.getCount() > 1){
+            removeOccurrence(z);
+            return true;
+        }
+        RBTreePlusNode y = delete(z);
+        if (z.equals(_maxNode) || y.equals(_maxNode)){
+            _maxNode = isNilT(_root) ? _nilT : treeMaxNode(_root);
+        }
+        return true;
+    }
 
-                if (w.getLeftSon().getColor() == RBTreePlusNode.Color.BLACK &&
-                        w.getRightSon().getColor() == RBTreePlusNode.Color.BLACK){
-                    // case 2: w and his sons are black
-                    w.setColor(RBTreePlusNode.Color.RED);
-                    x = x.getParent();
-                } else {
-                    if (w.getRightSon().getColor() == RBTreePlusNode.Color.BLACK){
-                        // case 3: w is black, w's left son is red and w's right son is black
-                        w.getLeftSon().setColor(RBTreePlusNode.Color.BLACK);
-                        w.setColor(RBTreePlusNode.Color.RED);
-                        rightRotate(w);
-                        w = x.getParent().getRightSon();
-                    }
-                    // case 4: w is black and w's right son is red
-                    w.setColor(x.getParent().getColor());
-                    x.getParent().setColor(RBTreePlusNode.Color.BLACK);
-                    w.getRightSon().setColor(RBTreePlusNode.Color.BLACK);
-                    leftRotate(x.getParent());
-                    x = _root;
-                }
+    /**
+     * Removes one occurrence of the key of a node that has more than one occurrence (a multiset tree), by decrementing
+     * its count and the sizes of the subtrees on the path to the root. The tree's structure doesn't change.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param z the node
+     */
+    private void removeOccurrence(RBTreePlusNode z){
+        if (_changes != null){
+            _changes.evicted(z.getKey(), 1);
+        }
+        z.setCount(z.getCount() - 1);
+        for (RBTreePlusNode node = z; !isNilT(node); node = node.getParent()){
+            node.setSize(node.getSize() - 1);
+        }
+        _numOfElements--;
+    }
 
-            } else { // x is a right son (symmetrical to x is a left son)
-                w = x.getParent().getLeftSon();
-                if (w.getColor() == RBTreePlusNode.Color.RED){
-                    // case 1: w (x's brother) is red
-                    w.setColor(RBTreePlusNode.Color.BLACK);
-                    x.getParent().setColor(RBTreePlusNode.Color.RED);
-                    rightRotate(x.getParent());
-                    w = x.getParent().getLeftSon();
-                }
+    /**
+     * Returns the node with the j-th lowest key in the tree (j = 1 is the min. key and j = k is the max. key), by going
+     * down from the root and comparing j with the size of the left subtree of each node (as explained in the book,
+     * page 341). In a multiset tree, a node with c occurrences of its key is the node of c consecutive ranks.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param j the rank of the key (1 to the number of elements)
+     * @return the node with the j-th lowest key
+     */
+    public RBTreePlusNode select(int j){
+        if (j < 1 || j > _numOfElements){
+            throw new IllegalArgumentException("Invalid rank: " + j + " (the tree has " + _numOfElements +
+                    " elements)");
+        }
+        RBTreePlusNode node = _root;
+        int r = node.getLeftSon().getSize(); // the number of keys in the subtree that are smaller than the node's key
+        while (j <= r || j > r + node.getCount()){
+            if (j <= r){
+                node = node.getLeftSon();
+            } else { // the j-th lowest key is the (j-r-count)-th lowest key in the right subtree
+                j -= r + node.getCount();
+                node = node.getRightSon();
+            }
+            r = node.getLeftSon().getSize();
+        }
+        return node;
+    }
 
-                if (w.getRightSon().getColor() == RBTreePlusNode.Color.BLACK &&
-                        w.getLeftSon().getColor() == RBTreePlusNode.Color.BLACK){
-                    // case 2: w and his sons are black
-                    w.setColor(RBTreePlusNode.Color.RED);
-                    x = x.getParent();
-                } else {
-                    if (w.getLeftSon().getColor() == RBTreePlusNode.Color.BLACK){
-                        // case 3: w is black, w's right son is red and w's left son is black
-                        w.getRightSon().setColor(RBTreePlusNode.Color.BLACK);
-                        w.setColor(RBTreePlusNode.Color.RED);
-                        leftRotate(w);
-                        w = x.getParent().getLeftSon();
-                    }
-                    // case 4: w is black and w's left son is red
-                    w.setColor(x.getParent().getColor());
-                    x.getParent().setColor(RBTreePlusNode.Color.BLACK);
-                    w.getLeftSon().setColor(RBTreePlusNode.Color.BLACK);
-                    rightRotate(x.getParent());
-                    x = _root;
-                }
+    /**
+     * Returns the rank of a key - the number of keys in the tree that are smaller than or equal to it (so for a key in
+     * the tree, select(rank(key)) has this key).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param key the key (doesn't have to be in the tree)
+     * @return the number of keys that are smaller than or equal to the key
+     */
+    public int rank(int key){
+        return countBelow(key, true);
+    }
+
+    /**
+     * Returns the number of keys in the tree in the range [lo, hi].
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param lo the lowest key in the range
+     * @param hi the highest key in the range
+     * @return the number of keys in the range (0 if lo is greater than hi)
+     */
+    public int countInRange(int lo, int hi){
+        if (lo > hi){
+            return 0;
+        }
+        return countBelow(hi, true) - countBelow(lo, false);
+    }
+
+    /**
+     * Returns the rank of the last occurrence of a node's key in the inorder walk of the tree, by going up from the node
+     * to the root and adding the sizes of the left subtrees of the ancestors it's to the right of (as explained in the
+     * book, page 342). Unlike rank, it tells apart nodes with equal keys.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param node a node of the tree
+     * @return the rank of the last occurrence of the node's key
+     */
+    private int rankOfNode(RBTreePlusNode node){
+        int r = node.getLeftSon().getSize() + node.getCount();
+        RBTreePlusNode y = node;
+        while (!y.equals(_root)){
+            RBTreePlusNode yParent = y.getParent();
+            if (y.equals(yParent.getRightSon())){
+                r += yParent.getLeftSon().getSize() + yParent.getCount();
             }
-        } // end of while
-        x.setColor(RBTreePlusNode.Color.BLACK);
+            y = yParent;
+        }
+        return r;
     }
 
     /**
-     * Performs an inorder tree walk and prints the keys of the tree in ascending order.
-     * Time complexity: Θ(k), where k is the total number of elements in the tree (as explained in the book, page 214).
-     * @param node the start node (root of the tree/sub-tree on which inorder walk is performed)
+     * Counts the keys that are smaller than a key (or smaller than or equal to it), by going down from the root and
+     * adding the size of the left subtree and the node itself whenever the search moves right.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param key the key
+     * @param inclusive true to count the keys that are equal to the key as well
+     * @return the number of keys counted
      */
-    private void printTreeInorder(RBTreePlusNode node){
-        if (!isNilT(node)){
-            printTreeInorder(node.getLeftSon());
-            if (node.equals(_maxNode)){
-                System.out.println(node.getKey());
+    private int countBelow(int key, boolean inclusive){
+        int count = 0;
+        RBTreePlusNode node = _root;
+        while (!isNilT(node)){
+            if (node.getKey() < key || (inclusive && node.getKey() == key)){ // the node and its left subtree count
+                count += node.getLeftSon().getSize() + node.getCount();
+                node = node.getRightSon();
             } else {
-                System.out.print(node.getKey() + ",");
+                node = node.getLeftSon();
             }
-            printTreeInorder(node.getRightSon());
         }
+        return count;
     }
 
     /**
-     * Prints the keys of the tree in ascending order, by using printTreeInorder method on the root of the tree.
+     * Prints the keys of the tree in ascending order (separated by commas), by an iterative inorder walk (see
+     * iterator). Prints nothing if the tree is empty.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree (as explained in the book, page 214).
      */
     public void printKMin(){
-        printTreeInorder(_root);
+        if (isNilT(_root)){
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        PrimitiveIterator.OfInt keys = iterator();
+        while (keys.hasNext()){
+            line.append(keys.nextInt()).append(',');
+        }
+        line.setLength(line.length() - 1); // remove the comma after the max. key
+        System.out.println(line);
+    }
+
+    /**
+     * Copies the keys of the tree into an array in ascending order, by an iterative inorder walk (starts at the node
+     * with the minimum key and moves to the successor of each node), so the array can be reused between calls.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree (every edge is passed at most twice).
+     *
+     * @param keys the array into which the keys are copied (must have room for all the elements)
+     * @return the number of keys copied
+     */
+    @Override
+    public int copyKeys(int[] keys){
+        int count = 0;
+        if (!isNilT(_root)){
+            RBTreePlusNode node = treeMinNode(_root);
+            while (!isNilT(node)){
+                for (int i = 0; i < node.getCount(); i++){ // every occurrence of the key (in a multiset tree)
+                    keys[count++] = node.getKey();
+                }
+                node = successor(node);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the keys of the tree in ascending order, by using copyKeys method.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     *
+     * @return a new array with the keys of the tree in ascending order
+     */
+    public int[] toSortedArray(){
+        int[] keys = new int[_numOfElements];
+        copyKeys(keys);
+        return keys;
+    }
+
+    /**
+     * Returns a tree with the given keys, built bottom-up instead of by an insert for each key (used to restore a saved
+     * tree, see KLowestState). Each subtree is built from the middle key of its range and the subtrees of the keys
+     * before and after it, so every path from the root to a leaf has a length of h or h-1 (h is the height of the
+     * tree). The nodes at depth h are colored red and all the others black, which gives every path the same number
+     * of black nodes without any rotation. In a multiset tree equal keys become a single node with their number of
+     * occurrences.
+     * Time complexity: Θ(k), where k is the number of keys.
+     *
+     * @param keys the keys, in ascending order
+     * @param from the index of the first key
+     * @param to the index after the last key
+     * @param capacity the max. number of elements kept by offer (k)
+     * @param multiset true for a node per distinct key (with the number of its occurrences)
+     * @return the tree
+     */
+    public static RBTreePlus fromSortedKeys(int[] keys, int from, int to, int capacity, boolean multiset){
+        RBTreePlus tree = new RBTreePlus(capacity, multiset);
+        int numOfNodes = 0;
+        for (int i = from; i < to; i++){ // count the nodes and check the keys
+            if (i > from && keys[i] < keys[i - 1]){
+                throw new IllegalArgumentException("The keys aren't in ascending order at index " + i);
+            }
+            if (i == from || !multiset || keys[i] != keys[i - 1]){
+                numOfNodes++;
+            }
+        }
+        RBTreePlusNode[] nodes = new RBTreePlusNode[numOfNodes];
+        int node = 0;
+        for (int i = from; i < to; i++){
+            if (node > 0 && multiset && keys[i] == nodes[node - 1].getKey()){ // another occurrence of the last key
+                nodes[node - 1].setCount(nodes[node - 1].getCount() + 1);
+            } else {
+                nodes[node++] = new RBTreePlusNode(keys[i], RBTreePlusNode.Color.BLACK);
+            }
+        }
+        // the depth of the deepest nodes (a single node is the root, which stays black)
+        int redDepth = numOfNodes > 1 ? 31 - Integer.numberOfLeadingZeros(numOfNodes) : -1;
+        tree._root = tree.buildSubtree(nodes, 0, numOfNodes, 0, redDepth, tree._nilT);
+        tree._maxNode = numOfNodes > 0 ? nodes[numOfNodes - 1] : tree._nilT;
+        tree._numOfElements = to - from;
+        tree._numOfNodes = numOfNodes;
+        return tree;
+    }
+
+    /**
+     * Links the nodes of a range into a balanced subtree (see fromSortedKeys), and sets their colors and sizes.
+     * Time complexity: Θ(m), where m is the number of nodes in the range.
+     *
+     * @param nodes the nodes, in ascending order of their keys
+     * @param from the index of the first node of the range
+     * @param to the index after the last node of the range
+     * @param depth the depth of the root of the subtree
+     * @param redDepth the depth of the nodes that are colored red
+     * @param parent the parent of the root of the subtree
+     * @return the root of the subtree (nilT for an empty range)
+     */
+    private RBTreePlusNode buildSubtree(RBTreePlusNode[] nodes, int from, int to, int depth, int redDepth,
+                                        RBTreePlusNode parent){
+        if (from == to){
+            return _nilT;
+        }
+        int middle = (from + to) >>> 1;
+        RBTreePlusNode node = nodes[middle];
+        node.setParent(parent);
+        node.setLeftSon(buildSubtree(nodes, from, middle, depth + 1, redDepth, node));
+        node.setRightSon(buildSubtree(nodes, middle + 1, to, depth + 1, redDepth, node));
+        if (depth == redDepth){
+            node.setColor(RBTreePlusNode.Color.RED);
+        }
+        updateSize(node);
+        return node;
+    }
+
+    /**
+     * Returns a new tree with the k lowest keys of this tree and another tree (neither tree is changed). The inorder
+     * walks of the two trees are merged until k keys are taken, and the new tree is built bottom-up from the merged
+     * keys (see fromSortedKeys) instead of inserting the keys of one tree into the other. The new tree has a capacity
+     * of k and the multiset mode of this tree.
+     * Time complexity: Θ(k + logm), where m is the number of elements in the larger tree.
+     *
+     * @param other the other tree
+     * @param k the number of lowest keys to keep
+     * @return the new tree
+     */
+    public RBTreePlus merge(RBTreePlus other, int k){
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        int[] keys = new int[(int) Math.min(k, (long) _numOfElements + other._numOfElements)];
+        PrimitiveIterator.OfInt a = iterator();
+        PrimitiveIterator.OfInt b = other.iterator();
+        boolean hasA = a.hasNext(), hasB = b.hasNext();
+        int keyA = hasA ? a.nextInt() : 0;
+        int keyB = hasB ? b.nextInt() : 0;
+        for (int m = 0; m < keys.length; m++){
+            if (!hasB || (hasA && keyA <= keyB)){
+                keys[m] = keyA;
+                hasA = a.hasNext();
+                keyA = hasA ? a.nextInt() : 0;
+            } else {
+                keys[m] = keyB;
+                hasB = b.hasNext();
+                keyB = hasB ? b.nextInt() : 0;
+            }
+        }
+        return fromSortedKeys(keys, 0, keys.length, k, _multiset);
+    }
+
+    /**
+     * Splits the tree by a key - the keys that are smaller than the key stay in this tree, and the other keys are moved
+     * to a new tree (with the capacity and the multiset mode of this tree), which is returned. The tree is split along
+     * the search path of the key (see splitSubtree) instead of deleting the moved keys one by one.
+     * The nodes are moved and not copied, so the leaves of the two trees may be the same sentinel - the trees must not
+     * be changed by two threads at a time.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param key the key
+     * @return a new tree with the keys that are greater than or equal to the key
+     */
+    public RBTreePlus split(int key){
+        return splitAtRank(countBelow(key, false));
+    }
+
+    /**
+     * Joins two trees - moves all the keys of the right tree into the left tree, which is returned (the right tree is
+     * left empty). Every key of the left tree must be smaller than or equal to every key of the right tree. The min.
+     * node of the right tree is removed from it, and the two trees are linked under it in Θ(logk) (see joinWithNode)
+     * instead of inserting the keys of one tree into the other. In a multiset tree, occurrences of the max. key of the
+     * left tree in the right tree (divided between the trees by split or resize) are added to the max. node first.
+     * The left tree keeps its capacity. If the changes of the left tree are recorded, every key of the right tree is
+     * recorded as entered (which takes Θ(m), where m is the number of keys of the right tree).
+     * Time complexity: Θ(logk), where k is the total number of elements in the two trees.
+     *
+     * @param left the tree with the smaller keys
+     * @param right the tree with the greater keys
+     * @return the left tree, with the keys of both trees
+     */
+    public static RBTreePlus join(RBTreePlus left, RBTreePlus right){
+        if (left == right){
+            throw new IllegalArgumentException("A tree can't be joined with itself");
+        }
+        if (left._multiset != right._multiset){
+            throw new IllegalArgumentException("A multiset tree can't be joined with a tree with a node per element");
+        }
+        if (right._numOfElements == 0){
+            return left;
+        }
+        RBTreePlusNode x = right.treeMinNode(right._root);
+        if (left._numOfElements > 0 && left._maxNode.getKey() > x.getKey()){
+            throw new IllegalArgumentException("The keys of the left tree aren't smaller than the keys of the right " +
+                    "tree (" + left._maxNode.getKey() + " > " + x.getKey() + ")");
+        }
+        if (left._changes != null){ // every key of the right tree enters the left tree
+            PrimitiveIterator.OfInt keys = right.iterator();
+            while (keys.hasNext()){
+                left._changes.entered(keys.nextInt());
+            }
+        }
+        if (left._multiset && left._numOfElements > 0 && left._maxNode.getKey() == x.getKey()){
+            // the occurrences of the key (divided by a split) are added to the max node, so the key keeps a single node
+            int count = x.getCount();
+            right.deleteNode(x);
+            left._maxNode.setCount(left._maxNode.getCount() + count);
+            for (RBTreePlusNode node = left._maxNode; !left.isNilT(node); node = node.getParent()){
+                node.setSize(node.getSize() + count);
+            }
+            left._numOfElements += count;
+            if (right._numOfElements == 0){
+                right.clear();
+                return left;
+            }
+            x = right.treeMinNode(right._root);
+        }
+        int numOfElements = left._numOfElements + right._numOfElements;
+        int numOfNodes = left._numOfNodes == UNKNOWN || right._numOfNodes == UNKNOWN ? UNKNOWN :
+                left._numOfNodes + right._numOfNodes;
+        RBTreePlusNode maxNode = right._maxNode;
+        right.deleteNode(x); // x is the min. node, so it's the node removed from the tree (it has no left son)
+        int leftHeight = left.blackHeight(left._root);
+        int rightHeight = right.blackHeight(right._root);
+        left.joinWithNode(left._root, leftHeight, x, right._root, rightHeight); // sets the root of the left tree
+        left._maxNode = maxNode;
+        left._numOfElements = numOfElements;
+        left._numOfNodes = numOfNodes;
+        right.clear();
+        return left;
+    }
+
+    // Empties the tree (after its nodes were moved to another tree)
+    private void clear(){
+        _root = _nilT;
+        _maxNode = _nilT;
+        _numOfElements = 0;
+        _numOfNodes = 0;
+    }
+
+    /**
+     * Changes the capacity of the tree (k). If the tree has more elements than the new capacity, it's split after the
+     * capacity lowest keys (see splitAtRank), and the evicted keys are returned in a new tree - so shrinking k takes
+     * Θ(logk) and not a delete for each evicted key. If the changes are recorded, every evicted key is recorded as
+     * well (which takes Θ(m), where m is the number of evicted keys). Growing k only changes the capacity - offer
+     * inserts keys until the tree has the new number of elements.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param capacity the new max. number of elements kept by offer
+     * @return a new tree with the evicted keys (empty if no key was evicted)
+     */
+    public RBTreePlus resize(int capacity){
+        if (capacity < 0){
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        _capacity = capacity;
+        RBTreePlus evicted = splitAtRank(Math.min(capacity, _numOfElements));
+        if (_changes != null){
+            PrimitiveIterator.OfInt keys = evicted.iterator();
+            while (keys.hasNext()){
+                _changes.evicted(keys.nextInt(), 1);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Splits the tree by a rank - the j lowest keys stay in this tree, and the other keys are moved to a new tree,
+     * which is returned. In a multiset tree, the occurrences of the key of rank j may be divided between the trees.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param j the number of keys that stay in this tree (0 to the number of elements)
+     * @return a new tree with the other keys
+     */
+    private RBTreePlus splitAtRank(int j){
+        RBTreePlus upper = new RBTreePlus(_capacity, _multiset);
+        if (j >= _numOfElements){
+            return upper;
+        }
+        int numOfElements = _numOfElements;
+        SplitPieces pieces = new SplitPieces();
+        splitSubtree(_root, blackHeight(_root), j, pieces);
+        _root = pieces._left;
+        _maxNode = isNilT(_root) ? _nilT : treeMaxNode(_root);
+        _numOfElements = j;
+        upper._root = pieces._right;
+        upper._maxNode = treeMaxNode(upper._root);
+        upper._numOfElements = numOfElements - j;
+        // in a tree with a node per element the nodes are the elements, and in a multiset tree they're counted again
+        _numOfNodes = _multiset ? UNKNOWN : _numOfElements;
+        upper._numOfNodes = _multiset ? UNKNOWN : upper._numOfElements;
+        return upper;
+    }
+
+    /**
+     * Splits a subtree whose root isn't linked to a parent into the subtree of its j lowest keys and the subtree of
+     * the others. The node and the subtree on one side of it (the side the j-th key isn't in) are joined with the
+     * matching piece of the split of the other side, so a piece is joined on each level of the search path. The
+     * black-heights of the joined pieces only grow on the way up, so the joins take Θ(logk) together (as explained in
+     * the book, problem 13-2).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param node the root of the subtree
+     * @param height the black-height of the subtree
+     * @param j the number of keys of the lower piece
+     * @param pieces the roots and black-heights of the two pieces (the result)
+     */
+    private void splitSubtree(RBTreePlusNode node, int height, int j, SplitPieces pieces){
+        if (isNilT(node)){
+            pieces._left = _nilT;
+            pieces._right = _nilT;
+            pieces._leftHeight = 0;
+            pieces._rightHeight = 0;
+            return;
+        }
+        RBTreePlusNode leftSon = detach(node.getLeftSon());
+        RBTreePlusNode rightSon = detach(node.getRightSon());
+        int sonHeight = node.getColor() == RBTreePlusNode.Color.BLACK ? height - 1 : height;
+        int leftSize = leftSon.getSize();
+        if (j <= leftSize){ // the node and its right subtree are in the upper piece
+            splitSubtree(leftSon, sonHeight, j, pieces);
+            pieces._rightHeight = joinWithNode(pieces._right, pieces._rightHeight, node, rightSon, sonHeight);
+            pieces._right = _root;
+        } else if (j >= leftSize + node.getCount()){ // the node and its left subtree are in the lower piece
+            splitSubtree(rightSon, sonHeight, j - leftSize - node.getCount(), pieces);
+            pieces._leftHeight = joinWithNode(leftSon, sonHeight, node, pieces._left, pieces._leftHeight);
+            pieces._left = _root;
+        } else { // the occurrences of the node's key are divided - the upper ones move to a new node
+            RBTreePlusNode upperNode = new RBTreePlusNode(node.getKey(), RBTreePlusNode.Color.RED);
+            upperNode.setCount(leftSize + node.getCount() - j);
+            node.setCount(j - leftSize);
+            pieces._leftHeight = joinWithNode(leftSon, sonHeight, node, _nilT, 0);
+            pieces._left = _root;
+            pieces._rightHeight = joinWithNode(_nilT, 0, upperNode, rightSon, sonHeight);
+            pieces._right = _root;
+        }
+    }
+
+    /**
+     * Links two subtrees that aren't linked to parents under a node whose key is between their keys, and restores the
+     * red-black tree properties (as explained in the book, problem 13-2). The node replaces the black node with the
+     * black-height of the lower subtree on the right spine of the higher subtree (or the left spine, if the right
+     * subtree is higher), with the lower subtree as its other son, and is fixed up as a red inserted node. The root of
+     * the joined subtree is set as the root of the tree.
+     * Time complexity: Θ(|h1 - h2| + 1), where h1 and h2 are the black-heights of the subtrees.
+     *
+     * @param left the root of the subtree with the smaller keys
+     * @param leftHeight the black-height of the left subtree
+     * @param x the node
+     * @param right the root of the subtree with the greater keys
+     * @param rightHeight the black-height of the right subtree
+     * @return the black-height of the joined subtree
+     */
+    private int joinWithNode(RBTreePlusNode left, int leftHeight, RBTreePlusNode x, RBTreePlusNode right,
+                             int rightHeight){
+        if (left.getColor() == RBTreePlusNode.Color.RED){ // a red root is colored black, which adds a black level
+            left.setColor(RBTreePlusNode.Color.BLACK);
+            leftHeight++;
+        }
+        if (right.getColor() == RBTreePlusNode.Color.RED){
+            right.setColor(RBTreePlusNode.Color.BLACK);
+            rightHeight++;
+        }
+        x.setColor(RBTreePlusNode.Color.RED);
+        RBTreePlusNode parent = _nilT;
+        RBTreePlusNode y;
+        if (leftHeight >= rightHeight){ // go down the right spine of the left subtree
+            y = left;
+            for (int h = leftHeight; y.getColor() == RBTreePlusNode.Color.RED || h > rightHeight; y = y.getRightSon()){
+                if (y.getColor() == RBTreePlusNode.Color.BLACK){
+                    h--;
+                }
+                parent = y;
+            }
+            x.setLeftSon(y);
+            x.setRightSon(right);
+            if (!isNilT(parent)){
+                parent.setRightSon(x);
+            }
+            _root = isNilT(parent) ? x : left;
+        } else { // go down the left spine of the right subtree (symmetrical to the left subtree)
+            y = right;
+            for (int h = rightHeight; y.getColor() == RBTreePlusNode.Color.RED || h > leftHeight; y = y.getLeftSon()){
+                if (y.getColor() == RBTreePlusNode.Color.BLACK){
+                    h--;
+                }
+                parent = y;
+            }
+            x.setLeftSon(left);
+            x.setRightSon(y);
+            parent.setLeftSon(x); // the right subtree is higher, so the spine has at least one node
+            _root = right;
+        }
+        x.setParent(parent);
+        if (!isNilT(x.getLeftSon())){
+            x.getLeftSon().setParent(x);
+        }
+        if (!isNilT(x.getRightSon())){
+            x.getRightSon().setParent(x);
+        }
+        updateSize(x);
+        for (RBTreePlusNode node = parent; !isNilT(node); node = node.getParent()){
+            // x's subtree replaced y's subtree under every node on the spine - the sizes are updated before the
+            // rotations of insertFixup, which compute the sizes from the sons
+            node.setSize(node.getSize() + x.getSize() - y.getSize());
+        }
+        boolean grew = insertFixup(x);
+        return Math.max(leftHeight, rightHeight) + (grew ? 1 : 0);
+    }
+
+    // Unlinks the root of a subtree from its parent, and returns it
+    private RBTreePlusNode detach(RBTreePlusNode node){
+        if (!isNilT(node)){
+            node.setParent(_nilT);
+        }
+        return node;
+    }
+
+    // Returns the black-height of a subtree - the number of black nodes on a path from its root (inclusive) to a leaf
+    private int blackHeight(RBTreePlusNode node){
+        int height = 0;
+        for (; !isNilT(node); node = node.getLeftSon()){
+            if (node.getColor() == RBTreePlusNode.Color.BLACK){
+                height++;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Returns an iterator over the keys of the tree in ascending order (every occurrence of a key in a multiset tree).
+     * The iterator starts at the node with the minimum key and moves to the successor of each node, without recursion.
+     * The tree must not be changed while the iterator is used.
+     * Time complexity: Θ(logk) to start, Θ(1) amortized for each key.
+     *
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator(){
+        return new KeyIterator(isNilT(_root) ? _nilT : treeMinNode(_root), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an iterator over the keys of the tree in the range [lo, hi] in ascending order. The iterator starts at
+     * the first node with a key that isn't smaller than lo, and moves to the successor of each node until a key is
+     * greater than hi. The tree must not be changed while the iterator is used.
+     * Time complexity: Θ(logk) to start, Θ(1) amortized for each key.
+     *
+     * @param lo the lowest key in the range
+     * @param hi the highest key in the range
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator(int lo, int hi){
+        return new KeyIterator(ceilingNode(lo), hi);
+    }
+
+    /**
+     * Returns a spliterator over the keys of the tree in ascending order, which is SORTED, ORDERED, SIZED and SUBSIZED.
+     * The spliterator covers a range of ranks, and it's split at the middle rank (the node of that rank is found by
+     * select, so both halves start at a subtree boundary found in Θ(logk)), which allows parallel streams over the keys.
+     * The tree must not be changed while the spliterator is used.
+     *
+     * @return the spliterator
+     */
+    public Spliterator.OfInt spliterator(){
+        return new KeySpliterator(1, _numOfElements + 1);
+    }
+
+    /**
+     * Returns a sequential IntStream of the keys of the tree in ascending order (can be made parallel by parallel()).
+     *
+     * @return the stream
+     */
+    public IntStream stream(){
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Finds the first node (in inorder) with a key that isn't smaller than the given key.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param key the key
+     * @return the node, or nilT if all the keys are smaller than the key
+     */
+    private RBTreePlusNode ceilingNode(int key){
+        RBTreePlusNode ceiling = _nilT;
+        RBTreePlusNode node = _root;
+        while (!isNilT(node)){
+            if (node.getKey() >= key){ // the node is a candidate, and an earlier one may be in the left subtree
+                ceiling = node;
+                node = node.getLeftSon();
+            } else {
+                node = node.getRightSon();
+            }
+        }
+        return ceiling;
+    }
+
+    // The result of splitSubtree - the roots and black-heights of the lower and upper pieces
+    private static class SplitPieces {
+        private RBTreePlusNode _left, _right;
+        private int _leftHeight, _rightHeight;
+    }
+
+    // An iterator over the keys of the tree from a node up to a max. key (by successor)
+    private class KeyIterator implements PrimitiveIterator.OfInt {
+
+        // Instance variables - the current node, the number of occurrences of its key not returned yet and the max. key
+        private RBTreePlusNode _node;
+        private int _remaining;
+        private int _hi;
+
+        private KeyIterator(RBTreePlusNode node, int hi) {
+            _node = node;
+            _remaining = node.getCount();
+            _hi = hi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !isNilT(_node) && _node.getKey() <= _hi;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()){
+                throw new NoSuchElementException();
+            }
+            int key = _node.getKey();
+            if (--_remaining == 0){ // all the occurrences were returned - move to the next node
+                _node = successor(_node);
+                _remaining = _node.getCount();
+            }
+            return key;
+        }
+    }
+
+    // A spliterator over the keys of the tree with ranks from (inclusive) to (exclusive)
+    private class KeySpliterator implements Spliterator.OfInt {
+
+        // Instance variables - the rank of the next key, the end rank, the node of the next key (null until the first
+        // key is read) and the number of occurrences of its key from the next rank
+        private int _from, _to;
+        private RBTreePlusNode _node;
+        private int _remaining;
+
+        private KeySpliterator(int from, int to) {
+            _from = from;
+            _to = to;
+            _node = null;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (_from >= _to){
+                return false;
+            }
+            action.accept(nextKey());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (_from < _to){
+                action.accept(nextKey());
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int mid = (_from + _to) >>> 1;
+            if (mid <= _from){ // less than 2 keys
+                return null;
+            }
+            KeySpliterator prefix = new KeySpliterator(_from, mid);
+            if (_node != null){ // the prefix continues from the current node
+                prefix._node = _node;
+                prefix._remaining = _remaining;
+                _node = null;
+            }
+            _from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return _to - _from;
+        }
+
+        @Override
+        public int characteristics() {
+            return SORTED | ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null; // the natural order
+        }
+
+        // Returns the key of the next rank and moves to the rank after it
+        private int nextKey(){
+            if (_node == null){ // find the node of the first rank (and the occurrences of its key from this rank)
+                _node = select(_from);
+                _remaining = rankOfNode(_node) - _from + 1;
+            }
+            int key = _node.getKey();
+            _from++;
+            if (--_remaining == 0 && _from < _to){ // all the occurrences were returned - move to the next node
+                _node = successor(_node);
+                _remaining = _node.getCount();
+            }
+            return key;
+        }
     }
 }
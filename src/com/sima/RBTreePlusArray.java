@@ -0,0 +1,166 @@
+package com.sima;
+
+/**
+ * This class represents an alternative storage engine for RBTreePlus, which keeps the red-black tree in parallel
+ * primitive arrays instead of RBTreePlusNode objects.
+ * Each node is a slot (an index into the arrays), and the parent, left son, right son, key and color of the node are
+ * kept in the parent, leftSon, rightSon, key and color arrays at that index.
+ * Slot 0 is the sentinel nilT, so a node is nilT if and only if its slot is 0 (no key is reserved for the sentinel).
+ * Slots released by delete are kept in a free list and reused by the next insert, so once the tree holds k elements
+ * replacing the max node doesn't allocate any memory.
+ * The operations are the same as in RBTreePlus (including the bounded mode and offer), except that nodes are passed
+ * and returned as slots. The arrays and the red-black tree algorithms are in an RBSlotArena (the same node arena
+ * as in KeyedKLowestStore) - this tree is the only (and current) tree of its arena.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class RBTreePlusArray {
+
+    // The slot of the sentinel nilT
+    public static final int NIL_T = RBSlotArena.NIL_T;
+
+    // Default number of slots allocated by the empty constructor
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Instance variables - the node arena (its current tree is this tree) and the max. number of elements kept by offer
+    private final RBSlotArena _arena;
+    private final int _capacity;
+
+    /**
+     * Constructor - creates an unbounded tree (offer inserts every key) with room for a default number of elements.
+     */
+    public RBTreePlusArray() {
+        this(DEFAULT_CAPACITY + 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor - allocates the node arrays with room for capacity elements (plus the sentinel slot), sets the
+     * root and max node to nilT, the number of elements to 0 and the capacity to the input value. The arrays grow
+     * only if more than capacity elements are inserted by insert.
+     *
+     * @param capacity the max. number of elements kept by offer (k)
+     */
+    public RBTreePlusArray(int capacity) {
+        this(Math.max(capacity, 1) + 1, capacity);
+    }
+
+    // Common constructor - allocates the arena with the given number of slots and sets the capacity
+    private RBTreePlusArray(int slots, int capacity) {
+        _arena = new RBSlotArena(slots);
+        _capacity = capacity;
+    }
+
+    // Getters for the num. of elements, capacity, max. node and the key of a node
+    public int getNumOfElements() {
+        return _arena.getNumOfElements();
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    public int getMaxNode() {
+        return _arena.getMaxNode();
+    }
+
+    public int getKey(int node) {
+        return _arena.getKey(node);
+    }
+
+    // Setters for the max node and the key of a node
+    public void setMaxNode(int max) {
+        _arena.setMaxNode(max);
+    }
+
+    public void setKey(int node, int key) {
+        _arena.setKey(node, key);
+    }
+
+    /**
+     * Gets a key and inserts a node with this key into the red-black tree, in a free slot (see RBSlotArena.insert).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param key the key to be inserted into the tree
+     * @return the slot of the inserted node
+     */
+    public int insert(int key){
+        return _arena.insert(key);
+    }
+
+    /**
+     * Offers a key to a bounded tree, which keeps the capacity (k) lowest keys offered to it, in the same way as
+     * RBTreePlus.offer. When the max node is replaced, its slot is released by delete and reused by insert.
+     * Time complexity: Θ(1) for a rejected key, Θ(logk) otherwise, where k is the capacity of the tree.
+     *
+     * @param key the offered key
+     * @return true if the key was added to the tree
+     */
+    public boolean offer(int key){
+        return _arena.offer(key, _capacity);
+    }
+
+    /**
+     * Returns a node which is the predecessor of the input node (nilT if the input node has the minimum key).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the predecessor node
+     */
+    public int predecessor(int node){
+        return _arena.predecessor(node);
+    }
+
+    /**
+     * Returns a node which is the successor of the input node (nilT if the input node has the maximum key).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the successor node
+     */
+    public int successor(int node){
+        return _arena.successor(node);
+    }
+
+    /**
+     * Deletes a node from the red-black tree (see RBSlotArena.delete). The slot that is spliced out of the tree is
+     * added to the free list, so its key remains readable only until the next insert.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param z the node to be deleted
+     * @return the released slot
+     */
+    public int delete(int z){
+        return _arena.delete(z);
+    }
+
+    /**
+     * Prints the keys of the tree in ascending order (separated by commas), in the same format as RBTreePlus.printKMin,
+     * by an iterative inorder walk (as in copyKeys). Prints nothing if the tree is empty.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     */
+    public void printKMin(){
+        if (_arena.isNilT(_arena.getRoot())){
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (int node = _arena.minNode(); !_arena.isNilT(node); node = _arena.successor(node)){
+            line.append(_arena.getKey(node)).append(',');
+        }
+        line.setLength(line.length() - 1); // remove the comma after the max. key
+        System.out.println(line);
+    }
+
+    /**
+     * Copies the keys of the tree into an array in ascending order, by an iterative inorder walk (starts at the node
+     * with the minimum key and moves to the successor of each node).
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     *
+     * @param keys the array into which the keys are copied (must have room for all the elements)
+     * @return the number of keys copied
+     */
+    public int copyKeys(int[] keys){
+        return _arena.copyKeys(keys);
+    }
+}
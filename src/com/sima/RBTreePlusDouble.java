@@ -0,0 +1,661 @@
+// Generated by tools/GenerateVariants.java from tools/template/RBTreePlus.template - don't edit.
+package com.sima;
+
+/**
+ * This class represents the data structure for keeping the k lowest elements, for double keys (the same as
+ * RBTreePlus, without boxing the keys).
+ * The data structure consists of:
+ * 1. Red black tree.
+ * 2. The node with the max key in the tree.
+ * 3. A variable for the number of elements in the tree.
+ * 4. An optional capacity - a bounded tree keeps only the lowest keys offered to it (see offer).
+ * Every node also holds the size of its subtree (an order-statistic tree), so the j-th lowest key and the rank of a
+ * key are found in Θ(logk) (see select and rank).
+ * The keys are compared by Double.compare (a total order, in which -0.0 is lower than 0.0 and NaN is the highest).
+ * nilT is recognized by identity (so every key can be stored).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class RBTreePlusDouble {
+
+    // Instance variables - root of the tree, nilT node (the sentinel), pointer to the node with the max key,
+    // number of elements in the tree and the max. number of elements kept by offer
+    private RBTreePlusDoubleNode _root, _nilT;
+    private RBTreePlusDoubleNode _maxNode;
+    private int _numOfElements;
+    private int _capacity;
+
+    /**
+     * Constructor - creates an unbounded tree (offer inserts every key).
+     *
+     */
+    public RBTreePlusDouble() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructor - initializes the nilT node (black, as per sentinel definition in red-black trees, with a size of 0),
+     * sets the pointers of root and max node to nilT, sets the number of elements to 0 and the capacity to the input
+     * value.
+     *
+     * @param capacity the max. number of elements kept by offer (k)
+     */
+    public RBTreePlusDouble(int capacity) {
+        _nilT = new RBTreePlusDoubleNode(0.0, RBTreePlusNode.Color.BLACK);
+        _nilT.setSize(0); // nilT is an empty subtree
+        _root = _nilT;
+        _maxNode = _nilT;
+        _numOfElements = 0;
+        _capacity = capacity;
+    }
+
+    // Getters for the num. of elements, capacity and max. node
+    public int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    public RBTreePlusDoubleNode getMaxNode() {
+        return _maxNode;
+    }
+
+    // Setter for the max node
+    public void setMaxNode(RBTreePlusDoubleNode max) {
+        _maxNode = max;
+    }
+
+    /**
+     * Checks whether the input node is the sentinel - nilT.
+     * The node is compared by identity (and not by a reserved key), so every double value can be a key of the tree.
+     * Time complexity: Θ(1).
+     *
+     * @param node the input node
+     * @return true if the node is nilT
+     */
+    private boolean isNilT(RBTreePlusDoubleNode node){
+        return node == _nilT;
+    }
+
+    // Compares two keys (negative if a is lower than b, 0 if they are equal, positive otherwise)
+    private static int compare(double a, double b){
+        return Double.compare(a, b);
+    }
+
+    // The links and the color of a node, read and written by the red-black tree code below (which is shared with the
+    // trees of slots of RBSlotArena - see tools/template/RBTreeCore.template)
+    private RBTreePlusDoubleNode parent(RBTreePlusDoubleNode node){
+        return node.getParent();
+    }
+
+    private RBTreePlusDoubleNode leftSon(RBTreePlusDoubleNode node){
+        return node.getLeftSon();
+    }
+
+    private RBTreePlusDoubleNode rightSon(RBTreePlusDoubleNode node){
+        return node.getRightSon();
+    }
+
+    private RBTreePlusNode.Color color(RBTreePlusDoubleNode node){
+        return node.getColor();
+    }
+
+    private void setParent(RBTreePlusDoubleNode node, RBTreePlusDoubleNode parent){
+        node.setParent(parent);
+    }
+
+    private void setLeftSon(RBTreePlusDoubleNode node, RBTreePlusDoubleNode leftSon){
+        node.setLeftSon(leftSon);
+    }
+
+    private void setRightSon(RBTreePlusDoubleNode node, RBTreePlusDoubleNode rightSon){
+        node.setRightSon(rightSon);
+    }
+
+    private void setColor(RBTreePlusDoubleNode node, RBTreePlusNode.Color color){
+        node.setColor(color);
+    }
+
+    /**
+     * Performs a left rotation of the tree on node x, and updates the sizes of the subtrees of x and y (the only
+     * subtrees that change, as explained in the book, page 343).
+     * Time complexity: Θ(1) (as explained in the book, page 234)
+     *
+     * @param x the node on which the rotation is executed
+     */
+    private void leftRotate(RBTreePlusDoubleNode x){
+        RBTreePlusDoubleNode y = rightSon(x); // set y to x's right son
+        if (!isNilT(y)){ // the rotation can only be executed if y isn't nilT (as explained in the book, page 234)
+            RBTreePlusDoubleNode yLeftSon = leftSon(y);
+            setRightSon(x, yLeftSon); // turn y's left subtree into x's right subtree
+            if (!isNilT(yLeftSon)){
+                setParent(yLeftSon, x);
+            }
+            RBTreePlusDoubleNode xParent = parent(x);
+            setParent(y, xParent); // link x's parent to y
+            if (isNilT(xParent)){
+                _root = y;
+            } else if (x == leftSon(xParent)){ // if x is his father's left son
+                setLeftSon(xParent, y);
+            } else {
+                setRightSon(xParent, y);
+            }
+            setLeftSon(y, x);
+            setParent(x, y);
+            y.setSize(x.getSize()); // y's subtree has the nodes that were in x's subtree
+            updateSize(x);
+        }
+    }
+
+    /**
+     * Performs a right rotation of the tree on node y, and updates the sizes of the subtrees of y and x.
+     * Time complexity: Θ(1) (as explained in the book, page 234, symmetrical to leftRotate)
+     *
+     * @param y the node on which the rotation is executed
+     */
+    private void rightRotate(RBTreePlusDoubleNode y){
+        RBTreePlusDoubleNode x = leftSon(y); // set x to y's left son
+        if (!isNilT(x)){ // the rotation can only be executed if x isn't nilT (as explained in the book, page 234)
+            RBTreePlusDoubleNode xRightSon = rightSon(x);
+            setLeftSon(y, xRightSon); // turn x's right subtree into y's left subtree
+            if (!isNilT(xRightSon)){
+                setParent(xRightSon, y);
+            }
+            RBTreePlusDoubleNode yParent = parent(y);
+            setParent(x, yParent); // link y's parent to x
+            if (isNilT(yParent)){
+                _root = x;
+            } else if (y == rightSon(yParent)){ // if y is his father's right son
+                setRightSon(yParent, x);
+            } else {
+                setLeftSon(yParent, x);
+            }
+            setRightSon(x, y);
+            setParent(y, x);
+            x.setSize(y.getSize()); // x's subtree has the nodes that were in y's subtree
+            updateSize(y);
+        }
+    }
+
+    /**
+     * Restores the red-black tree properties of the tree after z's insertion.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param z the input node that was inserted to the tree
+     * @return true if the root was red before it was colored black (so the black-height of the tree grew by one)
+     */
+    private boolean insertFixup(RBTreePlusDoubleNode z){
+        RBTreePlusDoubleNode zParent = parent(z);
+        while (color(zParent) == RBTreePlusNode.Color.RED){
+            RBTreePlusDoubleNode zGrandpa = parent(zParent);
+            if (zParent == leftSon(zGrandpa)){ // if z's parent is his parent's left son
+                RBTreePlusDoubleNode zUncle = rightSon(zGrandpa);
+                if (color(zUncle) == RBTreePlusNode.Color.RED){
+                    // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zUncle, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
+                    z = zGrandpa;
+                } else {
+                    if (z == rightSon(zParent)){
+                        // case 2: z is his father's right son - perform left rotation on z's parent
+                        z = zParent;
+                        leftRotate(z);
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
+                    }
+                    // case 3: z is his father's left son - recolor z's parent and grandpa and perform
+                    // right rotation on grandpa
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
+                    rightRotate(zGrandpa);
+                }
+            } else { // if z's parent is his parent's right son (symmetrical to z's parent is his father's left son)
+                RBTreePlusDoubleNode zUncle = leftSon(zGrandpa);
+                if (color(zUncle) == RBTreePlusNode.Color.RED){
+                    // case 1: z's uncle is red - recolor z's parent, uncle and grandpa
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zUncle, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
+                    z = zGrandpa;
+                } else {
+                    if (z == leftSon(zParent)){
+                        // case 2: z is his father's left son - perform right rotation on z's parent
+                        z = zParent;
+                        rightRotate(z);
+                        zParent = parent(z); // get z's parent after rotation to use in case 3
+                        zGrandpa = parent(zParent); // get z's grandpa after rotation to use in case 3
+                    }
+                    // case 3: z is his father's right son - recolor z's parent and grandpa and perform
+                    // left rotation on grandpa
+                    setColor(zParent, RBTreePlusNode.Color.BLACK);
+                    setColor(zGrandpa, RBTreePlusNode.Color.RED);
+                    leftRotate(zGrandpa);
+                }
+            }
+            zParent = parent(z); // continue from z's parent (z moved up in case 1)
+        } // end of while
+        // case 0: fix the root's color to correct property num. 2 of red-black tree
+        boolean rootWasRed = color(_root) == RBTreePlusNode.Color.RED;
+        setColor(_root, RBTreePlusNode.Color.BLACK);
+        return rootWasRed;
+    }
+
+    /**
+     * Restores the red-black tree properties of the tree after a deletion. Since x may be nilT, whose parent is never
+     * set (nilT may be shared by several trees), x's parent is kept in a variable.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param x the node that replaced the deleted node in the tree
+     * @param xParent x's parent
+     */
+    private void deleteFixup(RBTreePlusDoubleNode x, RBTreePlusDoubleNode xParent){
+        while (x != _root && color(x) == RBTreePlusNode.Color.BLACK){
+            RBTreePlusDoubleNode w;
+            if (x == leftSon(xParent)){ // x is a left son
+                w = rightSon(xParent);
+                if (color(w) == RBTreePlusNode.Color.RED){
+                    // case 1: w (x's brother) is red
+                    setColor(w, RBTreePlusNode.Color.BLACK);
+                    setColor(xParent, RBTreePlusNode.Color.RED);
+                    leftRotate(xParent);
+                    w = rightSon(xParent);
+                }
+
+                if (color(leftSon(w)) == RBTreePlusNode.Color.BLACK &&
+                        color(rightSon(w)) == RBTreePlusNode.Color.BLACK){
+                    // case 2: w and his sons are black
+                    setColor(w, RBTreePlusNode.Color.RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(rightSon(w)) == RBTreePlusNode.Color.BLACK){
+                        // case 3: w is black, w's left son is red and w's right son is black
+                        setColor(leftSon(w), RBTreePlusNode.Color.BLACK);
+                        setColor(w, RBTreePlusNode.Color.RED);
+                        rightRotate(w);
+                        w = rightSon(xParent);
+                    }
+                    // case 4: w is black and w's right son is red
+                    setColor(w, color(xParent));
+                    setColor(xParent, RBTreePlusNode.Color.BLACK);
+                    setColor(rightSon(w), RBTreePlusNode.Color.BLACK);
+                    leftRotate(xParent);
+                    x = _root;
+                }
+
+            } else { // x is a right son (symmetrical to x is a left son)
+                w = leftSon(xParent);
+                if (color(w) == RBTreePlusNode.Color.RED){
+                    // case 1: w (x's brother) is red
+                    setColor(w, RBTreePlusNode.Color.BLACK);
+                    setColor(xParent, RBTreePlusNode.Color.RED);
+                    rightRotate(xParent);
+                    w = leftSon(xParent);
+                }
+
+                if (color(rightSon(w)) == RBTreePlusNode.Color.BLACK &&
+                        color(leftSon(w)) == RBTreePlusNode.Color.BLACK){
+                    // case 2: w and his sons are black
+                    setColor(w, RBTreePlusNode.Color.RED);
+                    x = xParent;
+                    xParent = parent(x);
+                } else {
+                    if (color(leftSon(w)) == RBTreePlusNode.Color.BLACK){
+                        // case 3: w is black, w's right son is red and w's left son is black
+                        setColor(rightSon(w), RBTreePlusNode.Color.BLACK);
+                        setColor(w, RBTreePlusNode.Color.RED);
+                        leftRotate(w);
+                        w = leftSon(xParent);
+                    }
+                    // case 4: w is black and w's left son is red
+                    setColor(w, color(xParent));
+                    setColor(xParent, RBTreePlusNode.Color.BLACK);
+                    setColor(leftSon(w), RBTreePlusNode.Color.BLACK);
+                    rightRotate(xParent);
+                    x = _root;
+                }
+            }
+        } // end of while
+        if (!isNilT(x)){
+            setColor(x, RBTreePlusNode.Color.BLACK);
+        }
+    }
+
+    /**
+     * Finds the node with the maximum key in a tree rooted in a given node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 217).
+     *
+     * @return the node with the maximum key
+     */
+    private RBTreePlusDoubleNode treeMaxNode(RBTreePlusDoubleNode node){
+        while (!isNilT(rightSon(node))){
+            node = rightSon(node);
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node with the minimum key in a tree rooted in a given node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 217).
+     *
+     * @return the node with the minimum key
+     */
+    private RBTreePlusDoubleNode treeMinNode(RBTreePlusDoubleNode node){
+        while (!isNilT(leftSon(node))){
+            node = leftSon(node);
+        }
+        return node;
+    }
+
+    /**
+     * Returns a node which is the predecessor of the input node (nilT if the input node has the minimum key).
+     * In order to find the predecessor, the method first checks if the node has a left son. If so - the predecessor
+     * is the maximum of left son's subtree (to find this maximum - treeMaxNode method is used). Otherwise, the
+     * predecessor is the node's lowest ancestor that has a right son who is also an ancestor of the node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the predecessor node
+     */
+    public RBTreePlusDoubleNode predecessor(RBTreePlusDoubleNode node){
+        if (!isNilT(leftSon(node))){ // if the node has a left son
+            return treeMaxNode(leftSon(node));
+        }
+        // if the node doesn't have a left son
+        RBTreePlusDoubleNode y = parent(node);
+        while (!isNilT(y) && node == leftSon(y)){
+            node = y;
+            y = parent(y);
+        }
+        return y;
+    }
+
+    /**
+     * Returns a node which is the successor of the input node (nilT if the input node has the maximum key).
+     * In order to find the successor, the method first checks if the node has a right son. If so - the successor
+     * is the minimum of right son's subtree (to find this minimum - treeMinNode method is used). Otherwise, the
+     * successor is the node's lowest ancestor that has a left son who is also an ancestor of the node.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 218).
+     *
+     * @param node the input node
+     * @return the successor node
+     */
+    public RBTreePlusDoubleNode successor(RBTreePlusDoubleNode node){
+        if (!isNilT(rightSon(node))){ // if the node has a right son
+            return treeMinNode(rightSon(node));
+        }
+        // if the node doesn't have a right son
+        RBTreePlusDoubleNode y = parent(node);
+        while (!isNilT(y) && node == rightSon(y)){
+            node = y;
+            y = parent(y);
+        }
+        return y;
+    }
+
+    // Sets the size of the subtree of a node from the sizes of its sons
+    private void updateSize(RBTreePlusDoubleNode node){
+        node.setSize(node.getLeftSon().getSize() + node.getRightSon().getSize() + 1);
+    }
+
+    /**
+     * Gets a key and inserts a node with this key into the red-black tree.
+     * Increments the number of elements in the tree.
+     * Uses a method named insertFixup to maintain the red-black tree properties.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param key the key to be inserted into the tree
+     */
+    public void insert(double key){
+        insertNode(new RBTreePlusDoubleNode(key, RBTreePlusNode.Color.RED));
+    }
+
+    /**
+     * Inserts a red node that isn't linked to any other node into the red-black tree (used by insert for a new node
+     * and by offer for the evicted max node).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 241).
+     *
+     * @param z the node to be inserted into the tree
+     */
+    private void insertNode(RBTreePlusDoubleNode z){
+        RBTreePlusDoubleNode y = _nilT;
+        RBTreePlusDoubleNode x = _root;
+        while (!isNilT(x)){ // find the right place to insert z node
+            y = x;
+            x.setSize(x.getSize() + 1); // z is added to the subtree of every node on the path
+            int c = compare(z.getKey(), x.getKey());
+            if (c < 0){
+                x = x.getLeftSon();
+            } else {
+                x = x.getRightSon();
+            }
+        }
+        z.setParent(y);
+        if (isNilT(y)){ // if the tree was empty - z is the root
+            _root = z;
+        } else if (compare(z.getKey(), y.getKey()) < 0){
+            y.setLeftSon(z);
+        } else {
+            y.setRightSon(z);
+        }
+        z.setLeftSon(_nilT);
+        z.setRightSon(_nilT);
+        z.setSize(1);
+        if (isNilT(_maxNode) || compare(z.getKey(), _maxNode.getKey()) >= 0){ // z is the new maximum
+            _maxNode = z;
+        }
+        insertFixup(z);
+        _numOfElements++;
+    }
+
+    /**
+     * Offers a key to a bounded tree, which keeps the capacity (k) lowest keys offered to it (the same as
+     * RBTreePlus.offer - the max node's predecessor is its left son or its parent, so a key that stays the max. key
+     * changes the max node in place, and otherwise the max node is removed and inserted again with the key).
+     * Time complexity: Θ(1) for a rejected key, Θ(logk) otherwise, where k is the capacity of the tree.
+     *
+     * @param key the offered key
+     * @return true if the key was added to the tree
+     */
+    public boolean offer(double key){
+        if (_numOfElements < _capacity){ // if there are less than k elements - insert into the tree
+            insert(key);
+            return true;
+        }
+        RBTreePlusDoubleNode maxNode = _maxNode;
+        if (_numOfElements == 0 || compare(key, maxNode.getKey()) >= 0){
+            return false;
+        }
+        RBTreePlusDoubleNode maxPredNode = maxNode.getLeftSon(); // used for the predecessor of the max node
+        if (isNilT(maxPredNode)){
+            maxPredNode = maxNode.getParent();
+        }
+        if (isNilT(maxPredNode) || compare(key, maxPredNode.getKey()) >= 0){
+            // if key is the new maximum (or the max node is the only node) - changes the key of the max node
+            maxNode.setKey(key);
+        } else { // if key isn't the new maximum - removes the max node and inserts it again with the key
+            delete(maxNode);
+            _maxNode = maxPredNode;
+            maxNode.setKey(key);
+            maxNode.setColor(RBTreePlusNode.Color.RED);
+            insertNode(maxNode);
+        }
+        return true;
+    }
+
+    /**
+     * Offers the keys of a part of an array to a bounded tree, in the same way as offer.
+     * Time complexity: Θ(mlogk), where m is the number of keys.
+     *
+     * @param keys the array
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     * @return the number of keys that were added to the tree
+     */
+    public int offerAll(double[] keys, int from, int to){
+        int added = 0;
+        for (int i = from; i < to; i++){
+            if (offer(keys[i])){
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Deletes a node from the red-black tree, and uses deleteFixup method to restore the red-black tree properties.
+     * Decrements the number of elements in the tree. Like RBTreePlus.delete, the key of the successor may be moved
+     * into z, and the node that was removed from the tree is returned.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param z the node to be deleted
+     * @return the node removed from the tree
+     */
+    public RBTreePlusDoubleNode delete(RBTreePlusDoubleNode z){
+        return deleteNode(z);
+    }
+
+    /**
+     * Deletes a node from the red-black tree (see delete).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree (as explained in the book, page 246).
+     *
+     * @param z the node to be deleted
+     * @return the deleted node
+     */
+    private RBTreePlusDoubleNode deleteNode(RBTreePlusDoubleNode z){
+        RBTreePlusDoubleNode y, x;
+        if (isNilT(z.getLeftSon()) || isNilT(z.getRightSon())){
+            y = z;
+        } else {
+            y = successor(z);
+        }
+        if (!isNilT(y.getLeftSon())){
+            x = y.getLeftSon();
+        } else {
+            x = y.getRightSon();
+        }
+        RBTreePlusDoubleNode yParent = y.getParent();
+        if (!isNilT(x)){ // nilT's parent is never set, so x's parent is passed to deleteFixup instead
+            x.setParent(yParent);
+        }
+        if (isNilT(yParent)){
+            _root = x;
+        } else if (y == yParent.getLeftSon()){
+            yParent.setLeftSon(x);
+        } else {
+            yParent.setRightSon(x);
+        }
+        if (y != z){
+            z.setKey(y.getKey());
+        }
+        for (RBTreePlusDoubleNode node = yParent; !isNilT(node); node = node.getParent()){
+            // the subtree of every node on the path to the root changed (z is on the path if y isn't z) - the sizes are
+            // updated before the rotations of deleteFixup, which compute the sizes from the sons
+            updateSize(node);
+        }
+        if (y.getColor() == RBTreePlusNode.Color.BLACK){
+            // the fixup should be performed only if the deleted node was black, as a red node deletion does not
+            // violate red-black properties of the tree
+            deleteFixup(x, yParent);
+        }
+        _numOfElements--;
+        return y;
+    }
+
+    /**
+     * Returns the node with the j-th lowest key in the tree (j = 1 is the min. key).
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param j the rank of the key (1 to the number of elements)
+     * @return the node with the j-th lowest key
+     */
+    public RBTreePlusDoubleNode select(int j){
+        if (j < 1 || j > _numOfElements){
+            throw new IllegalArgumentException("Invalid rank: " + j + " (the tree has " + _numOfElements +
+                    " elements)");
+        }
+        RBTreePlusDoubleNode node = _root;
+        int r = node.getLeftSon().getSize() + 1; // the rank of the node in its subtree
+        while (j != r){
+            if (j < r){
+                node = node.getLeftSon();
+            } else { // the j-th lowest key is the (j-r)-th lowest key in the right subtree
+                node = node.getRightSon();
+                j -= r;
+            }
+            r = node.getLeftSon().getSize() + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Returns the rank of a key - the number of keys in the tree that are smaller than or equal to it.
+     * Time complexity: Θ(logk), where k is the total number of elements in the tree.
+     *
+     * @param key the key (doesn't have to be in the tree)
+     * @return the number of keys that are smaller than or equal to the key
+     */
+    public int rank(double key){
+        int count = 0;
+        RBTreePlusDoubleNode node = _root;
+        while (!isNilT(node)){
+            if (compare(node.getKey(), key) <= 0){ // the node and its left subtree count
+                count += node.getLeftSon().getSize() + 1;
+                node = node.getRightSon();
+            } else {
+                node = node.getLeftSon();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prints the keys of the tree in ascending order (separated by commas), in the same format as RBTreePlus.printKMin.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     */
+    public void printKMin(){
+        if (isNilT(_root)){
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (RBTreePlusDoubleNode node = treeMinNode(_root); !isNilT(node); node = successor(node)){
+            line.append(node.getKey()).append(',');
+        }
+        line.setLength(line.length() - 1); // remove the comma after the max. key
+        System.out.println(line);
+    }
+
+    /**
+     * Copies the keys of the tree into an array in ascending order, by an iterative inorder walk.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     *
+     * @param keys the array into which the keys are copied (must have room for all the elements)
+     * @return the number of keys copied
+     */
+    public int copyKeys(double[] keys){
+        int count = 0;
+        if (!isNilT(_root)){
+            for (RBTreePlusDoubleNode node = treeMinNode(_root); !isNilT(node); node = successor(node)){
+                keys[count++] = node.getKey();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the keys of the tree in ascending order, by using copyKeys method.
+     * Time complexity: Θ(k), where k is the total number of elements in the tree.
+     *
+     * @return a new array with the keys of the tree in ascending order
+     */
+    public double[] toSortedArray(){
+        double[] keys = new double[_numOfElements];
+        copyKeys(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,97 @@
+// Generated by tools/GenerateVariants.java from tools/template/RBTreePlusNode.template - don't edit.
+package com.sima;
+
+/**
+ * This class represents a node in the red-black tree RBTreePlusDouble (the same as RBTreePlusNode, with a double
+ * key).
+ * Each node contains three pointers (to parent, left son and right son nodes), key (by value), color and the size of
+ * its subtree (the number of nodes in the subtree rooted in it, used for order-statistic queries).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class RBTreePlusDoubleNode {
+
+    // Instance variables - 3 pointers (to parent, left son and right son nodes), key (by value), color and size of
+    // the subtree
+    private RBTreePlusDoubleNode _parent, _leftSon, _rightSon;
+    private double _key;
+    private RBTreePlusNode.Color _color;
+    private int _size;
+
+    /**
+     * Constructor - sets the key and color of the node, assigns the values of the 3 pointers - parent,
+     * left son and right son - to null, and sets the size of the subtree to 1 (the node itself).
+     *
+     * @param key
+     * @param color
+     */
+    public RBTreePlusDoubleNode(double key, RBTreePlusNode.Color color) {
+        _parent = null;
+        _leftSon = null;
+        _rightSon = null;
+        _key = key;
+        _color = color;
+        _size = 1;
+    }
+
+    // Getters for all instance variables
+    public RBTreePlusDoubleNode getParent() {
+        if (_parent == null) {
+            return this;
+        }
+        return _parent;
+    }
+
+    public RBTreePlusDoubleNode getLeftSon() {
+        if (_leftSon == null) {
+            return this;
+        }
+        return _leftSon;
+    }
+
+    public RBTreePlusDoubleNode getRightSon() {
+        if (_rightSon == null) {
+            return this;
+        }
+        return _rightSon;
+    }
+
+    public double getKey() {
+        return _key;
+    }
+
+    public RBTreePlusNode.Color getColor() {
+        return _color;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    // Setters for all instance variables
+    public void setParent(RBTreePlusDoubleNode parent) {
+        _parent = parent;
+    }
+
+    public void setLeftSon(RBTreePlusDoubleNode left) {
+        _leftSon = left;
+    }
+
+    public void setRightSon(RBTreePlusDoubleNode right) {
+        _rightSon = right;
+    }
+
+    public void setKey(double key) {
+        _key = key;
+    }
+
+    public void setColor(RBTreePlusNode.Color color) {
+        _color = color;
+    }
+
+    public void setSize(int size) {
+        _size = size;
+    }
+}
@@ -0,0 +1,97 @@
+// Generated by tools/GenerateVariants.java from tools/template/RBTreePlusNode.template - don't edit.
+package com.sima;
+
+/**
+ * This class represents a node in the red-black tree RBTreePlusLong (the same as RBTreePlusNode, with a long
+ * key).
+ * Each node contains three pointers (to parent, left son and right son nodes), key (by value), color and the size of
+ * its subtree (the number of nodes in the subtree rooted in it, used for order-statistic queries).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class RBTreePlusLongNode {
+
+    // Instance variables - 3 pointers (to parent, left son and right son nodes), key (by value), color and size of
+    // the subtree
+    private RBTreePlusLongNode _parent, _leftSon, _rightSon;
+    private long _key;
+    private RBTreePlusNode.Color _color;
+    private int _size;
+
+    /**
+     * Constructor - sets the key and color of the node, assigns the values of the 3 pointers - parent,
+     * left son and right son - to null, and sets the size of the subtree to 1 (the node itself).
+     *
+     * @param key
+     * @param color
+     */
+    public RBTreePlusLongNode(long key, RBTreePlusNode.Color color) {
+        _parent = null;
+        _leftSon = null;
+        _rightSon = null;
+        _key = key;
+        _color = color;
+        _size = 1;
+    }
+
+    // Getters for all instance variables
+    public RBTreePlusLongNode getParent() {
+        if (_parent == null) {
+            return this;
+        }
+        return _parent;
+    }
+
+    public RBTreePlusLongNode getLeftSon() {
+        if (_leftSon == null) {
+            return this;
+        }
+        return _leftSon;
+    }
+
+    public RBTreePlusLongNode getRightSon() {
+        if (_rightSon == null) {
+            return this;
+        }
+        return _rightSon;
+    }
+
+    public long getKey() {
+        return _key;
+    }
+
+    public RBTreePlusNode.Color getColor() {
+        return _color;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    // Setters for all instance variables
+    public void setParent(RBTreePlusLongNode parent) {
+        _parent = parent;
+    }
+
+    public void setLeftSon(RBTreePlusLongNode left) {
+        _leftSon = left;
+    }
+
+    public void setRightSon(RBTreePlusLongNode right) {
+        _rightSon = right;
+    }
+
+    public void setKey(long key) {
+        _key = key;
+    }
+
+    public void setColor(RBTreePlusNode.Color color) {
+        _color = color;
+    }
+
+    public void setSize(int size) {
+        _size = size;
+    }
+}
@@ -2,7 +2,9 @@ package com.sima;
 
 /**
  * This class represents a node in the red-black tree.
- * Each node contains three pointers (to parent, left son and right son nodes), key (by value) and color.
+ * Each node contains three pointers (to parent, left son and right son nodes), key (by value), color, the number of
+ * occurrences of the key (more than 1 only in a multiset tree) and the size of its subtree (the number of occurrences
+ * of all the keys in the subtree rooted in it, used for order-statistic queries).
  *
  * @author Sima Margulis Davidi
  * @version 30-07-2017
@@ -15,14 +17,18 @@ public class RBTreePlusNode {
         RED, BLACK
     }
 
-    // Instance variables - 3 pointers (to parent, left son and right son nodes), key (by value) and color
+    // Instance variables - 3 pointers (to parent, left son and right son nodes), key (by value), color, number of
+    // occurrences of the key and size of the subtree
     private RBTreePlusNode _parent, _leftSon, _rightSon;
     private int _key;
     private Color _color;
+    private int _count;
+    private int _size;
 
     /**
-     * Constructor - sets the key and color of the node, and assigns the values of the 3 pointers - parent,
-     * left son and right son - to null.
+     * Constructor - sets the key and color of the node, assigns the values of the 3 pointers - parent,
+     * left son and right son - to null, and sets the number of occurrences and the size of the subtree to 1 (the
+     * node itself).
      *
      * @param key
      * @param color
@@ -33,6 +39,8 @@ public class RBTreePlusNode {
         _rightSon = null;
         _key = key;
         _color = color;
+        _count = 1;
+        _size = 1;
     }
 
     // Getters for all instance variables
@@ -65,6 +73,14 @@ public class RBTreePlusNode {
         return _color;
     }
 
+    public int getCount() {
+        return _count;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
     // Setters for all instance variables
     public void setParent(RBTreePlusNode parent) {
         _parent = parent;
@@ -85,4 +101,12 @@ public class RBTreePlusNode {
     public void setColor(Color color) {
         _color = color;
     }
+
+    public void setCount(int count) {
+        _count = count;
+    }
+
+    public void setSize(int size) {
+        _size = size;
+    }
 }
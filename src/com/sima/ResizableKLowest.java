@@ -0,0 +1,161 @@
+package com.sima;
+
+import java.nio.IntBuffer;
+
+/**
+ * This class represents a data structure for keeping the k lowest elements, where k can be changed while the elements
+ * are offered.
+ * The data structure consists of:
+ * 1. A bounded RBTreePlus with the k lowest elements.
+ * 2. A reservoir - a second bounded RBTreePlus with the lowest elements that didn't fit in the tree (rejected
+ * elements and evicted max. elements), up to a fixed number of elements.
+ * Every key of the reservoir is greater than or equal to every key of the tree, so the two trees together hold the
+ * k + r lowest elements, where r is the size of the reservoir. Shrinking k splits the tree after the new k lowest keys
+ * and joins the evicted keys in front of the reservoir, and growing k splits the reservoir and joins its lowest keys
+ * to the tree (RBTreePlus.split and join) - in Θ(logk + logr) either way, without a delete or insert for each moved
+ * key. The k lowest elements are exact unless k grew by more than the reservoir could cover (see isExact).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class ResizableKLowest {
+
+    // Instance variables - the tree of the k lowest elements, the reservoir, whether an element was dropped (didn't
+    // fit in the reservoir) and the lowest element dropped
+    private RBTreePlus _tree;
+    private RBTreePlus _reservoir;
+    private boolean _overflowed;
+    private int _minDropped;
+
+    /**
+     * Constructor - creates an empty tree bounded to k elements and an empty reservoir.
+     *
+     * @param k the number of lowest elements to keep
+     * @param reservoirSize the max. number of elements kept in the reservoir
+     */
+    public ResizableKLowest(int k, int reservoirSize) {
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        if (reservoirSize < 0){
+            throw new IllegalArgumentException("Invalid reservoir size: " + reservoirSize);
+        }
+        _tree = new RBTreePlus(k, true); // a node per distinct value, as in KLowest
+        _reservoir = new RBTreePlus(reservoirSize, true);
+        _overflowed = false;
+    }
+
+    // Getters for k, the number of elements kept (up to k) and the number of elements in the reservoir
+    public int getK() {
+        return _tree.getCapacity();
+    }
+
+    public int getNumOfElements() {
+        return _tree.getNumOfElements();
+    }
+
+    public int getReservoirElements() {
+        return _reservoir.getNumOfElements();
+    }
+
+    /**
+     * Checks whether the elements kept are the k lowest elements offered so far. Every element that is smaller than
+     * the lowest dropped element is in the tree or in the reservoir, and the tree has the lowest of them - so the
+     * elements kept are exact if no element was dropped, or if the tree has k elements and its max. key isn't greater
+     * than the lowest dropped element. They may not be exact after k grew by more than the reservoir had.
+     * Time complexity: Θ(1).
+     *
+     * @return true if the elements kept are exact
+     */
+    public boolean isExact() {
+        return !_overflowed || (_tree.getNumOfElements() == _tree.getCapacity() &&
+                _tree.getMaxNode().getKey() <= _minDropped);
+    }
+
+    /**
+     * Offers an element - the element is offered to the tree if it's smaller than the max. key of the tree (or the tree
+     * has less than k elements), and otherwise to the reservoir. The max. key that the element evicts from the tree
+     * is offered to the reservoir.
+     * Time complexity: Θ(logk + logr), where r is the size of the reservoir (Θ(1) for an element that isn't smaller than
+     * the max. keys of the tree and the reservoir).
+     *
+     * @param value the element
+     */
+    public void offer(int value){
+        if (_tree.getNumOfElements() < _tree.getCapacity()){ // the reservoir is empty until the tree is full
+            _tree.insert(value);
+            return;
+        }
+        int max = _tree.getMaxNode().getKey();
+        if (_tree.getNumOfElements() > 0 && value < max){
+            _tree.offer(value);
+            value = max; // an occurrence of the max. key was evicted from the tree
+        }
+        if (_reservoir.getNumOfElements() == _reservoir.getCapacity()){ // the value or the reservoir's max. is dropped
+            dropped(_reservoir.getNumOfElements() > 0 ? Math.max(value, _reservoir.getMaxNode().getKey()) : value);
+        }
+        _reservoir.offer(value);
+    }
+
+    /**
+     * Offers the elements of a part of a buffer, in the same way as offer (the position of the buffer doesn't change).
+     * Time complexity: Θ(m(logk + logr)), where m is the number of elements.
+     *
+     * @param values the buffer
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     */
+    public void offerAll(IntBuffer values, int from, int to){
+        for (int i = from; i < to; i++){
+            offer(values.get(i));
+        }
+    }
+
+    /**
+     * Changes k. If k shrinks, the keys after the new k lowest keys are split from the tree and joined in front of the
+     * reservoir, and the reservoir is split after its r lowest keys (the rest is dropped). If k grows, the lowest keys
+     * of the reservoir (as many as the growth, or all of them) are split from it and joined to the tree.
+     * Time complexity: Θ(logk + logr), where r is the size of the reservoir.
+     *
+     * @param k the new number of lowest elements to keep
+     */
+    public void resize(int k){
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        int reservoirSize = _reservoir.getCapacity();
+        if (k < _tree.getNumOfElements()){
+            RBTreePlus evicted = _tree.resize(k);
+            _reservoir = RBTreePlus.join(evicted, _reservoir); // has the capacity of the evicted tree until resized
+            RBTreePlus dropped = _reservoir.resize(reservoirSize);
+            if (dropped.getNumOfElements() > 0){
+                dropped(dropped.select(1).getKey());
+            }
+        } else {
+            int growth = k - _tree.getNumOfElements();
+            _tree.resize(k);
+            RBTreePlus rest = _reservoir.resize(Math.min(growth, _reservoir.getNumOfElements()));
+            RBTreePlus.join(_tree, _reservoir); // the lowest keys of the reservoir move to the tree
+            rest.resize(reservoirSize);
+            _reservoir = rest;
+        }
+    }
+
+    // Records a dropped element
+    private void dropped(int value){
+        _minDropped = _overflowed ? Math.min(_minDropped, value) : value;
+        _overflowed = true;
+    }
+
+    /**
+     * Copies the k lowest elements into an array in ascending order.
+     * Time complexity: Θ(k).
+     *
+     * @param keys the array into which the elements are copied (must have room for k elements)
+     * @return the number of elements copied
+     */
+    public int copyKeys(int[] keys){
+        return _tree.copyKeys(keys);
+    }
+}
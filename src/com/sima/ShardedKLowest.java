@@ -0,0 +1,142 @@
+package com.sima;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents a thread-safe collector of the k lowest elements, for several threads that offer elements
+ * concurrently.
+ * The elements are striped across shards by the offering thread, and every shard is a bounded RBTreePlus with its own
+ * lock, so threads that offer to different shards don't contend. The k lowest elements of all the elements are the
+ * k lowest elements of the merge of the shards, which is done on demand by checkpoint.
+ * A global admission threshold is shared by all the shards - the lowest max. key of a full shard (or of a merged
+ * checkpoint). A full shard already holds k elements that aren't greater than its max. key, so an element that
+ * isn't smaller than the threshold can't be one of the k lowest elements, and it's dropped by a volatile read only
+ * (without taking a lock or writing anything shared).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class ShardedKLowest {
+
+    // Instance variables - the shards, k and the global admission threshold (Long.MAX_VALUE before any shard is full,
+    // so every integer value is admitted)
+    private final RBTreePlus[] _shards;
+    private final int _k;
+    private final AtomicLong _threshold;
+
+    /**
+     * Constructor - creates 2 shards for every available processor, so that threads that run at the same time are
+     * likely to use different shards.
+     *
+     * @param k the number of lowest elements
+     */
+    public ShardedKLowest(int k) {
+        this(k, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor - creates the given number of shards, each bounded to k elements.
+     *
+     * @param k the number of lowest elements
+     * @param shards the number of shards
+     */
+    public ShardedKLowest(int k, int shards) {
+        if (shards <= 0){
+            throw new IllegalArgumentException("Invalid number of shards: " + shards);
+        }
+        _shards = new RBTreePlus[shards];
+        for (int i = 0; i < shards; i++){
+            _shards[i] = new RBTreePlus(k);
+        }
+        _k = k;
+        _threshold = new AtomicLong(Long.MAX_VALUE);
+    }
+
+    // Getter for the global admission threshold
+    public long getThreshold() {
+        return _threshold.get();
+    }
+
+    /**
+     * Offers an element. Can be called from any thread.
+     * Time complexity: Θ(1) for an element that isn't smaller than the threshold, Θ(logk) otherwise.
+     *
+     * @param value the element
+     * @return true if the element was kept by the shard of the current thread
+     */
+    public boolean offer(int value){
+        if (value >= _threshold.get()){ // can't be one of the k lowest elements
+            return false;
+        }
+        RBTreePlus shard = currentShard();
+        synchronized (shard){
+            if (!shard.offer(value)){
+                return false;
+            }
+            if (shard.getNumOfElements() == _k){
+                lowerThreshold(shard.getMaxNode().getKey());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Offers the elements of a part of an array, with a single lock of the shard of the current thread. Can be
+     * called from any thread.
+     * Time complexity: Θ(mlogk), where m is the number of elements.
+     *
+     * @param values the array
+     * @param from the first index of the part (inclusive)
+     * @param to the last index of the part (exclusive)
+     */
+    public void offer(int[] values, int from, int to){
+        RBTreePlus shard = currentShard();
+        synchronized (shard){
+            long threshold = _threshold.get();
+            for (int i = from; i < to; i++){
+                if (values[i] < threshold){
+                    shard.offer(values[i]);
+                }
+            }
+            if (shard.getNumOfElements() == _k && _k > 0){
+                lowerThreshold(shard.getMaxNode().getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the k lowest elements offered so far, by merging the shards (each shard is locked only while it's
+     * copied). Lowers the threshold to the max. of the result if it has k elements. Can be called from any thread.
+     * Time complexity: Θ(sk), where s is the number of shards.
+     *
+     * @return a new array with the k lowest elements in ascending order
+     */
+    public int[] checkpoint(){
+        int[] kLowest = new int[0];
+        for (RBTreePlus shard : _shards){
+            int[] shardLowest;
+            synchronized (shard){
+                shardLowest = shard.toSortedArray();
+            }
+            kLowest = KLowestTask.mergeLowest(kLowest, shardLowest, _k);
+        }
+        if (kLowest.length == _k && _k > 0){
+            lowerThreshold(kLowest[_k - 1]);
+        }
+        return kLowest;
+    }
+
+    // Returns the shard of the current thread
+    private RBTreePlus currentShard(){
+        return _shards[(int) (Thread.currentThread().getId() % _shards.length)];
+    }
+
+    // Lowers the threshold to the given value if it's lower than the current threshold
+    private void lowerThreshold(long value){
+        long threshold = _threshold.get();
+        while (value < threshold && !_threshold.compareAndSet(threshold, value)){
+            threshold = _threshold.get();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.sima;
+
+/**
+ * This class represents a sliding window version of the KLowest algorithm - the k lowest elements of the last W
+ * elements offered (a count based window), or of the elements offered in the last T milliseconds (a time based
+ * window).
+ * Keeping all the elements of the window isn't needed: an element that has at least k newer elements that aren't
+ * greater than it can't be one of the k lowest elements of any later window (those newer elements expire after it).
+ * The other elements are the candidates (the k-skyband of the window), and the k lowest elements of the window are
+ * the k lowest candidates. For random data the window has about k*ln(W/k) candidates.
+ * The data structure consists of:
+ * 1. An unbounded RBTreePlus with the values of the candidates, from which the k lowest are taken.
+ * 2. A circular queue of the candidates in the order of their arrival (value and arrival stamp - the position or the
+ *    time), from which the expired candidates are removed at the front.
+ * Candidates that are dominated by k newer elements are removed lazily - when the number of candidates doubles, the
+ * queue is passed over from the newest candidate to the oldest, and a candidate is removed if at least k newer
+ * candidates aren't greater than it (it's enough to count the candidates, since the k newest elements that aren't
+ * greater than a value are never dominated). So a purge costs Θ(clogc) once every Θ(c) arrivals, where c is the
+ * number of candidates.
+ * A key of the tree is removed by value (RBTreePlus.remove) and not by node, since RBTreePlus.delete may move a key
+ * between nodes, and all the candidates with the same value are equivalent.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class SlidingWindowKLowest {
+
+    // The min. number of candidates for which the candidates are purged (in addition to 2k)
+    private static final int MIN_PURGE_SIZE = 16;
+
+    // Instance variables - k, the size of the window (number of elements or milliseconds) and whether it's time based,
+    // the number of elements offered so far, the tree and the queue of the candidates (values, arrival stamps, the
+    // index of the oldest candidate and the number of candidates), and the number of candidates for the next purge
+    private int _k;
+    private long _windowSize;
+    private boolean _timeBased;
+    private long _position;
+    private RBTreePlus _candidates;
+    private int[] _values;
+    private long[] _stamps;
+    private int _head, _count;
+    private int _purgeSize;
+
+    /**
+     * Constructor - sets k and the window and creates an empty tree and queue of candidates.
+     *
+     * @param k the number of lowest elements
+     * @param windowSize the size of the window (number of elements or milliseconds)
+     * @param timeBased true if the window size is in milliseconds
+     */
+    private SlidingWindowKLowest(int k, long windowSize, boolean timeBased) {
+        if (k <= 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        if (windowSize <= 0){
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        _k = k;
+        _windowSize = windowSize;
+        _timeBased = timeBased;
+        _position = 0;
+        _candidates = new RBTreePlus();
+        _values = new int[MIN_PURGE_SIZE];
+        _stamps = new long[MIN_PURGE_SIZE];
+        _head = 0;
+        _count = 0;
+        _purgeSize = 2 * k + MIN_PURGE_SIZE;
+    }
+
+    /**
+     * Returns a window of the last elements offered.
+     *
+     * @param k the number of lowest elements
+     * @param elements the number of elements in the window
+     * @return the window
+     */
+    public static SlidingWindowKLowest lastElements(int k, long elements){
+        return new SlidingWindowKLowest(k, elements, false);
+    }
+
+    /**
+     * Returns a window of the elements offered in the last milliseconds (by System.currentTimeMillis, or by the
+     * times passed to offer(value, timeMillis)).
+     *
+     * @param k the number of lowest elements
+     * @param millis the number of milliseconds in the window
+     * @return the window
+     */
+    public static SlidingWindowKLowest lastMillis(int k, long millis){
+        return new SlidingWindowKLowest(k, millis, true);
+    }
+
+    // Getters for the number of elements offered so far and the number of candidates kept
+    public long getPosition() {
+        return _position;
+    }
+
+    public int getNumOfCandidates() {
+        return _count;
+    }
+
+    /**
+     * Offers an element (at the current time, for a time based window).
+     * Time complexity: Θ(logc) amortized, where c is the number of candidates.
+     *
+     * @param value the element
+     */
+    public void offer(int value){
+        offer(value, _timeBased ? System.currentTimeMillis() : 0);
+    }
+
+    /**
+     * Offers an element at a given time. The times of a time based window must not decrease (the time is ignored by a
+     * count based window).
+     * Time complexity: Θ(logc) amortized, where c is the number of candidates.
+     *
+     * @param value the element
+     * @param timeMillis the time of the element in milliseconds
+     */
+    public void offer(int value, long timeMillis){
+        _position++;
+        long stamp = _timeBased ? timeMillis : _position;
+        expire(stamp);
+        if (_count == _values.length){
+            grow();
+        }
+        int tail = (_head + _count) % _values.length;
+        _values[tail] = value;
+        _stamps[tail] = stamp;
+        _count++;
+        _candidates.insert(value);
+        if (_count >= _purgeSize){
+            purge();
+            _purgeSize = Math.max(2 * _count, 2 * _k + MIN_PURGE_SIZE);
+        }
+    }
+
+    /**
+     * Returns the k lowest elements of the window (at the current time, for a time based window).
+     * Time complexity: Θ(k + logc) + Θ(logc) for each expired candidate, where c is the number of candidates.
+     *
+     * @return a new array with the k lowest elements in ascending order
+     */
+    public int[] kLowest(){
+        if (_timeBased){
+            expire(System.currentTimeMillis());
+        }
+        return lowestCandidates();
+    }
+
+    /**
+     * Returns the k lowest elements of the window at a given time (for a count based window the time is ignored).
+     * Time complexity: Θ(k + logc) + Θ(logc) for each expired candidate, where c is the number of candidates.
+     *
+     * @param timeMillis the time in milliseconds (not before the time of the last element)
+     * @return a new array with the k lowest elements in ascending order
+     */
+    public int[] kLowest(long timeMillis){
+        if (_timeBased){
+            expire(timeMillis);
+        }
+        return lowestCandidates();
+    }
+
+    // Returns the k lowest candidates, by an inorder walk from the candidate with the min. value
+    private int[] lowestCandidates(){
+        int[] keys = new int[Math.min(_k, _count)];
+        if (keys.length > 0){
+            RBTreePlusNode node = _candidates.select(1);
+            for (int i = 0; i < keys.length; i++){
+                keys[i] = node.getKey();
+                node = _candidates.successor(node);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Removes the candidates that are out of the window from the front of the queue.
+     * Time complexity: Θ(logc) for each removed candidate, where c is the number of candidates.
+     *
+     * @param stamp the stamp of the newest element (position or time)
+     */
+    private void expire(long stamp){
+        while (_count > 0 && _stamps[_head] <= stamp - _windowSize){
+            _candidates.remove(_values[_head]);
+            _head = (_head + 1) % _values.length;
+            _count--;
+        }
+    }
+
+    /**
+     * Removes the candidates that have at least k newer candidates that aren't greater than them, and compacts the
+     * queue. The newer candidates are counted in a temporary order-statistic tree (see RBTreePlus.rank).
+     * Time complexity: Θ(clogc), where c is the number of candidates.
+     */
+    private void purge(){
+        RBTreePlus newer = new RBTreePlus();
+        int kept = 0; // the kept candidates are moved to the end of the queue, in the same order
+        for (int i = _count - 1; i >= 0; i--){
+            int index = (_head + i) % _values.length;
+            int value = _values[index];
+            if (newer.rank(value) >= _k){ // dominated by k newer candidates
+                _candidates.remove(value);
+            } else {
+                newer.insert(value);
+                kept++;
+                int target = (_head + _count - kept) % _values.length;
+                _values[target] = value;
+                _stamps[target] = _stamps[index];
+            }
+        }
+        _head = (_head + _count - kept) % _values.length;
+        _count = kept;
+    }
+
+    // Doubles the size of the queue, and moves the oldest candidate to index 0
+    private void grow(){
+        int[] values = new int[2 * _values.length];
+        long[] stamps = new long[2 * _stamps.length];
+        for (int i = 0; i < _count; i++){
+            values[i] = _values[(_head + i) % _values.length];
+            stamps[i] = _stamps[(_head + i) % _stamps.length];
+        }
+        _values = values;
+        _stamps = stamps;
+        _head = 0;
+    }
+}
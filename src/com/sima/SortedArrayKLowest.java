@@ -0,0 +1,112 @@
+package com.sima;
+
+/**
+ * This class represents a data structure for keeping the k lowest elements in a sorted array of k slots, for small
+ * values of k.
+ * The data structure consists of:
+ * 1. An array with room for k elements, which holds the kept elements in ascending order from index 0.
+ * 2. A variable for the number of elements kept.
+ * An element is inserted at the place found by a binary search, and the greater elements are moved one slot up (the
+ * max. element falls off the end when the array is full). Moving up to k ints is a single memory copy, so for a small
+ * k it is faster than the Θ(logk) pointer chasing of a tree, and the array is already sorted at a checkpoint.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class SortedArrayKLowest implements KLowestEngine {
+
+    // Instance variables - the sorted elements and the number of elements kept
+    private int[] _keys;
+    private int _numOfElements;
+
+    /**
+     * Constructor - allocates an array of k slots and sets the number of elements to 0.
+     *
+     * @param k the max. number of elements kept
+     */
+    public SortedArrayKLowest(int k) {
+        if (k < 0){
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+        _keys = new int[k];
+        _numOfElements = 0;
+    }
+
+    /**
+     * Returns a data structure with the given elements (at most k of them).
+     * Time complexity: Θ(k).
+     *
+     * @param keys the elements, in ascending order
+     * @param count the number of elements
+     * @param k the max. number of elements kept
+     * @return the data structure
+     */
+    public static SortedArrayKLowest fromSortedKeys(int[] keys, int count, int k){
+        if (count > k){
+            throw new IllegalArgumentException("Too many elements: " + count + " (k = " + k + ")");
+        }
+        SortedArrayKLowest sortedArray = new SortedArrayKLowest(k);
+        System.arraycopy(keys, 0, sortedArray._keys, 0, count);
+        sortedArray._numOfElements = count;
+        return sortedArray;
+    }
+
+    // Getters for the num. of elements and k
+    @Override
+    public int getNumOfElements() {
+        return _numOfElements;
+    }
+
+    @Override
+    public int getCapacity() {
+        return _keys.length;
+    }
+
+    /**
+     * Offers an element - if the array is full, an element that isn't smaller than the max. element (the last one) is
+     * rejected in Θ(1). Otherwise, the element is inserted after the elements that are smaller than or equal to it.
+     * Time complexity: Θ(1) for a rejected element, Θ(k) otherwise (Θ(logk) comparisons and a copy of up to k ints).
+     *
+     * @param key the element
+     * @return true if the element was kept
+     */
+    @Override
+    public boolean offer(int key){
+        int[] keys = _keys;
+        int last = _numOfElements;
+        if (last == keys.length){
+            if (last == 0 || key >= keys[last - 1]){
+                return false;
+            }
+            last--; // the max. element is evicted
+        } else {
+            _numOfElements++;
+        }
+        int lo = 0, hi = last; // the place is the first index in [lo, hi] with an element greater than the key
+        while (lo < hi){
+            int middle = (lo + hi) >>> 1;
+            if (keys[middle] <= key){
+                lo = middle + 1;
+            } else {
+                hi = middle;
+            }
+        }
+        System.arraycopy(keys, lo, keys, lo + 1, last - lo);
+        keys[lo] = key;
+        return true;
+    }
+
+    /**
+     * Copies the elements kept into an array in ascending order.
+     * Time complexity: Θ(k).
+     *
+     * @param keys the array into which the elements are copied (must have room for all the elements)
+     * @return the number of elements copied
+     */
+    @Override
+    public int copyKeys(int[] keys){
+        System.arraycopy(_keys, 0, keys, 0, _numOfElements);
+        return _numOfElements;
+    }
+}
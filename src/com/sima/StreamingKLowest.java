@@ -0,0 +1,105 @@
+package com.sima;
+
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * This class represents a streaming version of the KLowest algorithm, for a source of elements of unknown (or
+ * unbounded) length - an iterator, an IntStream or elements pushed one by one by offer.
+ * The k lowest elements encountered so far are kept in a bounded RBTreePlus, so the memory used is Θ(k) regardless
+ * of the number of elements. At each checkpoint chosen by the CheckpointPolicy (and at the end of a source), the k
+ * lowest elements are handed to a CheckpointListener as an array.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class StreamingKLowest {
+
+    // Instance variables - the tree, policy, listener, number of elements passed so far, position of the last
+    // checkpoint and whether a checkpoint was requested (by another thread)
+    private RBTreePlus _tree;
+    private CheckpointPolicy _policy;
+    private CheckpointListener _listener;
+    private long _position, _lastCheckpointPosition;
+    private volatile boolean _checkpointRequested;
+
+    /**
+     * Constructor - creates a tree bounded to k elements and sets the policy and listener.
+     *
+     * @param k the number of lowest elements to keep
+     * @param policy the policy that decides when checkpoints are reported
+     * @param listener the receiver of the k lowest elements at each checkpoint
+     */
+    public StreamingKLowest(int k, CheckpointPolicy policy, CheckpointListener listener) {
+        _tree = new RBTreePlus(k);
+        _policy = policy;
+        _listener = listener;
+        _position = 0;
+        _lastCheckpointPosition = -1;
+        _checkpointRequested = false;
+    }
+
+    // Getter for the number of elements passed so far
+    public long getPosition() {
+        return _position;
+    }
+
+    /**
+     * Passes over the elements of an iterator until it has no more elements, and reports a checkpoint at the end.
+     * Time complexity: Θ(mlogk), where m is the number of elements of the iterator.
+     *
+     * @param source the elements
+     */
+    public void process(PrimitiveIterator.OfInt source){
+        while (source.hasNext()){
+            offer(source.nextInt());
+        }
+        checkpoint();
+    }
+
+    /**
+     * Passes over the elements of an IntStream, and reports a checkpoint at the end.
+     * Time complexity: Θ(mlogk), where m is the number of elements of the stream.
+     *
+     * @param source the elements
+     */
+    public void process(IntStream source){
+        process(source.iterator());
+    }
+
+    /**
+     * Passes over one element, and reports a checkpoint if the policy decides so or if one was requested.
+     * Time complexity: Θ(logk) (Θ(k) if a checkpoint is reported).
+     *
+     * @param value the element
+     */
+    public void offer(int value){
+        _tree.offer(value);
+        _position++;
+        if (_checkpointRequested || _policy.isDue(_position)){
+            checkpoint();
+        }
+    }
+
+    /**
+     * Requests a checkpoint after the next element. Can be called from any thread.
+     */
+    public void requestCheckpoint(){
+        _checkpointRequested = true;
+    }
+
+    /**
+     * Reports the k lowest elements encountered so far to the listener (unless they were already reported at the
+     * current position).
+     * Time complexity: Θ(k).
+     */
+    public void checkpoint(){
+        _checkpointRequested = false;
+        if (_position != _lastCheckpointPosition){
+            _lastCheckpointPosition = _position;
+            _policy.checkpointReported(_position);
+            _listener.onCheckpoint(_position, _tree.toSortedArray());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sima;
+
+/**
+ * This class represents the net change of the keys of a tree between two checkpoints - the keys that entered the tree
+ * and the keys that were evicted from it (see KeyChangeRecorder). A key that entered and was evicted again between the
+ * checkpoints (or the other way around) appears in neither list, so the size of a delta depends on the net churn and
+ * not on k. Applying the deltas of all the checkpoints in order to an empty tree gives the keys of the tree at the
+ * last checkpoint.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public final class TreeDelta {
+
+    // Instance variables - the number of the checkpoint, and the entered and evicted keys (ascending, with repetitions)
+    private final int _checkpoint;
+    private final int[] _entered;
+    private final int[] _evicted;
+
+    /**
+     * Constructor - sets the number of the checkpoint and the entered and evicted keys.
+     *
+     * @param checkpoint the number of the checkpoint
+     * @param entered the keys that entered the tree, in ascending order
+     * @param evicted the keys that were evicted from the tree, in ascending order
+     */
+    public TreeDelta(int checkpoint, int[] entered, int[] evicted) {
+        _checkpoint = checkpoint;
+        _entered = entered;
+        _evicted = evicted;
+    }
+
+    // Getters for the number of the checkpoint and the entered and evicted keys (the arrays must not be changed)
+    public int getCheckpoint() {
+        return _checkpoint;
+    }
+
+    public int[] getEntered() {
+        return _entered;
+    }
+
+    public int[] getEvicted() {
+        return _evicted;
+    }
+
+    /**
+     * Applies the delta to a tree that holds the keys of the previous checkpoint - removes an occurrence of every
+     * evicted key and inserts every entered key.
+     * Time complexity: Θ(clogk), where c is the size of the delta and k is the number of elements in the tree.
+     *
+     * @param tree the tree
+     */
+    public void applyTo(RBTreePlus tree){
+        for (int key : _evicted){
+            if (!tree.remove(key)){
+                throw new IllegalStateException("Evicted key " + key + " isn't in the tree (checkpoint " +
+                        _checkpoint + ")");
+            }
+        }
+        for (int key : _entered){
+            tree.insert(key);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.sima;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class represents the instrumentation counters of RBTreePlus - comparisons, rotations, the cases of insertFixup
+ * and deleteFixup, and the result of every offer (rejection, replacement of the max key in place, full replacement by
+ * delete and insert, or replacement of one occurrence of the max key in a multiset tree).
+ * The counters are enabled by the system property com.sima.stats=true. ENABLED is a static final constant checked
+ * inside count and add, so when the counters are disabled these tiny methods are inlined into the hot path as
+ * nothing.
+ * Every thread counts into its own array (no shared writes), and the arrays of all the threads are summed when the
+ * counters are read - through the TreeStatsMXBean registered as com.sima:type=TreeStats, or by JFR CheckpointEvents
+ * committed by KLowest at each checkpoint (if the optional jfr module, which needs Java 11 or later, is on the class
+ * path - see CheckpointRecorder). The sums are read without locking, so they may miss the latest counts of running
+ * threads.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public final class TreeStats {
+
+    /**
+     * This enum represents the counters.
+     */
+    public enum Counter {
+        COMPARISONS, LEFT_ROTATIONS, RIGHT_ROTATIONS,
+        INSERT_FIXUP_CASE_1, INSERT_FIXUP_CASE_2, INSERT_FIXUP_CASE_3,
+        DELETE_FIXUP_CASE_1, DELETE_FIXUP_CASE_2, DELETE_FIXUP_CASE_3, DELETE_FIXUP_CASE_4,
+        REJECTIONS, IN_PLACE_REPLACEMENTS, FULL_REPLACEMENTS, OCCURRENCE_REPLACEMENTS
+    }
+
+    // Whether the counters are enabled (the system property com.sima.stats)
+    public static final boolean ENABLED = Boolean.getBoolean("com.sima.stats");
+
+    // The name of the MBean
+    public static final String MBEAN_NAME = "com.sima:type=TreeStats";
+
+    // The number of counters (the array of a thread also holds the counters at its previous checkpoint)
+    private static final int COUNTERS = Counter.values().length;
+
+    // The class name of the recorder of the checkpoints in the jfr module
+    private static final String JFR_RECORDER = "com.sima.JfrCheckpointRecorder";
+
+    // The arrays of all the threads that counted, and the array of the current thread
+    private static final List<long[]> ALL_THREADS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<long[]> CURRENT_THREAD = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long[] counters = new long[2 * COUNTERS];
+            ALL_THREADS.add(counters);
+            return counters;
+        }
+    };
+
+    // The recorder of the checkpoints (null if the counters are disabled or the jfr module isn't on the class path)
+    private static final CheckpointRecorder RECORDER = ENABLED ? loadRecorder() : null;
+
+    static {
+        if (ENABLED){
+            registerMBean();
+        }
+    }
+
+    // The class only has static methods
+    private TreeStats() {
+    }
+
+    /**
+     * Increments a counter of the current thread (if the counters are enabled).
+     *
+     * @param counter the counter
+     */
+    public static void count(Counter counter){
+        if (ENABLED){
+            CURRENT_THREAD.get()[counter.ordinal()]++;
+        }
+    }
+
+    /**
+     * Adds to a counter of the current thread (if the counters are enabled).
+     *
+     * @param counter the counter
+     * @param amount the amount added
+     */
+    public static void add(Counter counter, long amount){
+        if (ENABLED){
+            CURRENT_THREAD.get()[counter.ordinal()] += amount;
+        }
+    }
+
+    /**
+     * Returns the sum of a counter over all the threads.
+     *
+     * @param counter the counter
+     * @return the sum
+     */
+    public static long get(Counter counter){
+        long sum = 0;
+        for (long[] counters : ALL_THREADS){
+            sum += counters[counter.ordinal()];
+        }
+        return sum;
+    }
+
+    /**
+     * Sets all the counters of all the threads to 0.
+     */
+    public static void reset(){
+        for (long[] counters : ALL_THREADS){
+            for (int i = 0; i < counters.length; i++){
+                counters[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Commits a JFR CheckpointEvent with the counters of the current thread since its previous checkpoint (see
+     * CheckpointRecorder). Does nothing if the jfr module isn't on the class path. Should be called only if ENABLED
+     * is true.
+     *
+     * @param k the k of the algorithm
+     * @param checkpoint the number of the checkpoint
+     * @param numOfElements the number of elements in the tree
+     */
+    public static void commitCheckpoint(int k, int checkpoint, int numOfElements){
+        long[] counters = CURRENT_THREAD.get();
+        long[] delta = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++){ // the counts since the previous checkpoint
+            delta[i] = counters[i] - counters[COUNTERS + i];
+            counters[COUNTERS + i] = counters[i];
+        }
+        if (RECORDER != null){
+            RECORDER.record(k, checkpoint, numOfElements, delta);
+        }
+    }
+
+    /**
+     * Loads the recorder of the jfr module by its name, so this class doesn't depend on JFR at compile time.
+     *
+     * @return the recorder, or null if the jfr module isn't on the class path (or JFR isn't available)
+     */
+    private static CheckpointRecorder loadRecorder(){
+        try {
+            return (CheckpointRecorder) Class.forName(JFR_RECORDER).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e){
+            return null;
+        }
+    }
+
+    /**
+     * Registers the MBean of the counters in the platform MBean server (does nothing if it's already registered).
+     */
+    private static void registerMBean(){
+        TreeStatsMXBean bean = new TreeStatsMXBean() {
+            @Override
+            public Map<String, Long> getCounters() {
+                Map<String, Long> counters = new LinkedHashMap<>();
+                for (Counter counter : Counter.values()){
+                    counters.put(counter.name(), get(counter));
+                }
+                return counters;
+            }
+
+            @Override
+            public int getThreads() {
+                return ALL_THREADS.size();
+            }
+
+            @Override
+            public void reset() {
+                TreeStats.reset();
+            }
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e){
+            // registered by another class loader
+        } catch (JMException e){
+            throw new IllegalStateException("Can't register the MBean " + MBEAN_NAME, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.sima;
+
+import java.util.Map;
+
+/**
+ * This interface represents the JMX view of the counters of TreeStats (registered as com.sima:type=TreeStats when the
+ * counters are enabled).
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public interface TreeStatsMXBean {
+
+    /**
+     * Returns the sum of every counter over all the threads.
+     *
+     * @return the counters by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns the number of threads that counted anything.
+     *
+     * @return the number of threads
+     */
+    int getThreads();
+
+    /**
+     * Sets all the counters of all the threads to 0.
+     */
+    void reset();
+}
@@ -0,0 +1,109 @@
+package com.sima;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests of AdaptiveKLowest - the switches between the heap and the tree when the acceptance rate drops and recovers,
+ * with MIN_VALUE among the elements kept, and the sorted array for a small k.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class AdaptiveKLowestTest {
+
+    // The number of elements in a window of a k of up to 1024
+    private static final int WINDOW = 4096;
+
+    // Instance variables - all the elements offered (the reference) and their number
+    private int[] _offered = new int[1024];
+    private int _numOfOffered;
+
+    @Test
+    public void switchesBetweenTheHeapAndTheTreeKeepTheLowestElements(){
+        int k = AdaptiveKLowest.SMALL_K + 44;
+        AdaptiveKLowest kLowest = new AdaptiveKLowest(k);
+        assertEquals(AdaptiveKLowest.Engine.HEAP, kLowest.getEngine());
+        Random random = new Random(6);
+        offer(kLowest, Integer.MIN_VALUE);
+        for (int i = 1; i < k - 1; i++){
+            offer(kLowest, random.nextInt(1000));
+        }
+        offer(kLowest, Integer.MIN_VALUE);
+        assertKLowest(kLowest);
+        int next = -1; // the next accepted element - lower than every element kept, except MIN_VALUE
+        for (int round = 1; round <= 3; round++){
+            // a window in which every element is rejected - the heap is left for the tree
+            for (int i = 0; i < WINDOW; i++){
+                offer(kLowest, 1000 + random.nextInt(1000));
+            }
+            assertEquals(AdaptiveKLowest.Engine.TREE, kLowest.getEngine());
+            assertEquals(2 * round - 1, kLowest.getSwitches());
+            assertKLowest(kLowest);
+            // a window in which every element is kept (MIN_VALUE too) - the tree is left for the heap
+            for (int i = 0; i < WINDOW; i++){
+                offer(kLowest, i % 1000 == 0 ? Integer.MIN_VALUE : next--);
+            }
+            assertEquals(AdaptiveKLowest.Engine.HEAP, kLowest.getEngine());
+            assertEquals(2 * round, kLowest.getSwitches());
+            assertKLowest(kLowest);
+        }
+    }
+
+    @Test
+    public void theTreeIsKeptNearTheThreshold(){
+        int k = 1000;
+        AdaptiveKLowest kLowest = new AdaptiveKLowest(k);
+        for (int i = 0; i < k; i++){
+            offer(kLowest, i == 500 ? Integer.MIN_VALUE : 10 * i);
+        }
+        for (int i = 0; i < WINDOW; i++){ // no element is kept
+            offer(kLowest, Integer.MAX_VALUE);
+        }
+        assertEquals(AdaptiveKLowest.Engine.TREE, kLowest.getEngine());
+        // a rate between LOW_ACCEPTANCE and twice it doesn't leave the tree
+        int kept = (int) (1.5 * AdaptiveKLowest.LOW_ACCEPTANCE * WINDOW);
+        for (int i = 0; i < WINDOW; i++){
+            offer(kLowest, i < kept ? -i : Integer.MAX_VALUE);
+        }
+        assertEquals(AdaptiveKLowest.Engine.TREE, kLowest.getEngine());
+        assertEquals(1, kLowest.getSwitches());
+        assertKLowest(kLowest);
+    }
+
+    @Test
+    public void aSmallKAlwaysUsesTheSortedArray(){
+        AdaptiveKLowest kLowest = new AdaptiveKLowest(AdaptiveKLowest.SMALL_K);
+        Random random = new Random(7);
+        for (int i = 0; i < 5 * WINDOW; i++){
+            offer(kLowest, i % 3 == 0 ? Integer.MIN_VALUE + random.nextInt(3) : random.nextInt());
+        }
+        assertEquals(AdaptiveKLowest.Engine.SORTED_ARRAY, kLowest.getEngine());
+        assertEquals(0, kLowest.getSwitches());
+        assertKLowest(kLowest);
+    }
+
+    // Offers an element, and adds it to the reference
+    private void offer(AdaptiveKLowest kLowest, int key){
+        kLowest.offer(key);
+        if (_numOfOffered == _offered.length){
+            _offered = Arrays.copyOf(_offered, 2 * _offered.length);
+        }
+        _offered[_numOfOffered++] = key;
+    }
+
+    // Checks that the elements kept are the k lowest elements offered, in ascending order
+    private void assertKLowest(AdaptiveKLowest kLowest){
+        int[] sorted = Arrays.copyOf(_offered, _numOfOffered);
+        Arrays.sort(sorted);
+        int[] keys = new int[kLowest.getCapacity()];
+        int count = kLowest.copyKeys(keys);
+        assertArrayEquals(Arrays.copyOf(sorted, Math.min(sorted.length, kLowest.getCapacity())),
+                Arrays.copyOf(keys, count));
+    }
+}
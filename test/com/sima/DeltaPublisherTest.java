@@ -0,0 +1,189 @@
+package com.sima;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests of DeltaPublisher - the order of the deltas, the backpressure of a full buffer on submit, cancelling, and
+ * the signals of a subscriber that requests an invalid number of deltas while it receives one.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class DeltaPublisherTest {
+
+    @Test(timeout = 30000)
+    public void aSlowSubscriberReceivesEveryDeltaInOrder() throws InterruptedException {
+        final DeltaPublisher publisher = new DeltaPublisher(2);
+        RecordingSubscriber slow = new RecordingSubscriber(0);
+        RecordingSubscriber fast = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+        final AtomicInteger submitted = new AtomicInteger();
+        Thread submitter = new Thread(() -> {
+            for (int c = 1; c <= 20; c++){
+                publisher.submit(delta(c));
+                submitted.incrementAndGet();
+            }
+            publisher.close();
+        });
+        submitter.start();
+        waitUntilWaiting(submitter);
+        assertEquals("submit should wait while the buffer of the slow subscriber is full", 2, submitted.get());
+        for (int c = 1; c <= 20; c++){ // the slow subscriber requests the deltas one at a time
+            slow._subscription.request(1);
+            Thread.sleep(1);
+        }
+        submitter.join();
+        slow._subscription.request(1); // the completion doesn't need a request
+        for (RecordingSubscriber subscriber : new RecordingSubscriber[] {slow, fast}){
+            assertEquals(20, subscriber._checkpoints.size());
+            for (int c = 1; c <= 20; c++){
+                assertEquals(c, (int) subscriber._checkpoints.get(c - 1));
+            }
+            assertTrue(subscriber._completed);
+            assertNull(subscriber._failure);
+            assertFalse("a subscriber must not be called by two threads at a time", subscriber._overlapped);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void cancelReleasesABlockedSubmit() throws InterruptedException {
+        final DeltaPublisher publisher = new DeltaPublisher(1);
+        RecordingSubscriber cancelling = new RecordingSubscriber(0);
+        publisher.subscribe(cancelling);
+        Thread submitter = new Thread(() -> {
+            for (int c = 1; c <= 5; c++){
+                publisher.submit(delta(c));
+            }
+            publisher.close();
+        });
+        submitter.start();
+        waitUntilWaiting(submitter); // the buffer is full after the first delta
+        cancelling._subscription.cancel();
+        submitter.join();
+        assertTrue(cancelling._checkpoints.isEmpty());
+        assertFalse("a cancelled subscriber receives no more signals", cancelling._completed);
+    }
+
+    @Test(timeout = 30000)
+    public void anInvalidRequestFailsAfterTheDeltaBeingReceived() throws InterruptedException {
+        final DeltaPublisher publisher = new DeltaPublisher(4);
+        final CountDownLatch receiving = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            void received(TreeDelta delta) {
+                receiving.countDown();
+                await(release);
+            }
+        };
+        publisher.subscribe(subscriber);
+        Thread submitter = new Thread(() -> publisher.submit(delta(1)));
+        submitter.start();
+        await(receiving);
+        subscriber._subscription.request(0); // while onNext runs on the submitting thread
+        assertNull("the error must wait for onNext to return", subscriber._failure);
+        release.countDown();
+        submitter.join();
+        assertTrue(subscriber._failure instanceof IllegalArgumentException);
+        assertFalse(subscriber._overlapped);
+        assertFalse(subscriber._completed);
+        publisher.submit(delta(2)); // the failed subscriber isn't a subscriber anymore
+        assertEquals(1, subscriber._checkpoints.size());
+    }
+
+    // Returns an empty delta of a checkpoint
+    private static TreeDelta delta(int checkpoint){
+        return new TreeDelta(checkpoint, new int[0], new int[0]);
+    }
+
+    // Waits until a thread is blocked in wait
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING){
+            Thread.sleep(1);
+        }
+    }
+
+    // Waits for a latch without being interrupted
+    private static void await(CountDownLatch latch){
+        try {
+            latch.await();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A subscriber that requests a number of deltas when it subscribes, and records the signals it receives and
+     * whether two of them overlapped.
+     */
+    private static class RecordingSubscriber implements DeltaPublisher.Subscriber {
+
+        private final long _initialRequest;
+        private final List<Integer> _checkpoints = new ArrayList<>();
+        private final AtomicInteger _active = new AtomicInteger();
+        private volatile DeltaPublisher.Subscription _subscription;
+        private volatile boolean _completed, _overlapped;
+        private volatile Throwable _failure;
+
+        RecordingSubscriber(long initialRequest) {
+            _initialRequest = initialRequest;
+        }
+
+        // Called in onNext after the delta is recorded
+        void received(TreeDelta delta) {
+        }
+
+        @Override
+        public void onSubscribe(DeltaPublisher.Subscription subscription) {
+            _subscription = subscription;
+            if (_initialRequest > 0){
+                subscription.request(_initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(TreeDelta delta) {
+            enter();
+            synchronized (_checkpoints){
+                _checkpoints.add(delta.getCheckpoint());
+            }
+            received(delta);
+            exit();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            enter();
+            _failure = throwable;
+            exit();
+        }
+
+        @Override
+        public void onComplete() {
+            enter();
+            _completed = true;
+            exit();
+        }
+
+        private void enter(){
+            if (_active.incrementAndGet() > 1){
+                _overlapped = true;
+            }
+        }
+
+        private void exit(){
+            _active.decrementAndGet();
+        }
+    }
+}
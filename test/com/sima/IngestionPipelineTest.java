@@ -0,0 +1,251 @@
+package com.sima;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests of IngestionPipeline with local stand-ins for its blocking sources - pipes written by other threads, files
+ * and in-memory channels.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class IngestionPipelineTest {
+
+    // The number of bits of a value that hold its sequence number in its source (the source is in the higher bits)
+    private static final int SEQUENCE_BITS = 16;
+
+    @Test(timeout = 60000)
+    public void valuesOfEachSourceAreDrainedInTheirOrder() throws IOException, InterruptedException {
+        final int sources = 4;
+        final int perSource = 1500;
+        int total = sources * perSource;
+        List<ReadableByteChannel> channels = new ArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        File file = File.createTempFile("ingestion", ".bin");
+        file.deleteOnExit();
+        try {
+            for (int s = 0; s < sources - 1; s++){ // pipes, written in pieces that split the values
+                Pipe pipe = Pipe.open();
+                channels.add(pipe.source());
+                writers.add(startWriter(pipe.sink(), bytes(sourceValues(s, perSource)), 7));
+            }
+            Files.write(file.toPath(), bytes(sourceValues(sources - 1, perSource)));
+            channels.add(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+            // with k as large as the input, the array of each checkpoint has every value drained so far, so the
+            // value drained at a position is the value added to the array of the previous position
+            final List<int[]> checkpoints = new ArrayList<>();
+            IngestionPipeline pipeline = new IngestionPipeline(total, 32, IngestionPipeline.platformThreads(),
+                    CheckpointPolicy.everyElements(1), (position, kLowest) -> checkpoints.add(kLowest));
+            pipeline.run(channels);
+            for (Thread writer : writers){
+                writer.join();
+            }
+            assertEquals(total, pipeline.getPosition());
+            assertEquals(total, checkpoints.size());
+            int[] next = new int[sources];
+            int[] previous = new int[0];
+            for (int[] kLowest : checkpoints){
+                int value = addedValue(previous, kLowest);
+                int source = value >>> SEQUENCE_BITS;
+                assertEquals("value of source " + source, next[source]++, value & ((1 << SEQUENCE_BITS) - 1));
+                previous = kLowest;
+            }
+        } finally {
+            for (ReadableByteChannel channel : channels){
+                channel.close();
+            }
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void keepsTheKLowestValuesOfAllTheSources() throws IOException {
+        int k = 100;
+        List<ReadableByteChannel> channels = new ArrayList<>();
+        List<Integer> all = new ArrayList<>();
+        int seed = 17;
+        for (int s = 0; s < 3; s++){
+            int[] values = new int[20000];
+            for (int i = 0; i < values.length; i++){
+                seed = seed * 1103515245 + 12345;
+                values[i] = seed;
+                all.add(seed);
+            }
+            channels.add(Channels.newChannel(new ByteArrayInputStream(bytes(values))));
+        }
+        final int[][] last = new int[1][];
+        IngestionPipeline pipeline = new IngestionPipeline(k, CheckpointPolicy.onDemand(),
+                (position, kLowest) -> last[0] = kLowest);
+        pipeline.run(channels);
+        int[] expected = new int[all.size()];
+        for (int i = 0; i < expected.length; i++){
+            expected[i] = all.get(i);
+        }
+        Arrays.sort(expected);
+        assertArrayEquals(Arrays.copyOf(expected, k), last[0]);
+    }
+
+    @Test(timeout = 60000)
+    public void readersWaitForASlowWriterWhenTheRingIsFull() throws IOException {
+        List<ReadableByteChannel> channels = new ArrayList<>();
+        for (int s = 0; s < 4; s++){
+            channels.add(Channels.newChannel(new ByteArrayInputStream(bytes(sourceValues(s, 5000)))));
+        }
+        // the writer sleeps at every checkpoint, while the readers fill the small ring
+        IngestionPipeline pipeline = new IngestionPipeline(10, 16, IngestionPipeline.platformThreads(),
+                CheckpointPolicy.everyElements(1000), (position, kLowest) -> sleep(2));
+        pipeline.run(channels);
+        assertEquals(16, pipeline.getRingCapacity());
+        assertEquals(20000, pipeline.getPosition());
+        assertTrue("the readers should have waited for the writer", pipeline.getBackpressureWaits() > 0);
+    }
+
+    @Test(timeout = 60000)
+    public void aFailedReaderClosesTheOtherSources() throws IOException {
+        Pipe pipe = Pipe.open(); // nothing is written to the pipe, so its reader is blocked until the pipe is closed
+        FailingChannel failing = new FailingChannel(bytes(sourceValues(0, 100)));
+        List<ReadableByteChannel> channels = Arrays.asList(pipe.source(), failing);
+        IngestionPipeline pipeline = new IngestionPipeline(10, CheckpointPolicy.onDemand(),
+                (position, kLowest) -> fail("no checkpoint is reported after a failure"));
+        try {
+            pipeline.run(channels);
+            fail("the failure of the reader should be thrown");
+        } catch (IOException e){
+            assertEquals(FailingChannel.MESSAGE, e.getMessage());
+        } finally {
+            pipe.sink().close();
+        }
+        assertFalse(pipe.source().isOpen());
+        assertFalse(failing.isOpen());
+    }
+
+    @Test(timeout = 60000)
+    public void aSourceThatEndsInTheMiddleOfAValueFails() throws IOException {
+        byte[] complete = bytes(sourceValues(0, 100));
+        byte[] truncated = Arrays.copyOf(complete, complete.length - 2);
+        List<ReadableByteChannel> channels = Arrays.asList(
+                Channels.newChannel(new ByteArrayInputStream(complete)),
+                Channels.newChannel(new ByteArrayInputStream(truncated)));
+        IngestionPipeline pipeline = new IngestionPipeline(10, CheckpointPolicy.onDemand(),
+                (position, kLowest) -> fail("no checkpoint is reported after a failure"));
+        try {
+            pipeline.run(channels);
+            fail("the truncated source should fail the run");
+        } catch (IOException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("middle of a value (2 bytes)"));
+        }
+    }
+
+    // Returns the values of a source - its number in the higher bits and the sequence numbers 0, 1, ... in the lower
+    private static int[] sourceValues(int source, int count){
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++){
+            values[i] = (source << SEQUENCE_BITS) | i;
+        }
+        return values;
+    }
+
+    // Returns the values as little-endian 32-bit integers
+    private static byte[] bytes(int[] values){
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    // Starts a thread that writes bytes to a pipe in pieces of the given size, and closes the pipe at the end
+    private static Thread startWriter(final Pipe.SinkChannel sink, final byte[] bytes, final int pieceSize){
+        Thread writer = new Thread(() -> {
+            try {
+                for (int from = 0; from < bytes.length; from += pieceSize){
+                    ByteBuffer piece = ByteBuffer.wrap(bytes, from, Math.min(pieceSize, bytes.length - from));
+                    while (piece.hasRemaining()){
+                        sink.write(piece);
+                    }
+                }
+                sink.close();
+            } catch (IOException e){
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        return writer;
+    }
+
+    // Returns the value that is in the sorted array after, and isn't in the sorted array before (one value longer)
+    private static int addedValue(int[] before, int[] after){
+        assertEquals(before.length + 1, after.length);
+        int i = 0;
+        while (i < before.length && before[i] == after[i]){
+            i++;
+        }
+        return after[i];
+    }
+
+    // Sleeps without being interrupted
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A source that returns its bytes and then fails, as a broken socket or disk would.
+     */
+    private static class FailingChannel implements ReadableByteChannel {
+
+        static final String MESSAGE = "The connection was reset";
+
+        private final ByteBuffer _bytes;
+        private volatile boolean _open = true;
+
+        FailingChannel(byte[] bytes) {
+            _bytes = ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            if (!_bytes.hasRemaining()){
+                throw new IOException(MESSAGE);
+            }
+            int count = Math.min(destination.remaining(), _bytes.remaining());
+            ByteBuffer piece = _bytes.duplicate();
+            piece.limit(piece.position() + count);
+            destination.put(piece);
+            _bytes.position(_bytes.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return _open;
+        }
+
+        @Override
+        public void close() {
+            _open = false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sima;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests of IntRingBuffer - the order of the values of each producer, the rounding of the capacity, backpressure and
+ * closing.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class IntRingBufferTest {
+
+    // The number of bits of a value that hold its sequence number in its producer (the producer is in the higher bits)
+    private static final int SEQUENCE_BITS = 20;
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOf2(){
+        assertEquals(1, new IntRingBuffer(1).getCapacity());
+        assertEquals(8, new IntRingBuffer(5).getCapacity());
+        assertEquals(8, new IntRingBuffer(8).getCapacity());
+    }
+
+    @Test
+    public void drainReturnsTheValuesInTheOrderTheyWerePut(){
+        IntRingBuffer ring = new IntRingBuffer(8);
+        assertTrue(ring.put(new int[] {5, Integer.MIN_VALUE, 7}, 0, 3));
+        int[] values = new int[8];
+        assertEquals(3, ring.drain(values));
+        assertEquals(5, values[0]);
+        assertEquals(Integer.MIN_VALUE, values[1]);
+        assertEquals(7, values[2]);
+        assertEquals(0, ring.drain(values));
+    }
+
+    @Test(timeout = 30000)
+    public void valuesOfEachProducerKeepTheirOrder() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 200000;
+        final IntRingBuffer ring = new IntRingBuffer(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++){
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                int[] batch = new int[37]; // not a divisor of the capacity, so claims wrap around the ring
+                int sequence = 0;
+                while (sequence < perProducer){
+                    int count = Math.min(batch.length, perProducer - sequence);
+                    for (int i = 0; i < count; i++){
+                        batch[i] = (producer << SEQUENCE_BITS) | sequence++;
+                    }
+                    ring.put(batch, 0, count);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        int[] next = new int[producers];
+        int[] values = new int[50];
+        int taken = 0;
+        int idle = 0;
+        while (taken < producers * perProducer){
+            int count = ring.drain(values);
+            idle = count > 0 ? 0 : idle + 1;
+            if (idle > 0){ // wait as the writer of IngestionPipeline does, so the producers can run on a single CPU
+                IntRingBuffer.idle(idle);
+            }
+            for (int i = 0; i < count; i++){
+                int producer = values[i] >>> SEQUENCE_BITS;
+                assertEquals("value of producer " + producer, next[producer]++, values[i] & ((1 << SEQUENCE_BITS) - 1));
+            }
+            taken += count;
+        }
+        for (Thread thread : threads){
+            thread.join();
+        }
+        for (int p = 0; p < producers; p++){
+            assertEquals(perProducer, next[p]);
+        }
+        assertTrue("the producers should have waited for the consumer", ring.getFullWaits() > 0);
+    }
+
+    @Test(timeout = 30000)
+    public void closeReleasesAProducerThatWaitsForFreeSlots() throws InterruptedException {
+        final IntRingBuffer ring = new IntRingBuffer(4);
+        final boolean[] result = {true};
+        Thread producer = new Thread(() -> result[0] = ring.put(new int[10], 0, 10));
+        producer.start();
+        while (ring.getFullWaits() == 0){ // wait until the producer fills the ring
+            Thread.sleep(1);
+        }
+        ring.close();
+        producer.join();
+        assertFalse(result[0]);
+        assertFalse(ring.put(new int[1], 0, 1));
+    }
+}
@@ -0,0 +1,140 @@
+package com.sima;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of KLowestCoordinator with local worker JVMs, of the compact format of KLowestSummary and of RBTreePlus.merge.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestCoordinatorTest {
+
+    private File _inputFile;
+
+    @Before
+    public void createInputFile() throws IOException {
+        Random random = new Random(8);
+        int[] values = new int[10001]; // not a multiple of the numbers of workers
+        for (int i = 0; i < values.length; i++){
+            values[i] = i % 1000 == 0 ? Integer.MIN_VALUE : random.nextInt();
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asIntBuffer().put(values);
+        _inputFile = File.createTempFile("coordinator", ".bin");
+        Files.write(_inputFile.toPath(), bytes.array());
+    }
+
+    @After
+    public void deleteInputFile(){
+        _inputFile.delete();
+    }
+
+    @Test(timeout = 120000)
+    public void workerProcessesWriteTheOutputOfKLowestRun() throws IOException {
+        int k = 150;
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new KLowest(false, new CheckpointWriter(Channels.newChannel(expected), true))
+                .run(new InputData(_inputFile, k));
+        for (int workers : new int[] {1, 3, 4}){
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            new KLowestCoordinator(new CheckpointWriter(Channels.newChannel(output), true))
+                    .run(_inputFile, k, workers);
+            assertArrayEquals("the output with " + workers + " workers", expected.toByteArray(), output.toByteArray());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void aSummaryIsReadAsItWasWrittenThroughAPipe() throws IOException, InterruptedException {
+        InputData input = new InputData(_inputFile, 3000); // a summary larger than the buffer of the pipe
+        final KLowestSummary summary = KLowestSummary.ofPart(input, 1000, 9000);
+        final Pipe pipe = Pipe.open();
+        final IOException[] failure = new IOException[1];
+        Thread writer = new Thread(() -> {
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                summary.writeTo(sink);
+            } catch (IOException e){
+                failure[0] = e;
+            }
+        });
+        writer.start();
+        KLowestSummary read;
+        try (Pipe.SourceChannel source = pipe.source()) {
+            read = KLowestSummary.readFrom(source);
+        }
+        writer.join();
+        if (failure[0] != null){
+            throw failure[0];
+        }
+        assertEquals(summary.getK(), read.getK());
+        assertEquals(summary.getNumOfCheckpoints(), read.getNumOfCheckpoints());
+        for (int c = 0; c < summary.getNumOfCheckpoints(); c++){
+            assertArrayEquals(summary.getCheckpoint(c).toSortedArray(), read.getCheckpoint(c).toSortedArray());
+            assertTrue(read.getCheckpoint(c).isMultiset());
+        }
+    }
+
+    @Test
+    public void readFromRejectsATruncatedStream() throws IOException {
+        KLowestSummary summary = KLowestSummary.ofPart(new InputData(_inputFile, 20), 0, 5000);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        summary.writeTo(Channels.newChannel(output));
+        byte[] bytes = output.toByteArray();
+        for (int length : new int[] {0, 6, 16, bytes.length / 2, bytes.length - 1}){
+            try {
+                KLowestSummary.readFrom(Channels.newChannel(new ByteArrayInputStream(Arrays.copyOf(bytes, length))));
+                fail("a summary truncated to " + length + " bytes should be rejected");
+            } catch (EOFException e){
+                // expected
+            }
+        }
+        bytes[0]++;
+        try {
+            KLowestSummary.readFrom(Channels.newChannel(new ByteArrayInputStream(bytes)));
+            fail("a stream with a wrong magic number should be rejected");
+        } catch (IOException e){
+            assertEquals("Not a summary", e.getMessage());
+        }
+    }
+
+    @Test
+    public void mergeKeepsTheKLowestKeysOfBothTrees(){
+        Random random = new Random(9);
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int round = 0; round < 200; round++){
+                int[] a = RBTreePlusTest.randomKeys(random, random.nextInt(100), 1 + random.nextInt(60));
+                int[] b = RBTreePlusTest.randomKeys(random, random.nextInt(100), 1 + random.nextInt(60));
+                RBTreePlus treeA = RBTreePlusTest.treeOf(a, multiset);
+                RBTreePlus treeB = RBTreePlusTest.treeOf(b, !multiset); // the merge has the mode of this tree
+                int k = random.nextInt(220);
+                RBTreePlus merged = treeA.merge(treeB, k);
+                int[] all = RBTreePlusTest.with(a, b);
+                RBTreePlusTest.assertValid(merged, Arrays.copyOf(all, Math.min(k, all.length)));
+                assertEquals(k, merged.getCapacity());
+                assertEquals(multiset, merged.isMultiset());
+                RBTreePlusTest.assertValid(treeA, a); // neither tree is changed
+                RBTreePlusTest.assertValid(treeB, b);
+            }
+        }
+    }
+}
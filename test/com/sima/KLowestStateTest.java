@@ -0,0 +1,172 @@
+package com.sima;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of KLowestState and KLowest.runResumable - a run that is stopped after its second checkpoint and resumed
+ * writes the same checkpoints 3 and 4 as an uninterrupted run, and load rejects invalid state files.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class KLowestStateTest {
+
+    // The magic number of a state file, and the index of the number of keys in its header
+    private static final int MAGIC = 0x54534C4B;
+    private static final int NUM_OF_KEYS_OFFSET = 28;
+
+    private File _stateFile;
+
+    @Before
+    public void createStateFile() throws IOException {
+        _stateFile = File.createTempFile("klowest", ".state");
+        _stateFile.delete(); // runResumable starts a new run if the file doesn't exist
+    }
+
+    @After
+    public void deleteStateFile(){
+        _stateFile.delete();
+    }
+
+    @Test
+    public void aResumedRunWritesTheCheckpointsOfAnUninterruptedRun() throws IOException {
+        InputData input = new InputData(2000, 60);
+        ByteArrayOutputStream uninterrupted = new ByteArrayOutputStream();
+        new KLowest(false, new CheckpointWriter(Channels.newChannel(uninterrupted), true)).run(input);
+        byte[] expected = uninterrupted.toByteArray();
+        int firstTwo = recordsLength(expected, 2);
+        // the output fails after the records of checkpoints 1 and 2, as if the run was stopped there
+        KLowest stopped = new KLowest(false, new CheckpointWriter(new StoppingChannel(firstTwo), true));
+        try {
+            stopped.runResumable(input, _stateFile);
+            fail("the run should stop at checkpoint 3");
+        } catch (UncheckedIOException e){
+            assertEquals(StoppingChannel.MESSAGE, e.getCause().getMessage());
+        }
+        KLowestState state = KLowestState.load(_stateFile);
+        assertEquals(2, state.getCheckpointsCount());
+        assertEquals(input.getCheckpointN2(), state.getPosition());
+        ByteArrayOutputStream resumed = new ByteArrayOutputStream();
+        new KLowest(false, new CheckpointWriter(Channels.newChannel(resumed), true)).runResumable(input, _stateFile);
+        assertArrayEquals(Arrays.copyOfRange(expected, firstTwo, expected.length), resumed.toByteArray());
+        assertEquals(4, KLowestState.load(_stateFile).getCheckpointsCount());
+    }
+
+    @Test
+    public void aSavedStateIsRestored() throws IOException {
+        int[] keys = {Integer.MIN_VALUE, -3, -3, 0, 7, 7, 7, Integer.MAX_VALUE};
+        for (boolean multiset : new boolean[] {false, true}){
+            new KLowestState(RBTreePlus.fromSortedKeys(keys, 0, keys.length, 10, multiset), 1L << 33, 3)
+                    .save(_stateFile);
+            KLowestState state = KLowestState.load(_stateFile);
+            assertArrayEquals(keys, state.getTree().toSortedArray());
+            assertEquals(multiset, state.getTree().isMultiset());
+            assertEquals(10, state.getTree().getCapacity());
+            assertEquals(1L << 33, state.getPosition());
+            assertEquals(3, state.getCheckpointsCount());
+        }
+    }
+
+    @Test
+    public void loadRejectsAFileWithAWrongMagicNumber() throws IOException {
+        byte[] bytes = savedState(new int[] {1, 2, 3});
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(0, MAGIC + 1);
+        assertLoadFails(bytes, "Not a state file");
+    }
+
+    @Test
+    public void loadRejectsATruncatedFile() throws IOException {
+        byte[] bytes = savedState(new int[] {1, 2, 3});
+        assertLoadFails(Arrays.copyOf(bytes, bytes.length - 4), "Truncated state file");
+        assertLoadFails(Arrays.copyOf(bytes, bytes.length - 1), "Truncated state file");
+        assertLoadFails(Arrays.copyOf(bytes, 20), "Invalid size of a state file");
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(NUM_OF_KEYS_OFFSET, -1);
+        assertLoadFails(bytes, "Truncated state file");
+    }
+
+    @Test
+    public void loadRejectsUnsortedKeys() throws IOException {
+        byte[] bytes = savedState(new int[] {1, 2, 3});
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length - 8, 4); // 1, 4, 3
+        assertLoadFails(bytes, "Invalid keys");
+    }
+
+    // Returns the bytes of a saved state with the given keys
+    private byte[] savedState(int[] keys) throws IOException {
+        new KLowestState(RBTreePlus.fromSortedKeys(keys, 0, keys.length, 5, true), 100, 1).save(_stateFile);
+        return Files.readAllBytes(_stateFile.toPath());
+    }
+
+    // Writes the bytes to the state file, and checks that load fails with a message that starts with the given text
+    private void assertLoadFails(byte[] bytes, String message) throws IOException {
+        Files.write(_stateFile.toPath(), bytes);
+        try {
+            KLowestState.load(_stateFile);
+            fail("load should fail with \"" + message + "\"");
+        } catch (IOException e){
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    // Returns the number of bytes of the first records of the binary format (see CheckpointWriter)
+    private static int recordsLength(byte[] output, int records){
+        ByteBuffer buffer = ByteBuffer.wrap(output).order(ByteOrder.LITTLE_ENDIAN);
+        int length = 0;
+        for (int r = 0; r < records; r++){
+            length += 8 + 4 * buffer.getInt(length + 4); // the header and the elements
+        }
+        return length;
+    }
+
+    /**
+     * A channel that accepts a number of bytes and then fails, as the output of a run that is stopped.
+     */
+    private static class StoppingChannel implements WritableByteChannel {
+
+        static final String MESSAGE = "The run was stopped";
+
+        private int _remaining;
+
+        StoppingChannel(int bytes) {
+            _remaining = bytes;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (source.remaining() > _remaining){
+                throw new IOException(MESSAGE);
+            }
+            _remaining -= source.remaining();
+            int count = source.remaining();
+            source.position(source.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
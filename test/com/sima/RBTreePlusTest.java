@@ -0,0 +1,415 @@
+package com.sima;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests of RBTreePlus - offer, remove and the order statistics (select, rank and countInRange) on input with many
+ * duplicates, and split, join and resize, of trees with a node per element and of multiset trees (checked against a
+ * sorted reference, the red-black tree properties, the sizes of the subtrees, the parent links and the max node), and
+ * ResizableKLowest across a shrink and a grow of k.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class RBTreePlusTest {
+
+    @Test
+    public void offerAndRemoveWithManyDuplicatesMatchASortedReference(){
+        Random random = new Random(5);
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int round = 0; round < 50; round++){
+                int k = 1 + random.nextInt(60);
+                int range = 1 + random.nextInt(8); // a few distinct values, so most offers are duplicates
+                RBTreePlus tree = new RBTreePlus(k, multiset);
+                int[] expected = new int[0];
+                for (int i = 0; i < 400; i++){
+                    int key = random.nextInt(range) - range / 2;
+                    if (random.nextInt(5) == 0){ // remove an occurrence of a key that may not be in the tree
+                        boolean present = Arrays.binarySearch(expected, key) >= 0;
+                        assertEquals("remove(" + key + ")", present, tree.remove(key));
+                        if (present){
+                            expected = without(expected, key);
+                        }
+                    } else {
+                        boolean added = expected.length < k || key < expected[expected.length - 1];
+                        assertEquals("offer(" + key + ")", added, tree.offer(key));
+                        if (added){
+                            expected = Arrays.copyOf(with(expected, key), Math.min(k, expected.length + 1));
+                        }
+                    }
+                }
+                assertValid(tree, expected);
+                assertOrderStatistics(tree, expected, range);
+                int[] keys = new int[k + 1];
+                assertEquals(expected.length, tree.copyKeys(keys));
+                assertArrayEquals(expected, Arrays.copyOf(keys, expected.length));
+            }
+        }
+    }
+
+    @Test
+    public void aMultisetTreeHasANodePerDistinctKey(){
+        int[] keys = {Integer.MIN_VALUE, Integer.MIN_VALUE, -4, -4, -4, 0, 2, 2, 2, 2, 2, 2, Integer.MAX_VALUE};
+        RBTreePlus multiset = treeOf(keys, true);
+        RBTreePlus plain = treeOf(keys, false);
+        assertEquals(5, multiset.getNumOfNodes());
+        assertEquals(keys.length, plain.getNumOfNodes());
+        for (RBTreePlus tree : new RBTreePlus[] {multiset, plain}){
+            assertValid(tree, keys);
+            assertOrderStatistics(tree, keys, 10);
+            assertEquals(6, tree.countInRange(2, 2));
+            assertEquals(2, tree.rank(Integer.MIN_VALUE));
+            assertEquals(Integer.MIN_VALUE, tree.select(2).getKey());
+            assertEquals(-4, tree.select(3).getKey());
+            assertEquals(keys.length, tree.rank(Integer.MAX_VALUE));
+            assertEquals(0, tree.countInRange(1, -1));
+        }
+        assertEquals(6, multiset.select(8).getCount());
+    }
+
+    @Test
+    public void splitKeepsBothPiecesValid(){
+        Random random = new Random(1);
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int round = 0; round < 300; round++){
+                int[] keys = randomKeys(random, random.nextInt(200), 1 + random.nextInt(40));
+                RBTreePlus tree = treeOf(keys, multiset);
+                int key = random.nextInt(45) - 2; // also below and above all the keys
+                RBTreePlus upper = tree.split(key);
+                int below = countBelow(keys, key);
+                assertValid(tree, Arrays.copyOfRange(keys, 0, below));
+                assertValid(upper, Arrays.copyOfRange(keys, below, keys.length));
+                assertEquals(multiset, upper.isMultiset());
+                assertEquals(tree.getCapacity(), upper.getCapacity());
+            }
+        }
+    }
+
+    @Test
+    public void piecesOfASplitCanBeChangedAndJoinedAgain(){
+        Random random = new Random(2);
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int round = 0; round < 300; round++){
+                int[] keys = randomKeys(random, 1 + random.nextInt(200), 1 + random.nextInt(40));
+                RBTreePlus lower = treeOf(keys, multiset);
+                int key = keys[random.nextInt(keys.length)];
+                RBTreePlus upper = lower.split(key);
+                // the pieces share the sentinel, so a change of one of them must not break the other
+                int[] lowerKeys = Arrays.copyOfRange(keys, 0, countBelow(keys, key));
+                int[] upperKeys = Arrays.copyOfRange(keys, lowerKeys.length, keys.length);
+                if (lowerKeys.length > 0){
+                    int removed = lowerKeys[random.nextInt(lowerKeys.length)];
+                    assertTrue(lower.remove(removed));
+                    lowerKeys = without(lowerKeys, removed);
+                    lower.insert(key - 1);
+                    lowerKeys = with(lowerKeys, key - 1);
+                }
+                upper.insert(key + 50);
+                upperKeys = with(upperKeys, key + 50);
+                assertTrue(upper.remove(key));
+                upperKeys = without(upperKeys, key);
+                assertValid(lower, lowerKeys);
+                assertValid(upper, upperKeys);
+                RBTreePlus joined = RBTreePlus.join(lower, upper);
+                assertSame(lower, joined);
+                assertValid(joined, with(lowerKeys, upperKeys));
+                assertValid(upper, new int[0]);
+                joined.insert(key);
+                assertValid(joined, with(with(lowerKeys, upperKeys), key));
+            }
+        }
+    }
+
+    @Test
+    public void joinOfTreesWithDifferentHeights(){
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int leftSize = 0; leftSize < 70; leftSize += 3){
+                for (int rightSize = 0; rightSize < 70; rightSize += 5){
+                    int[] leftKeys = new int[leftSize];
+                    int[] rightKeys = new int[rightSize];
+                    for (int i = 0; i < leftSize; i++){
+                        leftKeys[i] = i / 2; // duplicates, and the last key of the left tree is the first of the right
+                    }
+                    for (int i = 0; i < rightSize; i++){
+                        rightKeys[i] = (leftSize - 1) / 2 + i / 3;
+                    }
+                    RBTreePlus joined = RBTreePlus.join(treeOf(leftKeys, multiset), treeOf(rightKeys, multiset));
+                    assertValid(joined, with(leftKeys, rightKeys));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void joinRejectsTreesThatDontFit(){
+        try {
+            RBTreePlus.join(treeOf(new int[] {1, 5}, false), treeOf(new int[] {4, 6}, false));
+            fail("the keys of the left tree aren't smaller than the keys of the right tree");
+        } catch (IllegalArgumentException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("5 > 4"));
+        }
+        try {
+            RBTreePlus.join(treeOf(new int[] {1}, false), treeOf(new int[] {2}, true));
+            fail("a multiset tree can't be joined with a tree with a node per element");
+        } catch (IllegalArgumentException e){
+            // expected
+        }
+        RBTreePlus tree = treeOf(new int[] {1, 2}, false);
+        try {
+            RBTreePlus.join(tree, tree);
+            fail("a tree can't be joined with itself");
+        } catch (IllegalArgumentException e){
+            // expected
+        }
+    }
+
+    @Test
+    public void resizeAtEveryRankDividesDuplicateRuns(){
+        // runs of equal keys, so in a multiset tree most ranks are in the middle of the occurrences of a node
+        int[] keys = {Integer.MIN_VALUE, 1, 3, 3, 3, 3, 3, 3, 3, 7, 7, 9, 9, 9, 9, 12, 20, 20, 20, 20, 20,
+                      Integer.MAX_VALUE};
+        for (boolean multiset : new boolean[] {false, true}){
+            for (int j = 0; j <= keys.length + 1; j++){
+                RBTreePlus tree = treeOf(keys, multiset);
+                RBTreePlus evicted = tree.resize(j);
+                int kept = Math.min(j, keys.length);
+                assertEquals(j, tree.getCapacity());
+                assertValid(tree, Arrays.copyOfRange(keys, 0, kept));
+                assertValid(evicted, Arrays.copyOfRange(keys, kept, keys.length));
+                assertEquals(j, evicted.getCapacity());
+                // the pieces can be joined back into the original tree
+                assertValid(RBTreePlus.join(tree, evicted), keys);
+            }
+        }
+    }
+
+    @Test
+    public void offerAfterAShrinkAndAGrowKeepsTheNewCapacity(){
+        Random random = new Random(3);
+        for (boolean multiset : new boolean[] {false, true}){
+            RBTreePlus tree = new RBTreePlus(50, multiset);
+            int[] all = new int[0];
+            for (int round = 0; round < 20; round++){
+                for (int i = 0; i < 100; i++){
+                    int key = random.nextInt(300);
+                    tree.offer(key);
+                    all = with(all, key);
+                }
+                int k = tree.getCapacity();
+                assertValid(tree, Arrays.copyOf(all, k));
+                tree.resize(1 + random.nextInt(80)); // shrinks or grows k
+                int kept = Math.min(tree.getCapacity(), k);
+                assertValid(tree, Arrays.copyOf(all, kept));
+                all = Arrays.copyOf(all, kept); // the evicted keys aren't offered again
+            }
+        }
+    }
+
+    @Test
+    public void resizableKLowestIsExactAcrossAShrinkAndAGrow(){
+        ResizableKLowest kLowest = new ResizableKLowest(10, 5);
+        for (int value = 100; value >= 1; value--){ // the tree keeps 1..10, the reservoir 11..15
+            kLowest.offer(value);
+        }
+        assertKLowest(kLowest, 1, 10);
+        kLowest.resize(5); // 6..10 move to the reservoir, and 11..15 are dropped from it
+        assertEquals(5, kLowest.getK());
+        assertEquals(5, kLowest.getReservoirElements());
+        assertKLowest(kLowest, 1, 5);
+        kLowest.resize(10); // 6..10 move back from the reservoir
+        assertEquals(0, kLowest.getReservoirElements());
+        assertKLowest(kLowest, 1, 10);
+        kLowest.resize(12); // the reservoir is empty, so 11 and 12 (which were dropped) are missing
+        assertFalse(kLowest.isExact());
+        assertEquals(10, kLowest.getNumOfElements());
+        kLowest.offer(0);
+        kLowest.offer(-1);
+        assertKLowest(kLowest, -1, 10); // the tree has 12 elements again, which are lower than every dropped element
+    }
+
+    @Test
+    public void resizableKLowestIsExactWheneverItSaysSo(){
+        Random random = new Random(4);
+        for (int round = 0; round < 100; round++){
+            ResizableKLowest kLowest = new ResizableKLowest(1 + random.nextInt(30), random.nextInt(20));
+            int[] all = new int[0];
+            for (int step = 0; step < 20; step++){
+                for (int i = 0; i < 30; i++){
+                    int value = random.nextInt(100) - 50;
+                    kLowest.offer(value);
+                    all = with(all, value);
+                }
+                kLowest.resize(random.nextInt(40));
+                if (kLowest.isExact()){
+                    int[] keys = new int[kLowest.getK()];
+                    int count = kLowest.copyKeys(keys);
+                    assertArrayEquals(Arrays.copyOf(all, Math.min(all.length, kLowest.getK())),
+                            Arrays.copyOf(keys, count));
+                }
+            }
+        }
+    }
+
+    // Checks select, rank and countInRange against the sorted keys, for keys in and around [-range, range]
+    private static void assertOrderStatistics(RBTreePlus tree, int[] expected, int range){
+        for (int j = 1; j <= expected.length; j++){
+            assertEquals("select(" + j + ")", expected[j - 1], tree.select(j).getKey());
+        }
+        for (int key = -range - 1; key <= range + 1; key++){
+            assertEquals("rank(" + key + ")", countBelow(expected, key + 1), tree.rank(key));
+            for (int hi = key - 1; hi <= range + 1; hi++){
+                int count = hi < key ? 0 : countBelow(expected, hi + 1) - countBelow(expected, key);
+                assertEquals("countInRange(" + key + ", " + hi + ")", count, tree.countInRange(key, hi));
+            }
+        }
+        try {
+            tree.select(expected.length + 1);
+            fail("select of a rank after the max. key");
+        } catch (IllegalArgumentException e){
+            // expected
+        }
+    }
+
+    // Checks that the k lowest elements are exactly the values from lo to hi
+    private static void assertKLowest(ResizableKLowest kLowest, int lo, int hi){
+        assertTrue(kLowest.isExact());
+        int[] expected = new int[hi - lo + 1];
+        for (int i = 0; i < expected.length; i++){
+            expected[i] = lo + i;
+        }
+        int[] keys = new int[kLowest.getK()];
+        int count = kLowest.copyKeys(keys);
+        assertArrayEquals(expected, Arrays.copyOf(keys, count));
+    }
+
+    /**
+     * Checks the red-black tree properties of a tree, the sizes and counts of its nodes, the parent links, the max
+     * node, the number of elements and nodes, and that its keys are the expected keys.
+     *
+     * @param tree the tree
+     * @param expected the expected keys, in ascending order
+     */
+    static void assertValid(RBTreePlus tree, int[] expected){
+        RBTreePlusNode root = tree.getMaxNode();
+        while (!isNil(root) && !isNil(root.getParent())){
+            root = root.getParent();
+        }
+        assertEquals("the color of the root", RBTreePlusNode.Color.BLACK, root.getColor());
+        int[] nodes = new int[1];
+        RBTreePlusNode[] last = new RBTreePlusNode[1];
+        checkSubtree(tree, root, nodes, last);
+        assertEquals("the number of elements", expected.length, tree.getNumOfElements());
+        assertEquals("the size of the root", expected.length, root.getSize());
+        assertEquals("the number of nodes", nodes[0], tree.getNumOfNodes());
+        if (expected.length == 0){
+            assertTrue("the max node of an empty tree", isNil(tree.getMaxNode()));
+        } else {
+            assertSame("the max node", last[0], tree.getMaxNode());
+        }
+        assertArrayEquals(expected, tree.toSortedArray());
+    }
+
+    // Checks a subtree (see assertValid), counts its nodes and sets the last node of the inorder walk, and returns its
+    // black-height
+    private static int checkSubtree(RBTreePlus tree, RBTreePlusNode node, int[] nodes, RBTreePlusNode[] last){
+        if (isNil(node)){
+            assertEquals("the color of a leaf", RBTreePlusNode.Color.BLACK, node.getColor());
+            return 0;
+        }
+        nodes[0]++;
+        RBTreePlusNode left = node.getLeftSon();
+        RBTreePlusNode right = node.getRightSon();
+        assertTrue("the count of " + node.getKey(), node.getCount() >= 1);
+        assertTrue("a node per element", tree.isMultiset() || node.getCount() == 1);
+        assertEquals("the size of " + node.getKey(), left.getSize() + right.getSize() + node.getCount(),
+                node.getSize());
+        if (node.getColor() == RBTreePlusNode.Color.RED){
+            assertEquals("a son of a red node", RBTreePlusNode.Color.BLACK, left.getColor());
+            assertEquals("a son of a red node", RBTreePlusNode.Color.BLACK, right.getColor());
+        }
+        if (!isNil(left)){
+            assertSame("the parent of " + left.getKey(), node, left.getParent());
+        }
+        if (!isNil(right)){
+            assertSame("the parent of " + right.getKey(), node, right.getParent());
+        }
+        int leftHeight = checkSubtree(tree, left, nodes, last);
+        if (last[0] != null){ // the previous key of the inorder walk
+            assertTrue("the order of the keys", tree.isMultiset() ? last[0].getKey() < node.getKey() :
+                    last[0].getKey() <= node.getKey());
+        }
+        last[0] = node;
+        int rightHeight = checkSubtree(tree, right, nodes, last);
+        assertEquals("the black-heights of the sons of " + node.getKey(), leftHeight, rightHeight);
+        return leftHeight + (node.getColor() == RBTreePlusNode.Color.BLACK ? 1 : 0);
+    }
+
+    // Checks whether a node is the sentinel - the only node with an empty subtree
+    private static boolean isNil(RBTreePlusNode node){
+        return node.getSize() == 0;
+    }
+
+    // Returns a tree with the keys inserted in a random order
+    static RBTreePlus treeOf(int[] keys, boolean multiset){
+        int[] shuffled = keys.clone();
+        Random random = new Random(keys.length);
+        for (int i = shuffled.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int key = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = key;
+        }
+        RBTreePlus tree = new RBTreePlus(Integer.MAX_VALUE, multiset);
+        for (int key : shuffled){
+            tree.insert(key);
+        }
+        return tree;
+    }
+
+    // Returns random keys in [0, range), in ascending order
+    static int[] randomKeys(Random random, int count, int range){
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++){
+            keys[i] = random.nextInt(range);
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    // Returns the number of sorted keys that are smaller than a key
+    private static int countBelow(int[] keys, int key){
+        int count = 0;
+        while (count < keys.length && keys[count] < key){
+            count++;
+        }
+        return count;
+    }
+
+    // Returns the sorted keys with the given keys added
+    static int[] with(int[] keys, int... added){
+        int[] result = Arrays.copyOf(keys, keys.length + added.length);
+        System.arraycopy(added, 0, result, keys.length, added.length);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Returns the sorted keys without one occurrence of a key (which must be in them)
+    static int[] without(int[] keys, int key){
+        int i = Arrays.binarySearch(keys, key);
+        assertTrue("the key " + key + " is in the keys", i >= 0);
+        int[] result = new int[keys.length - 1];
+        System.arraycopy(keys, 0, result, 0, i);
+        System.arraycopy(keys, i + 1, result, i, keys.length - i - 1);
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class represents the generator of the int, long, double and Comparator (object) variants of RBTreePlus, of the
+ * long, double and object variants of RBTreePlusNode and KLowest, and of RBSlotArena, from the templates in
+ * tools/template. Run from the project directory (after changing a template):
+ *     javac -d out/tools tools/GenerateVariants.java && java -cp out/tools GenerateVariants
+ * The red-black tree code (the rotations, the fixups after an insertion and a deletion, min, max, predecessor and
+ * successor) has a single source - RBTreeCore.template, which is included by RBTreePlus.template (the trees of
+ * RBTreePlusNode objects) and by RBSlotArena.template (the trees of slots in arrays). It reads and links the nodes by
+ * the accessors of the including template (parent, leftSon, setColor, ...), so the same code works on both.
+ * Template syntax:
+ * 1. Tokens ($Type$, $key$, $Node$, $RED$, ...) are replaced by the values of the variant.
+ * 2. Every variant has features - its key type (int, long, double or obj), primitive (int, long and double), nodes
+ *    (the RBTreePlus variants) or slots (RBSlotArena). A line that ends with the marker //@feature is kept only in the
+ *    variants with the feature, and a line that ends with //@!feature only in the others (the marker is removed).
+ * 3. The lines between //@begin feature (or //@begin !feature) and //@end are kept in the same way (blocks may be
+ *    nested).
+ * 4. A line //@include name is replaced by the lines of the template with that name.
+ * The int versions of RBTreePlusNode and KLowest are written by hand (RBTreePlusNode also has the number of
+ * occurrences of a key in a multiset tree, and KLowest has the checkpoints of the assignment). The parts of RBTreePlus
+ * that only the int tree has (the multiset mode, remove, merge, split and join, fromSortedKeys, the IntBuffer offerAll,
+ * the iterators and the recorder of the changes) are int blocks of RBTreePlus.template.
+ *
+ * @author Sima Margulis Davidi
+ * @version 30-07-2017
+ */
+
+public class GenerateVariants {
+
+    // The directories of the templates and of the generated sources
+    private static final Path TEMPLATES = Paths.get("tools", "template");
+    private static final Path SOURCES = Paths.get("src", "com", "sima");
+
+    // The first line of every generated file
+    private static final String HEADER =
+            "// Generated by tools/GenerateVariants.java from tools/template/%s - don't edit.";
+
+    // The directives and the marker at the end of a line
+    private static final Pattern BEGIN = Pattern.compile("\\s*//@begin (!?)(\\w+)\\s*");
+    private static final Pattern END = Pattern.compile("\\s*//@end\\s*");
+    private static final Pattern INCLUDE = Pattern.compile("\\s*//@include (\\S+)\\s*");
+    private static final Pattern MARKER = Pattern.compile("\\s*//@(!?)(\\w+)\\s*$");
+
+    public static void main(String[] args) throws IOException {
+        generate("RBTreePlus.template", "RBTreePlus.java", integer());
+        for (Map<String, String> variant : variants()){
+            String type = variant.get("$Type$");
+            generate("RBTreePlusNode.template", "RBTreePlus" + type + "Node.java", variant);
+            generate("RBTreePlus.template", "RBTreePlus" + type + ".java", variant);
+            generate("KLowest.template", "KLowest" + type + ".java", variant);
+        }
+        generate("RBSlotArena.template", "RBSlotArena.java", slots());
+    }
+
+    // Returns the token values of the int variant of RBTreePlus
+    private static Map<String, String> integer(){
+        Map<String, String> variant = primitive("", "int", "Integer.MIN_VALUE", "Integer", "the natural order");
+        variant.put("$Node$", "RBTreePlusNode");
+        variant.put("$NodeNew$", "RBTreePlusNode");
+        variant.put("@int", "keep");
+        return variant;
+    }
+
+    // Returns the token values of the long, double and object variants
+    private static List<Map<String, String>> variants(){
+        List<Map<String, String>> variants = new ArrayList<>();
+        variants.add(primitive("Long", "long", "0L", "Long", "Long.compare"));
+        variants.get(0).put("@long", "keep");
+        variants.add(primitive("Double", "double", "0.0", "Double",
+                "Double.compare (a total order, in which -0.0 is lower than 0.0 and NaN is the highest)"));
+        variants.get(1).put("@double", "keep");
+        Map<String, String> obj = nodes();
+        obj.put("$Type$", "Obj");
+        obj.put("$typeName$", "object");
+        obj.put("$E$", "<E>");
+        obj.put("$key$", "E");
+        obj.put("$keyElement$", "Object");
+        obj.put("$Node$", "RBTreePlusObjNode<E>");
+        obj.put("$NodeNew$", "RBTreePlusObjNode<>");
+        obj.put("$defaultKey$", "null");
+        obj.put("$Wrapper$", "");
+        obj.put("$compareName$", "the comparator given to the constructor");
+        obj.put("/*$ctorParams$*/", "Comparator<? super E> comparator");
+        obj.put("/*$ctorArgs$*/", ", comparator");
+        obj.put("/*$ctorMoreParams$*/", ", Comparator<? super E> comparator");
+        obj.put("@obj", "keep");
+        variants.add(obj);
+        return variants;
+    }
+
+    // Returns the token values of a primitive variant
+    private static Map<String, String> primitive(String type, String key, String defaultKey, String wrapper,
+                                                 String compareName){
+        Map<String, String> variant = nodes();
+        variant.put("$Type$", type);
+        variant.put("$typeName$", key);
+        variant.put("$E$", "");
+        variant.put("$key$", key);
+        variant.put("$keyElement$", key);
+        variant.put("$Node$", "RBTreePlus" + type + "Node");
+        variant.put("$NodeNew$", "RBTreePlus" + type + "Node");
+        variant.put("$defaultKey$", defaultKey);
+        variant.put("$Wrapper$", wrapper);
+        variant.put("$compareName$", compareName);
+        variant.put("/*$ctorParams$*/", "");
+        variant.put("/*$ctorArgs$*/", "");
+        variant.put("/*$ctorMoreParams$*/", "");
+        variant.put("@primitive", "keep");
+        return variant;
+    }
+
+    // Returns the token values of the red-black tree code on RBTreePlusNode objects (shared by the RBTreePlus variants)
+    private static Map<String, String> nodes(){
+        Map<String, String> variant = new LinkedHashMap<>();
+        variant.put("$public$", "public ");
+        variant.put("$RED$", "RBTreePlusNode.Color.RED");
+        variant.put("$BLACK$", "RBTreePlusNode.Color.BLACK");
+        variant.put("@nodes", "keep");
+        return variant;
+    }
+
+    // Returns the token values of RBSlotArena (the red-black tree code on slots)
+    private static Map<String, String> slots(){
+        Map<String, String> variant = new LinkedHashMap<>();
+        variant.put("$Node$", "int");
+        variant.put("$public$", "");
+        variant.put("$RED$", "RED");
+        variant.put("$BLACK$", "BLACK");
+        variant.put("@slots", "keep");
+        return variant;
+    }
+
+    /**
+     * Generates a source file from a template.
+     *
+     * @param template the name of the template
+     * @param target the name of the generated file
+     * @param variant the token values and the features of the variant
+     * @throws IOException if a file can't be read or written
+     */
+    private static void generate(String template, String target, Map<String, String> variant) throws IOException {
+        StringBuilder out = new StringBuilder(String.format(HEADER, template)).append('\n');
+        expand(template, variant, out);
+        Files.write(SOURCES.resolve(target), out.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Generated " + SOURCES.resolve(target));
+    }
+
+    /**
+     * Appends the lines of a template that are kept in a variant, with the tokens replaced (and the included templates
+     * expanded in the same way).
+     *
+     * @param template the name of the template
+     * @param variant the token values and the features of the variant
+     * @param out the generated text
+     * @throws IOException if a template can't be read
+     */
+    private static void expand(String template, Map<String, String> variant, StringBuilder out) throws IOException {
+        Deque<Boolean> blocks = new ArrayDeque<>(); // whether each open block (and the blocks around it) is kept
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(TEMPLATES.resolve(template), StandardCharsets.UTF_8)){
+            lineNumber++;
+            boolean kept = blocks.isEmpty() || blocks.peek();
+            Matcher begin = BEGIN.matcher(line);
+            if (begin.matches()){
+                blocks.push(kept && hasFeature(variant, begin.group(1), begin.group(2)));
+                continue;
+            }
+            if (END.matcher(line).matches()){
+                if (blocks.isEmpty()){
+                    throw new IllegalStateException(template + ":" + lineNumber + ": //@end without //@begin");
+                }
+                blocks.pop();
+                continue;
+            }
+            if (!kept){
+                continue;
+            }
+            Matcher include = INCLUDE.matcher(line);
+            if (include.matches()){
+                expand(include.group(1), variant, out);
+                continue;
+            }
+            Matcher marker = MARKER.matcher(line);
+            if (marker.find()){
+                if (!hasFeature(variant, marker.group(1), marker.group(2))){
+                    continue;
+                }
+                line = line.substring(0, marker.start());
+            }
+            for (Map.Entry<String, String> token : variant.entrySet()){
+                if (token.getKey().startsWith("$") || token.getKey().startsWith("/*")){
+                    line = line.replace(token.getKey(), token.getValue());
+                }
+            }
+            out.append(line).append('\n');
+        }
+        if (!blocks.isEmpty()){
+            throw new IllegalStateException(template + ": //@begin without //@end");
+        }
+    }
+
+    // Checks whether a variant has a feature (or doesn't have it, if the marker is negated by !)
+    private static boolean hasFeature(Map<String, String> variant, String negation, String feature){
+        return variant.containsKey("@" + feature) != negation.equals("!");
+    }
+}